@@ -0,0 +1,43 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.benchmarks;
+
+/**
+ * A typical POJO for the reflection benchmarks.
+ * 
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public class BenchmarkBean
+{
+  private String name  = "foo";
+
+  private int    count = 10;
+
+  @SuppressWarnings("unused")
+  private String hidden;
+
+  public String getName()
+  {
+    return this.name;
+  }
+
+  public void setName(String name)
+  {
+    this.name = name;
+  }
+
+  public int getCount()
+  {
+    return this.count;
+  }
+
+  public void setCount(int count)
+  {
+    this.count = count;
+  }
+
+  public int add(int a, int b)
+  {
+    return a + b;
+  }
+}
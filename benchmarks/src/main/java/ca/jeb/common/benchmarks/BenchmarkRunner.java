@@ -0,0 +1,86 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.benchmarks;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks once per thread count, writing the results of each run as JSON. The cold start benchmark,
+ * {@link JReflectionUtilsColdBenchmark}, is run once on its own, single threaded, to <code>jmh-cold.json</code>.
+ * <p>
+ * The first argument, if any, is a regular expression selecting the benchmarks to run. The following system properties
+ * are supported:
+ * <ul>
+ * <li><code>threads</code> - comma separated thread counts, defaults to <code>1,2,4</code> and the number of
+ * processors, each count run once</li>
+ * <li><code>results</code> - the directory to write <code>jmh-&lt;threads&gt;t.json</code> to, defaults to
+ * <code>target/jmh</code></li>
+ * </ul>
+ * 
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class BenchmarkRunner
+{
+  private BenchmarkRunner()
+  {
+    // main class
+  }
+
+  public static void main(String[] args) throws RunnerException
+  {
+    final String include = args.length > 0 ? args[0] : "ca\\.jeb\\.common\\.benchmarks\\..*";
+    final String threads = System.getProperty("threads", "1,2,4," + Runtime.getRuntime().availableProcessors());
+    final File results = new File(System.getProperty("results", "target/jmh"));
+    results.mkdirs();
+
+    // The processor count is often one of the defaults, run each count once
+    final Set<Integer> threadCounts = new LinkedHashSet<>();
+    for (String count : threads.split(","))
+    {
+      threadCounts.add(Integer.parseInt(count.trim()));
+    }
+
+    // Its forks measure the first call in a fresh JVM, more threads would measure concurrent first calls
+    final String coldName = JReflectionUtilsColdBenchmark.class.getName() + ".runGetterCold";
+    final String cold = Pattern.quote(coldName);
+    if (Pattern.compile(include).matcher(coldName).find())
+    {
+      new Runner(new OptionsBuilder()
+              .include(cold)
+              .resultFormat(ResultFormatType.JSON)
+              .result(new File(results, "jmh-cold.json").getPath())
+              .build()).run();
+    }
+
+    for (final int threadCount : threadCounts)
+    {
+      final Options options = new OptionsBuilder()
+              .include(include)
+              .exclude(cold)
+              .threads(threadCount)
+              .resultFormat(ResultFormatType.JSON)
+              .result(new File(results, "jmh-" + threadCount + "t.json").getPath())
+              .build();
+
+      try
+      {
+        new Runner(options).run();
+      }
+      catch (NoBenchmarksException e)
+      {
+        // Only the cold benchmark was selected
+        break;
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.jeb.common.infra.JException;
+import ca.jeb.common.infra.JReflectionUtils;
+
+/**
+ * Steady state cost of the {@link JReflectionUtils} hot paths, once their caches are warm.
+ * <p>
+ * Each benchmark thread has its own bean, so multi-threaded runs measure the shared caches rather than contention on
+ * the bean's fields.
+ * 
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JReflectionUtilsBenchmark
+{
+  private static final Integer COUNT = 10;
+
+  private final BenchmarkBean  bean  = new BenchmarkBean();
+
+  private final Object[]       args  = { 1, 2 };
+
+  private Field                nameField;
+
+  private Field                countField;
+
+  private Field                hiddenField;
+
+  @Setup
+  public void setUp() throws NoSuchFieldException
+  {
+    this.nameField = BenchmarkBean.class.getDeclaredField("name");
+    this.countField = BenchmarkBean.class.getDeclaredField("count");
+    this.hiddenField = BenchmarkBean.class.getDeclaredField("hidden");
+  }
+
+  @Benchmark
+  public Object runGetterWarm() throws Exception
+  {
+    return JReflectionUtils.runGetter(this.bean, this.nameField);
+  }
+
+  @Benchmark
+  public Object runGetterPrimitive() throws Exception
+  {
+    return JReflectionUtils.runGetter(this.bean, this.countField);
+  }
+
+  @Benchmark
+  public Object runGetterMiss() throws Exception
+  {
+    return JReflectionUtils.runGetter(this.bean, this.hiddenField);
+  }
+
+  @Benchmark
+  public Object runSetter() throws JException
+  {
+    return JReflectionUtils.runSetter(this.bean, "setCount", COUNT, int.class);
+  }
+
+  @Benchmark
+  public Object runMethod() throws JException
+  {
+    return JReflectionUtils.runMethod(this.bean, "add", this.args);
+  }
+
+  @Benchmark
+  public List<Field> getAllFields()
+  {
+    return JReflectionUtils.getAllFields(new ArrayList<Field>(), BenchmarkBean.class);
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.jeb.common.infra.JReflectionUtils;
+
+/**
+ * Cost of the very first {@link JReflectionUtils#runGetter(Object, java.lang.reflect.Field)} on a class, in a fresh
+ * JVM, i.e. including the getter resolution and the class loading it triggers. It runs on a single thread,
+ * {@link BenchmarkRunner} leaves it out of its thread counts.
+ * 
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+@Threads(1)
+public class JReflectionUtilsColdBenchmark
+{
+  @Benchmark
+  public Object runGetterCold() throws Exception
+  {
+    return JReflectionUtils.runGetter(new BenchmarkBean(), BenchmarkBean.class.getDeclaredField("name"));
+  }
+}
@@ -0,0 +1,282 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ca.jeb.common.infra.JStreamDecoder;
+import ca.jeb.common.infra.JStringCache;
+import ca.jeb.common.infra.JStringColumns;
+import ca.jeb.common.infra.JStringUtils;
+import ca.jeb.common.infra.Tokenizer;
+
+/**
+ * Cost of the {@link JStringUtils} methods used per field, or per message, by the ingestion and serialization paths.
+ * 
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JStringUtilsBenchmark
+{
+  private static final int   PAYLOAD_LINES = 1024;
+
+  private final String       padded        = "   foo bar   ";
+
+  private final String       withDigit     = "abcdefghijklmnop1";
+
+  private final String       withoutDigit  = "abcdefghijklmnopq";
+
+  private final String       csv           = "EUR,USD,SHORT,Y,N,100.25,IBM,2014-10-01";
+
+  private final List<String> columns       = Arrays.asList(csv.split(","));
+
+  private final JStringCache cache         = new JStringCache(1024);
+
+  private byte[]             payload;
+
+  @Setup
+  public void setUp()
+  {
+    final List<String> lines = new ArrayList<>();
+    for (int i = 0; i < PAYLOAD_LINES; i++)
+    {
+      lines.add(this.csv);
+    }
+    this.payload = JStringUtils.encode(JStringUtils.join(lines, JStringUtils.NEW_LINE), JStringUtils.UTF8_CHARSET);
+  }
+
+  @Benchmark
+  public String ltrim()
+  {
+    return JStringUtils.ltrim(this.padded);
+  }
+
+  @Benchmark
+  public String rtrim()
+  {
+    return JStringUtils.rtrim(this.padded);
+  }
+
+  @Benchmark
+  public boolean hasDigit()
+  {
+    return JStringUtils.hasDigit(this.withDigit);
+  }
+
+  @Benchmark
+  public boolean hasDigitMiss()
+  {
+    return JStringUtils.hasDigit(this.withoutDigit);
+  }
+
+  @Benchmark
+  public int hasDigitPerValue(ColumnState state)
+  {
+    int count = 0;
+    for (final String value : state.values)
+    {
+      if (JStringUtils.hasDigit(value))
+      {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Benchmark
+  public long[] hasDigitColumn(ColumnState state)
+  {
+    return JStringColumns.hasDigit(state.values);
+  }
+
+  @Benchmark
+  public long[] hasDigitByteColumn(ColumnState state)
+  {
+    return JStringColumns.hasDigit(state.data, state.offsets);
+  }
+
+  @Benchmark
+  public String pad()
+  {
+    return JStringUtils.pad("foo", 20, ' ');
+  }
+
+  @Benchmark
+  public StringBuilder padInto(PadState state)
+  {
+    state.record.setLength(0);
+    return JStringUtils.pad(state.record, "foo", 20, ' ', JStringUtils.Alignment.RIGHT);
+  }
+
+  @Benchmark
+  public List<String> split()
+  {
+    return JStringUtils.split(this.csv, JStringUtils.COMMA);
+  }
+
+  @Benchmark
+  public boolean tokenizeColumn(TokenizerState state)
+  {
+    return state.tokenizer.reset(this.csv).advanceTo(6) && state.tokenizer.contentEquals("IBM");
+  }
+
+  @Benchmark
+  public String tokenizeColumnInterned(TokenizerState state)
+  {
+    return state.tokenizer.reset(this.csv).advanceTo(6) ? state.tokenizer.token(this.cache) : null;
+  }
+
+  @Benchmark
+  public String decodeInterned()
+  {
+    return JStringUtils.decode(this.payload, 0, 3, JStringUtils.UTF8_CHARSET, this.cache);
+  }
+
+  @Benchmark
+  public String join()
+  {
+    return JStringUtils.join(this.columns, JStringUtils.COMMA);
+  }
+
+  @Benchmark
+  public StringBuilder joinInto(PadState state) throws IOException
+  {
+    state.record.setLength(0);
+    return JStringUtils.join(state.record, this.columns, JStringUtils.COMMA);
+  }
+
+  @Benchmark
+  public int joinIntoDirectBuffer(BufferState state)
+  {
+    state.bytes.clear();
+    return JStringUtils.join(state.bytes, this.columns, JStringUtils.COMMA, JStringUtils.UTF8_CHARSET);
+  }
+
+  @Benchmark
+  @SuppressWarnings("deprecation")
+  public String convertInputStreamToString() throws IOException
+  {
+    return JStringUtils.convertInputStreamToString(new ByteArrayInputStream(this.payload), "UTF-8");
+  }
+
+  @Benchmark
+  public byte[] encodeToArray()
+  {
+    return JStringUtils.encode(this.csv, JStringUtils.UTF8_CHARSET);
+  }
+
+  @Benchmark
+  public int encodeIntoDirectBuffer(BufferState state)
+  {
+    state.bytes.clear();
+    return JStringUtils.encode(this.csv, JStringUtils.UTF8_CHARSET, state.bytes);
+  }
+
+  @Benchmark
+  public int decodeIntoArray(BufferState state)
+  {
+    return JStringUtils.decode(this.payload, 0, this.csv.length(), JStringUtils.UTF8_CHARSET, state.chars, 0);
+  }
+
+  @Benchmark
+  public String decodeInputStream() throws IOException
+  {
+    return JStringUtils.decode(new ByteArrayInputStream(this.payload), JStringUtils.UTF8_CHARSET, this.payload.length);
+  }
+
+  @Benchmark
+  public CharBuffer decodeToBufferReused(DecoderState state) throws IOException
+  {
+    return state.decoder.decodeToBuffer(new ByteArrayInputStream(this.payload), this.payload.length);
+  }
+
+  /**
+   * A record buffer per thread, reused by every call.
+   */
+  @State(Scope.Thread)
+  public static class PadState
+  {
+    final StringBuilder record = new StringBuilder(64);
+  }
+
+  /**
+   * A tokenizer per thread, reset for each line.
+   */
+  @State(Scope.Thread)
+  public static class TokenizerState
+  {
+    final Tokenizer tokenizer = new Tokenizer(',', '"', Tokenizer.NONE);
+  }
+
+  /**
+   * Buffers per thread, reused by every call.
+   */
+  @State(Scope.Thread)
+  public static class BufferState
+  {
+    final ByteBuffer bytes = ByteBuffer.allocateDirect(256);
+
+    final char[]     chars = new char[256];
+  }
+
+  /**
+   * A decoder per thread, as {@link JStreamDecoder} is not thread-safe.
+   */
+  @State(Scope.Thread)
+  public static class DecoderState
+  {
+    final JStreamDecoder decoder = new JStreamDecoder(JStringUtils.UTF8_CHARSET);
+  }
+
+  /**
+   * A column of values, as Strings and as bytes, shared by every thread.
+   */
+  @State(Scope.Benchmark)
+  public static class ColumnState
+  {
+    private static final int SIZE    = 1 << 16;
+
+    final String[]           values  = new String[SIZE];
+
+    final int[]              offsets = new int[SIZE + 1];
+
+    byte[]                   data;
+
+    @Setup
+    public void setUp()
+    {
+      final StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < SIZE; i++)
+      {
+        // One value in 16 has a digit, at its end
+        this.values[i] = (i & 15) == 0 ? "ACCOUNT-" + i : "COUNTERPARTY";
+        sb.append(this.values[i]);
+        this.offsets[i + 1] = sb.length();
+      }
+      this.data = JStringUtils.encode(sb.toString(), JStringUtils.UTF8_CHARSET);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+#!/bin/sh
+# Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+#
+# Starts SpringMain, mapping the classes from the class data sharing (AppCDS) archive a training run created.
+#
+# Usage: springmain.sh train <config location>... [<option>...]
+#        springmain.sh <config location>... [<option>...]
+#
+# "train" runs SpringMain once, with --training-run: it starts the context, runs every WarmupHook, and exits, with the
+# JVM writing the classes it loaded to the archive, which is removed if the run fails. Later runs start from the
+# archive, if there is one, and load the classes as usual otherwise, e.g. with another JDK than the training run.
+#
+# Environment:
+#   CLASSPATH      - The class path, only jars, as class directories cannot be archived; the runs must use the same
+#                    class path as the training run, or one it is a prefix of
+#   JAVA           - The java command, java by default; JDK 13 or later is needed to train
+#   JAVA_OPTS      - The other options of the JVM
+#   SPRINGMAIN_CDS - The archive, springmain.jsa by default
+
+JAVA=${JAVA:-java}
+ARCHIVE=${SPRINGMAIN_CDS:-springmain.jsa}
+MAIN=ca.jeb.common.spring.SpringMain
+
+if [ -z "$CLASSPATH" ]; then
+  echo "CLASSPATH is not set" >&2
+  exit 2
+fi
+
+if [ "$1" = "train" ]; then
+  shift
+  rm -f "$ARCHIVE"
+  "$JAVA" -XX:ArchiveClassesAtExit="$ARCHIVE" $JAVA_OPTS -cp "$CLASSPATH" $MAIN --training-run "$@"
+  STATUS=$?
+  if [ $STATUS -ne 0 ]; then
+    rm -f "$ARCHIVE"
+  fi
+  exit $STATUS
+fi
+
+if [ -f "$ARCHIVE" ]; then
+  exec "$JAVA" -XX:SharedArchiveFile="$ARCHIVE" -Xshare:auto $JAVA_OPTS -cp "$CLASSPATH" $MAIN "$@"
+fi
+exec "$JAVA" $JAVA_OPTS -cp "$CLASSPATH" $MAIN "$@"
@@ -0,0 +1,280 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates a <code>ca.jeb.common.infra.JAccessorProvider</code> for every class annotated with
+ * <code>ca.jeb.common.infra.JGenerateAccessors</code>.
+ * <p>
+ * The provider has one accessor per field of the class and its super-classes that has a public "getter", matched the
+ * same way as <code>JReflectionUtils.runGetter</code> does. Each accessor is a plain, statically typed call to the
+ * "getter", so <code>JReflectionUtils</code> can use it without any reflection or runtime bytecode generation.
+ * <p>
+ * Classes that cannot be referenced from their own package, i.e. private or local ones, are skipped with a warning.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+@SupportedAnnotationTypes(JAccessorProcessor.ANNOTATION)
+public class JAccessorProcessor extends AbstractProcessor
+{
+  static final String         ANNOTATION = "ca.jeb.common.infra.JGenerateAccessors";
+
+  static final String         SUFFIX     = "_JAccessors";
+
+  private static final String INFRA      = "ca.jeb.common.infra.";
+
+  private static final String GET        = "get";
+
+  private static final String IS         = "is";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion()
+  {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+  {
+    for (TypeElement annotation : annotations)
+    {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation))
+      {
+        if (element.getKind() != ElementKind.CLASS)
+        {
+          continue;
+        }
+
+        final TypeElement type = (TypeElement)element;
+        if (!isAccessible(type))
+        {
+          this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                  "Not generating accessors for " + type + ", it is private or local", type);
+          continue;
+        }
+
+        try
+        {
+          generate(type);
+        }
+        catch (IOException e)
+        {
+          this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                  "Could not generate accessors for " + type + ": " + e, type);
+        }
+      }
+    }
+    return true;
+  }
+
+  private void generate(TypeElement type) throws IOException
+  {
+    final PackageElement pkg = this.processingEnv.getElementUtils().getPackageOf(type);
+    final String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    final String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+    final String simpleName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$', '_')
+            + SUFFIX;
+    final String typeName = this.processingEnv.getTypeUtils().erasure(type.asType()).toString();
+
+    final Map<String, ExecutableElement> getters = findGetters(type);
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append("// Generated by ").append(JAccessorProcessor.class.getName()).append(", do not edit.\n\n");
+    if (!packageName.isEmpty())
+    {
+      sb.append("package ").append(packageName).append(";\n\n");
+    }
+    sb.append("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+    sb.append("public final class ").append(simpleName).append(" implements ").append(INFRA).append("JAccessorProvider\n");
+    sb.append("{\n");
+
+    int index = 0;
+    for (Map.Entry<String, ExecutableElement> entry : getters.entrySet())
+    {
+      appendAccessor(sb, index++, typeName, entry.getValue());
+    }
+
+    sb.append("  @Override\n");
+    sb.append("  public ").append(INFRA).append("JAccessor getAccessor(String fieldName)\n");
+    sb.append("  {\n");
+    sb.append("    switch (fieldName)\n");
+    sb.append("    {\n");
+    index = 0;
+    for (String fieldName : getters.keySet())
+    {
+      sb.append("      case \"").append(fieldName).append("\":\n");
+      sb.append("        return ACCESSOR_").append(index++).append(";\n");
+    }
+    sb.append("      default:\n");
+    sb.append("        return null;\n");
+    sb.append("    }\n");
+    sb.append("  }\n");
+    sb.append("}\n");
+
+    final String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    final Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+    try
+    {
+      writer.write(sb.toString());
+    }
+    finally
+    {
+      writer.close();
+    }
+  }
+
+  private void appendAccessor(StringBuilder sb, int index, String typeName, ExecutableElement getter)
+  {
+    final TypeMirror returnType = getter.getReturnType();
+    final String returnTypeName = this.processingEnv.getTypeUtils().erasure(returnType).toString();
+    final String call = "((" + typeName + ")target)." + getter.getSimpleName() + "()";
+
+    sb.append("  private static final ").append(INFRA).append("JAccessor ACCESSOR_").append(index).append(" = new ")
+            .append(INFRA).append("JAccessor(\"").append(getter.getSimpleName()).append("\", ").append(returnTypeName)
+            .append(".class)\n");
+    sb.append("  {\n");
+    appendMethod(sb, "Object", "get", typeName, call);
+    if (returnType.getKind().isPrimitive())
+    {
+      final String typedName = Character.toUpperCase(returnTypeName.charAt(0)) + returnTypeName.substring(1);
+      appendMethod(sb, returnTypeName, GET + typedName, typeName, call);
+    }
+    sb.append("  };\n\n");
+  }
+
+  /**
+   * Append a method checking the target as the reflective accessors do, so that only what the getter throws is wrapped
+   * in an InvocationTargetException.
+   */
+  private static void appendMethod(StringBuilder sb, String returnType, String name, String typeName, String call)
+  {
+    sb.append("    @Override\n");
+    sb.append("    public ").append(returnType).append(" ").append(name)
+            .append("(Object target) throws java.lang.reflect.InvocationTargetException\n");
+    sb.append("    {\n");
+    sb.append("      checkTarget(").append(typeName).append(".class, target);\n");
+    sb.append("      try\n");
+    sb.append("      {\n");
+    sb.append("        return ").append(call).append(";\n");
+    sb.append("      }\n");
+    sb.append("      catch (Throwable t)\n");
+    sb.append("      {\n");
+    sb.append("        throw new java.lang.reflect.InvocationTargetException(t);\n");
+    sb.append("      }\n");
+    sb.append("    }\n");
+  }
+
+  /**
+   * @return the public "getter" of each field of the type and its super-classes, by field name
+   */
+  private Map<String, ExecutableElement> findGetters(TypeElement type)
+  {
+    final List<ExecutableElement> methods = ElementFilter.methodsIn(this.processingEnv.getElementUtils().getAllMembers(type));
+    final Map<String, ExecutableElement> getters = new LinkedHashMap<>();
+
+    TypeElement current = type;
+    while (current != null)
+    {
+      for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements()))
+      {
+        final String fieldName = field.getSimpleName().toString();
+        if (getters.containsKey(fieldName))
+        {
+          continue;
+        }
+
+        final ExecutableElement getter = findGetter(methods, fieldName);
+        if (getter != null)
+        {
+          getters.put(fieldName, getter);
+        }
+      }
+      current = superclassOf(current);
+    }
+    return getters;
+  }
+
+  private static ExecutableElement findGetter(List<ExecutableElement> methods, String fieldName)
+  {
+    final String exactName = GET + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1);
+    for (ExecutableElement method : methods)
+    {
+      if (isGetter(method) && method.getSimpleName().contentEquals(exactName))
+      {
+        return method;
+      }
+    }
+
+    final String lowerFieldName = fieldName.toLowerCase(Locale.ENGLISH);
+    for (ExecutableElement method : methods)
+    {
+      final String methodName = method.getSimpleName().toString();
+      if (((methodName.startsWith(GET) && methodName.length() == fieldName.length() + GET.length())
+              || (methodName.startsWith(IS) && methodName.length() == fieldName.length() + IS.length()))
+              && methodName.toLowerCase(Locale.ENGLISH).endsWith(lowerFieldName) && isGetter(method))
+      {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isGetter(ExecutableElement method)
+  {
+    return method.getModifiers().contains(Modifier.PUBLIC) && !method.getModifiers().contains(Modifier.STATIC)
+            && method.getParameters().isEmpty() && method.getReturnType().getKind() != TypeKind.VOID;
+  }
+
+  private static TypeElement superclassOf(TypeElement type)
+  {
+    final TypeMirror superclass = type.getSuperclass();
+    if (superclass.getKind() != TypeKind.DECLARED)
+    {
+      return null;
+    }
+    final TypeElement element = (TypeElement)((DeclaredType)superclass).asElement();
+    return element.getQualifiedName().contentEquals(Object.class.getName()) ? null : element;
+  }
+
+  private static boolean isAccessible(TypeElement type)
+  {
+    Element element = type;
+    while (element instanceof TypeElement)
+    {
+      final TypeElement typeElement = (TypeElement)element;
+      if (typeElement.getModifiers().contains(Modifier.PRIVATE) || typeElement.getNestingKind() == NestingKind.LOCAL
+              || typeElement.getNestingKind() == NestingKind.ANONYMOUS)
+      {
+        return false;
+      }
+      element = typeElement.getEnclosingElement();
+    }
+    return true;
+  }
+}
@@ -0,0 +1,170 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * Lists the configuration classes of the compiled sources in the
+ * <code>META-INF/ca.jeb.common.spring.configurations</code> resource, read back by
+ * <code>ca.jeb.common.spring.ConfigurationIndex</code>, so that <code>SpringMain</code> can tell its class arguments
+ * from its XML ones without trying to load them.
+ * <p>
+ * A configuration class is one annotated with <code>org.springframework.context.annotation.Configuration</code>, or
+ * any other annotation meta-annotated with <code>org.springframework.stereotype.Component</code>, as Spring registers
+ * them all the same way. Abstract, private and local classes are skipped.
+ * <p>
+ * On an incremental compile, the classes listed by the previous index that were not compiled again are kept, as long as
+ * they still exist.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+@SupportedAnnotationTypes("*")
+public class JConfigurationIndexProcessor extends AbstractProcessor
+{
+  static final String         INDEX     = "META-INF/ca.jeb.common.spring.configurations";
+
+  private static final String COMPONENT = "org.springframework.stereotype.Component";
+
+  private final Set<String>   indexed   = new TreeSet<>();
+
+  private final Set<String>   compiled  = new HashSet<>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion()
+  {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+  {
+    for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements()))
+    {
+      collect(type);
+    }
+
+    if (roundEnv.processingOver())
+    {
+      try
+      {
+        write();
+      }
+      catch (IOException e)
+      {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                "Could not write the configuration index " + INDEX + ": " + e);
+      }
+    }
+    // Other processors may claim the same annotations
+    return false;
+  }
+
+  private void collect(TypeElement type)
+  {
+    final String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+    this.compiled.add(binaryName);
+    if (type.getKind() == ElementKind.CLASS && !type.getModifiers().contains(Modifier.ABSTRACT)
+            && !type.getModifiers().contains(Modifier.PRIVATE) && isComponent(type, new HashSet<String>()))
+    {
+      this.indexed.add(binaryName);
+    }
+
+    for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements()))
+    {
+      if (nested.getNestingKind() == NestingKind.MEMBER && nested.getModifiers().contains(Modifier.STATIC))
+      {
+        collect(nested);
+      }
+    }
+  }
+
+  /**
+   * @return true if <i>element</i> is annotated with <code>@Component</code>, directly or through its annotations
+   */
+  private static boolean isComponent(Element element, Set<String> visited)
+  {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors())
+    {
+      final TypeElement annotation = (TypeElement)mirror.getAnnotationType().asElement();
+      final String name = annotation.getQualifiedName().toString();
+      if (name.equals(COMPONENT))
+      {
+        return true;
+      }
+      if (!name.startsWith("java.") && visited.add(name) && isComponent(annotation, visited))
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void write() throws IOException
+  {
+    readPrevious();
+    if (this.indexed.isEmpty())
+    {
+      return;
+    }
+
+    final FileObject index = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+    try (Writer writer = index.openWriter())
+    {
+      writer.write("# Generated by " + JConfigurationIndexProcessor.class.getName() + ", do not edit.\n");
+      for (String className : this.indexed)
+      {
+        writer.write(className);
+        writer.write('\n');
+      }
+    }
+  }
+
+  /**
+   * Keep the classes of the previous index that were not compiled this time but still exist.
+   */
+  private void readPrevious()
+  {
+    try
+    {
+      final FileObject previous = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+      try (BufferedReader reader = new BufferedReader(previous.openReader(true)))
+      {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+          line = line.trim();
+          if (!line.isEmpty() && line.charAt(0) != '#' && !this.compiled.contains(line)
+                  && this.processingEnv.getElementUtils().getTypeElement(line.replace('$', '.')) != null)
+          {
+            this.indexed.add(line);
+          }
+        }
+      }
+    }
+    catch (IOException e)
+    {
+      // No previous index
+    }
+  }
+}
@@ -0,0 +1,123 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ca.jeb.common.infra.JAccessor;
+import ca.jeb.common.infra.JReflectionUtils;
+
+/**
+ */
+public class JAccessorProcessorTest
+{
+  private static final String SOURCE = "package sample;\n"
+                                             + "@ca.jeb.common.infra.JGenerateAccessors\n"
+                                             + "public class Bean extends Base {\n"
+                                             + "  private String name = \"foo\";\n"
+                                             + "  private int count = 10;\n"
+                                             + "  private boolean active = true;\n"
+                                             + "  private String hidden;\n"
+                                             + "  public String getName() { return name; }\n"
+                                             + "  public int getCount() { return count; }\n"
+                                             + "  public boolean isActive() { return active; }\n"
+                                             + "  public static class Nested { private long id = 5L; public long getId() { return id; } }\n"
+                                             + "}\n"
+                                             + "class Base {\n"
+                                             + "  private long inherited = 20L;\n"
+                                             + "  public long getInherited() { return inherited; }\n"
+                                             + "}\n";
+
+  /**
+   * Compile a sample class with the processor and make sure {@link JReflectionUtils} picks up the generated accessors.
+   */
+  @Test
+  public void testGeneratedAccessors() throws Exception
+  {
+    final File dir = Files.createTempDirectory("jaccessors").toFile();
+    final File source = new File(dir, "sample/Bean.java");
+    source.getParentFile().mkdirs();
+    try (Writer writer = Files.newBufferedWriter(source.toPath(), StandardCharsets.UTF_8))
+    {
+      writer.write(SOURCE);
+    }
+
+    compile(dir, source);
+    Assert.assertTrue("The provider was not generated", new File(dir, "sample/Bean_JAccessors.java").isFile());
+
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{ dir.toURI().toURL() }, getClass().getClassLoader()))
+    {
+      final Class<?> beanClass = loader.loadClass("sample.Bean");
+      final Object bean = beanClass.getDeclaredConstructor().newInstance();
+
+      assertGenerated(beanClass, "name");
+      Assert.assertEquals("'name' was not read", "foo", JReflectionUtils.runGetter(bean, beanClass.getDeclaredField("name")));
+
+      final JAccessor count = assertGenerated(beanClass, "count");
+      Assert.assertEquals("'count' was not read without boxing", 10, count.getInt(bean));
+
+      final JAccessor active = assertGenerated(beanClass, "active");
+      Assert.assertTrue("'active' was not read from its 'is' getter", active.getBoolean(bean));
+
+      final JAccessor inherited = assertGenerated(beanClass, "inherited");
+      Assert.assertEquals("'inherited' was not read", 20L, inherited.getLong(bean));
+
+      Assert.assertNull("'hidden' has no getter", JReflectionUtils.getAccessor(beanClass, "hidden"));
+
+      try
+      {
+        count.get(null);
+        Assert.fail("get is accepting a null target");
+      }
+      catch (NullPointerException e)
+      {
+        // expected, as from the reflective accessors
+      }
+      try
+      {
+        count.getInt("not a bean");
+        Assert.fail("getInt is accepting a target of another class");
+      }
+      catch (IllegalArgumentException e)
+      {
+        // expected, as from the reflective accessors
+      }
+    }
+  }
+
+  private static JAccessor assertGenerated(Class<?> beanClass, String fieldName) throws IllegalAccessException
+  {
+    final JAccessor accessor = JReflectionUtils.getAccessor(beanClass, fieldName);
+    Assert.assertTrue("The accessor of '" + fieldName + "' was not generated: " + accessor, accessor.getClass().getName()
+            .startsWith(beanClass.getName() + "_JAccessors"));
+    return accessor;
+  }
+
+  private static void compile(File dir, File source) throws IOException
+  {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null))
+    {
+      final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+              Arrays.asList("-d", dir.getPath(), "-s", dir.getPath(), "-classpath", System.getProperty("java.class.path")),
+              null, fileManager.getJavaFileObjects(source));
+      task.setProcessors(Collections.singletonList(new JAccessorProcessor()));
+      Assert.assertTrue("The sample did not compile", task.call());
+    }
+  }
+}
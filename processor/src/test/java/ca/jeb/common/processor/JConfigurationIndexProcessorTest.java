@@ -0,0 +1,96 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.processor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import ca.jeb.common.spring.ConfigurationIndex;
+
+/**
+ */
+public class JConfigurationIndexProcessorTest
+{
+  private static final String CONFIG  = "package sample;\n"
+                                              + "@org.springframework.context.annotation.Configuration\n"
+                                              + "public class Config {\n"
+                                              + "  @org.springframework.context.annotation.Configuration\n"
+                                              + "  public static class Nested { }\n"
+                                              + "  @org.springframework.context.annotation.Configuration\n"
+                                              + "  public static abstract class Base { }\n"
+                                              + "}\n";
+
+  private static final String SERVICE = "package sample;\n"
+                                              + "@org.springframework.stereotype.Service\n"
+                                              + "public class Service { }\n";
+
+  private static final String PLAIN   = "package sample;\n"
+                                              + "@Deprecated\n"
+                                              + "public class Plain { }\n";
+
+  /**
+   * Compile sample classes with the processor and make sure {@link ConfigurationIndex} reads the index back.
+   */
+  @Test
+  public void testIndex() throws Exception
+  {
+    final File dir = Files.createTempDirectory("jconfigurations").toFile();
+    compile(dir, write(dir, "Config", CONFIG), write(dir, "Service", SERVICE), write(dir, "Plain", PLAIN));
+    Assert.assertTrue("The index was not generated", new File(dir, JConfigurationIndexProcessor.INDEX).isFile());
+    assertIndexed(dir);
+
+    // Compiling another class alone keeps the classes indexed before
+    compile(dir, write(dir, "Plain", PLAIN));
+    assertIndexed(dir);
+  }
+
+  private static void assertIndexed(File dir) throws IOException
+  {
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{ dir.toURI().toURL() }, null))
+    {
+      final ConfigurationIndex index = ConfigurationIndex.load(loader);
+      Assert.assertNotNull("The index was not found", index);
+      Assert.assertEquals("The index is not listing the components", new HashSet<>(Arrays.asList("sample.Config",
+              "sample.Config$Nested", "sample.Service")), index.getClassNames());
+    }
+  }
+
+  private static File write(File dir, String name, String content) throws IOException
+  {
+    final File source = new File(dir, "sample/" + name + ".java");
+    source.getParentFile().mkdirs();
+    try (Writer writer = Files.newBufferedWriter(source.toPath(), StandardCharsets.UTF_8))
+    {
+      writer.write(content);
+    }
+    return source;
+  }
+
+  private static void compile(File dir, File... sources) throws IOException
+  {
+    final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null))
+    {
+      final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+              Arrays.asList("-d", dir.getPath(), "-classpath", System.getProperty("java.class.path")
+                      + File.pathSeparator + dir.getPath()), null, fileManager.getJavaFileObjects(sources));
+      task.setProcessors(Collections.singletonList(new JConfigurationIndexProcessor()));
+      Assert.assertTrue("The sample did not compile", task.call());
+    }
+  }
+}
@@ -0,0 +1,240 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An ordered, indexed table of the properties of a class, built once per class.
+ * <p>
+ * The properties are the instance fields of the class and its super-classes, in the order returned by
+ * {@link JReflectionUtils#getAllFields(Class)}, with fields hidden by a sub-class left out. Each property has a
+ * fixed index, its field type, and its "getter" and "setter", either of which may be missing.
+ * <p>
+ * {@link #extractAll(Object, Object[])} and {@link #populate(Object, Object[])} read or write all the properties of
+ * an object in a single pass over these arrays, without any lookups or allocation beyond boxing primitive values.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class BeanIntrospector
+{
+  private static final ClassValue<BeanIntrospector> INTROSPECTORS = new ClassValue<BeanIntrospector>()
+                                                                  {
+                                                                    @Override
+                                                                    protected BeanIntrospector computeValue(Class<?> type)
+                                                                    {
+                                                                      return new BeanIntrospector(type);
+                                                                    }
+                                                                  };
+
+  private final Class<?>                            clazz;
+
+  private final String[]                            names;
+
+  private final Field[]                             fields;
+
+  private final JAccessor[]                         getters;
+
+  private final JMutator[]                          setters;
+
+  private final Map<String, Integer>                indexes;
+
+  private BeanIntrospector(Class<?> clazz)
+  {
+    this.clazz = clazz;
+
+    final JClassMetadata.AccessorTable accessorTable = JClassMetadata.forClass(clazz).getAccessorTable();
+    final List<Field> properties = new ArrayList<>();
+    final Set<String> seen = new HashSet<>();
+    for (Field field : JReflectionUtils.getAllFields(clazz))
+    {
+      if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || !seen.add(field.getName()))
+      {
+        continue;
+      }
+      properties.add(field);
+    }
+
+    final int size = properties.size();
+    this.names = new String[size];
+    this.fields = new Field[size];
+    this.getters = new JAccessor[size];
+    this.setters = new JMutator[size];
+
+    final Map<String, Integer> map = new HashMap<>(size * 2);
+    for (int i = 0; i < size; i++)
+    {
+      final Field field = properties.get(i);
+      this.names[i] = field.getName();
+      this.fields[i] = field;
+
+      final JAccessor getter = accessorTable.get(field.getName());
+      this.getters[i] = JClassMetadata.isUsable(getter) ? getter : null;
+      this.setters[i] = findSetter(field);
+
+      map.put(field.getName(), i);
+    }
+    this.indexes = Collections.unmodifiableMap(map);
+  }
+
+  /**
+   * @param clazz - The Class to introspect
+   * @return the BeanIntrospector of this class
+   */
+  public static BeanIntrospector forClass(Class<?> clazz)
+  {
+    return INTROSPECTORS.get(clazz);
+  }
+
+  /**
+   * @return the Class this introspector describes
+   */
+  public Class<?> getType()
+  {
+    return this.clazz;
+  }
+
+  /**
+   * @return the number of properties, and the size required of the arrays given to
+   *         {@link #extractAll(Object, Object[])} and {@link #populate(Object, Object[])}
+   */
+  public int size()
+  {
+    return this.names.length;
+  }
+
+  /**
+   * @param name - The property name
+   * @return the index of this property, or -1 if there is none
+   */
+  public int indexOf(String name)
+  {
+    final Integer index = this.indexes.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @param index - The property index
+   * @return the name of the property
+   */
+  public String getName(int index)
+  {
+    return this.names[index];
+  }
+
+  /**
+   * @param index - The property index
+   * @return the Field backing the property
+   */
+  public Field getField(int index)
+  {
+    return this.fields[index];
+  }
+
+  /**
+   * @param index - The property index
+   * @return the type of the field backing the property
+   */
+  public Class<?> getFieldType(int index)
+  {
+    return this.fields[index].getType();
+  }
+
+  /**
+   * @param index - The property index
+   * @return the "getter" of the property, or null if there is none
+   */
+  public JAccessor getGetter(int index)
+  {
+    return this.getters[index];
+  }
+
+  /**
+   * @param index - The property index
+   * @return the "setter" of the property, or null if there is none
+   */
+  public JMutator getSetter(int index)
+  {
+    return this.setters[index];
+  }
+
+  /**
+   * Read all the properties of <i>object</i> into <i>out</i>, by index. Properties without a "getter" are set to null.
+   *
+   * @param object - The object to read, an instance of this introspector's class
+   * @param out - The array to fill, at least {@link #size()} long
+   * @throws InvocationTargetException - if a "getter" throws
+   */
+  public void extractAll(Object object, Object[] out) throws InvocationTargetException
+  {
+    checkArguments(object, out);
+
+    final JAccessor[] getters = this.getters;
+    for (int i = 0; i < getters.length; i++)
+    {
+      final JAccessor getter = getters[i];
+      out[i] = getter == null ? null : getter.get(object);
+    }
+  }
+
+  /**
+   * Write all the properties of <i>object</i> from <i>in</i>, by index. Properties without a "setter" are skipped.
+   *
+   * @param object - The object to update, an instance of this introspector's class
+   * @param in - The values to set, at least {@link #size()} long
+   * @throws InvocationTargetException - if a "setter" throws
+   */
+  public void populate(Object object, Object[] in) throws InvocationTargetException
+  {
+    checkArguments(object, in);
+
+    final JMutator[] setters = this.setters;
+    for (int i = 0; i < setters.length; i++)
+    {
+      final JMutator setter = setters[i];
+      if (setter != null)
+      {
+        setter.set(object, in[i]);
+      }
+    }
+  }
+
+  private void checkArguments(Object object, Object[] values)
+  {
+    if (!this.clazz.isInstance(object))
+    {
+      throw new IllegalArgumentException("Object " + object + " is not an instance of " + this.clazz.getName());
+    }
+    if (values.length < this.names.length)
+    {
+      throw new IllegalArgumentException("Array of length " + values.length + " is too small for the " + this.names.length
+              + " properties of " + this.clazz.getName());
+    }
+  }
+
+  /**
+   * @return the "setter" of <i>field</i>, resolved the same way as {@link JReflectionUtils#runSetter}, or null if
+   *         there is none or it cannot be accessed
+   */
+  private JMutator findSetter(Field field)
+  {
+    try
+    {
+      return JClassMetadata.forClass(this.clazz).getMutator(JStringUtils.SET + JStringUtils.upperCaseFirst(field
+              .getName()), field.getType());
+    }
+    catch (IllegalAccessException e)
+    {
+      return null;
+    }
+  }
+}
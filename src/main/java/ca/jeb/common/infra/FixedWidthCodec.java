@@ -0,0 +1,762 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encode and decode fixed-width records, described by a layout of fields with an offset, a width, an alignment and a
+ * pad character.
+ * <p>
+ * Values are written to and read from a {@link Record}, a window over a <code>char[]</code> that is padded in place
+ * with {@link JStringUtils#pad(char[], int, CharSequence, int, char, JStringUtils.Alignment)} and read without creating
+ * Strings. A record is encoded into, or decoded from, a {@link ByteBuffer} through byte to char tables built once per
+ * codec, and whole files are streamed over NIO channels by a {@link RecordWriter} or a {@link RecordReader}, through a
+ * single reused buffer.
+ * <p>
+ * The Charset must be single byte, e.g. ISO-8859-1 or an EBCDIC code page, so a field's offset in characters is also
+ * its offset in bytes. Characters the Charset cannot encode are replaced. Characters between fields are spaces, and
+ * records may be followed by a separator, e.g. a line feed.
+ * <p>
+ * Codecs are immutable and thread-safe; records, writers and readers are not.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class FixedWidthCodec
+{
+  /**
+   * A field of the layout.
+   */
+  public static final class Field
+  {
+    private final String                 name;
+
+    private final int                    offset;
+
+    private final int                    width;
+
+    private final JStringUtils.Alignment alignment;
+
+    private final char                   padChar;
+
+    /**
+     * @param name - The name of the field
+     * @param offset - The offset of the field in the record
+     * @param width - The number of characters of the field
+     * @param alignment - Where the value is placed within the field
+     * @param padChar - The character the value is padded with
+     */
+    public Field(String name, int offset, int width, JStringUtils.Alignment alignment, char padChar)
+    {
+      if (offset < 0 || width <= 0)
+      {
+        throw new IllegalArgumentException("Field " + name + " must have a positive width at a non-negative offset");
+      }
+      this.name = name;
+      this.offset = offset;
+      this.width = width;
+      this.alignment = alignment;
+      this.padChar = padChar;
+    }
+
+    /**
+     * @return the name of the field
+     */
+    public String getName()
+    {
+      return this.name;
+    }
+
+    /**
+     * @return the offset of the field in the record
+     */
+    public int getOffset()
+    {
+      return this.offset;
+    }
+
+    /**
+     * @return the number of characters of the field
+     */
+    public int getWidth()
+    {
+      return this.width;
+    }
+
+    /**
+     * @return where the value is placed within the field
+     */
+    public JStringUtils.Alignment getAlignment()
+    {
+      return this.alignment;
+    }
+
+    /**
+     * @return the character the value is padded with
+     */
+    public char getPadChar()
+    {
+      return this.padChar;
+    }
+
+    @Override
+    public String toString()
+    {
+      return this.name + "[" + this.offset + ", " + this.width + ", " + this.alignment + ", '" + this.padChar + "']";
+    }
+  }
+
+  private static final char          GAP_CHAR        = ' ';
+
+  private static final int           MAX_LONG_DIGITS = 20;
+
+  private final Charset              charset;
+
+  private final Field[]              fields;
+
+  private final Map<String, Integer> indexes;
+
+  private final int                  recordLength;
+
+  private final byte[]               separator;
+
+  private final char[]               template;
+
+  private final char[]               decodeTable     = new char[256];
+
+  private final byte[]               encodeTable     = new byte[Character.MAX_VALUE + 1];
+
+  /**
+   * @param charset - The single byte Charset of the records
+   * @param recordSeparator - The characters after each record, or null or empty if there are none
+   * @param fields - The fields of the layout, which must not overlap
+   */
+  public FixedWidthCodec(Charset charset, String recordSeparator, List<Field> fields)
+  {
+    final CharsetEncoder encoder = charset.canEncode() ? charset.newEncoder() : null;
+    if (encoder == null || encoder.maxBytesPerChar() != 1)
+    {
+      throw new IllegalArgumentException("Charset " + charset + " is not a single byte charset");
+    }
+    this.charset = charset;
+    this.fields = fields.toArray(new Field[fields.size()]);
+
+    final Field[] sorted = this.fields.clone();
+    Arrays.sort(sorted, new Comparator<Field>()
+    {
+      @Override
+      public int compare(Field f1, Field f2)
+      {
+        return Integer.compare(f1.offset, f2.offset);
+      }
+    });
+    int end = 0;
+    for (int i = 0; i < sorted.length; i++)
+    {
+      if (i > 0 && sorted[i].offset < sorted[i - 1].offset + sorted[i - 1].width)
+      {
+        throw new IllegalArgumentException("Field " + sorted[i] + " overlaps " + sorted[i - 1]);
+      }
+      end = Math.max(end, sorted[i].offset + sorted[i].width);
+    }
+    this.recordLength = end;
+
+    final Map<String, Integer> map = new HashMap<>();
+    for (int i = 0; i < this.fields.length; i++)
+    {
+      if (map.put(this.fields[i].name, i) != null)
+      {
+        throw new IllegalArgumentException("Field " + this.fields[i].name + " is defined twice");
+      }
+    }
+    this.indexes = Collections.unmodifiableMap(map);
+
+    buildTables(encoder);
+
+    final String separatorChars = recordSeparator == null ? JStringUtils.EMPTY : recordSeparator;
+    this.separator = new byte[separatorChars.length()];
+    for (int i = 0; i < this.separator.length; i++)
+    {
+      this.separator[i] = this.encodeTable[separatorChars.charAt(i)];
+    }
+
+    this.template = new char[this.recordLength];
+    Arrays.fill(this.template, GAP_CHAR);
+    for (Field field : this.fields)
+    {
+      Arrays.fill(this.template, field.offset, field.offset + field.width, field.padChar);
+    }
+  }
+
+  private void buildTables(CharsetEncoder encoder)
+  {
+    final byte replacement = encoder.replacement()[0];
+    Arrays.fill(this.encodeTable, replacement);
+
+    final ByteBuffer in = ByteBuffer.allocate(1);
+    final CharBuffer out = CharBuffer.allocate(2);
+    final CharsetDecoder decoder = this.charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+    for (int b = 0; b < 256; b++)
+    {
+      in.clear();
+      in.put((byte)b).flip();
+      out.clear();
+      decoder.reset();
+      decoder.decode(in, out, true);
+      decoder.flush(out);
+      out.flip();
+
+      final char c = out.remaining() == 1 ? out.get() : '\uFFFD';
+      this.decodeTable[b] = c;
+      if (c != '\uFFFD' && this.encodeTable[c] == replacement)
+      {
+        this.encodeTable[c] = (byte)b;
+      }
+    }
+  }
+
+  /**
+   * @return the Charset of the records
+   */
+  public Charset getCharset()
+  {
+    return this.charset;
+  }
+
+  /**
+   * @return the number of characters of a record, without its separator
+   */
+  public int getRecordLength()
+  {
+    return this.recordLength;
+  }
+
+  /**
+   * @return the number of bytes of an encoded record, with its separator
+   */
+  public int getEncodedLength()
+  {
+    return this.recordLength + this.separator.length;
+  }
+
+  /**
+   * @return the number of fields
+   */
+  public int getFieldCount()
+  {
+    return this.fields.length;
+  }
+
+  /**
+   * @param index - The field index, in the order given to the constructor
+   * @return the Field
+   */
+  public Field getField(int index)
+  {
+    return this.fields[index];
+  }
+
+  /**
+   * @param name - The field name
+   * @return the index of this field, or -1 if there is none
+   */
+  public int indexOf(String name)
+  {
+    final Integer index = this.indexes.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @return a new, blank Record backed by its own array
+   */
+  public Record newRecord()
+  {
+    return new Record(new char[this.recordLength], 0).clear();
+  }
+
+  /**
+   * Encode <i>record</i> and its separator into <i>dest</i>.
+   *
+   * @param record - The Record to encode
+   * @param dest - The ByteBuffer to write to, with at least {@link #getEncodedLength()} bytes remaining
+   * @throws BufferOverflowException - if there is not enough room in <i>dest</i>
+   */
+  public void encode(Record record, ByteBuffer dest)
+  {
+    if (dest.remaining() < getEncodedLength())
+    {
+      throw new BufferOverflowException();
+    }
+
+    final char[] chars = record.buffer;
+    final int end = record.offset + this.recordLength;
+    for (int i = record.offset; i < end; i++)
+    {
+      dest.put(this.encodeTable[chars[i]]);
+    }
+    dest.put(this.separator);
+  }
+
+  /**
+   * Decode the next record of <i>src</i> into <i>record</i>, skipping its separator. The separator may be missing after
+   * the last record of <i>src</i>.
+   *
+   * @param src - The ByteBuffer to read, with at least {@link #getRecordLength()} bytes remaining
+   * @param record - The Record to decode into
+   * @throws BufferUnderflowException - if there is not a whole record in <i>src</i>
+   * @throws IllegalArgumentException - if the record is followed by something other than its separator
+   */
+  public void decode(ByteBuffer src, Record record)
+  {
+    if (src.remaining() < this.recordLength)
+    {
+      throw new BufferUnderflowException();
+    }
+
+    final char[] chars = record.buffer;
+    final int end = record.offset + this.recordLength;
+    for (int i = record.offset; i < end; i++)
+    {
+      chars[i] = this.decodeTable[src.get() & 0xFF];
+    }
+
+    if (src.hasRemaining() && this.separator.length > 0)
+    {
+      final int position = src.position();
+      for (int i = 0; i < this.separator.length; i++)
+      {
+        if (position + i >= src.limit() || src.get(position + i) != this.separator[i])
+        {
+          throw new IllegalArgumentException("The record ending at byte " + position + " is not followed by its separator");
+        }
+      }
+      src.position(position + this.separator.length);
+    }
+  }
+
+  /**
+   * @param channel - The channel to write to
+   * @param bufferRecords - The number of records buffered between writes to the channel
+   * @return a RecordWriter encoding records to <i>channel</i>
+   */
+  public RecordWriter newWriter(WritableByteChannel channel, int bufferRecords)
+  {
+    return new RecordWriter(channel, ByteBuffer.allocateDirect(getEncodedLength() * Math.max(1, bufferRecords)));
+  }
+
+  /**
+   * @param channel - The channel to read from
+   * @param bufferRecords - The number of records read from the channel at a time
+   * @return a RecordReader decoding records from <i>channel</i>
+   */
+  public RecordReader newReader(ReadableByteChannel channel, int bufferRecords)
+  {
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(getEncodedLength() * Math.max(1, bufferRecords));
+    buffer.flip();
+    return new RecordReader(channel, buffer);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + Arrays.toString(this.fields);
+  }
+
+  /**
+   * The characters of a single record, at an offset of an array. The array can be the record's own, or a caller's
+   * array holding many records, see {@link #wrap(char[], int)}.
+   */
+  public final class Record
+  {
+    private final char[]     digits     = new char[MAX_LONG_DIGITS];
+
+    private final CharBuffer digitsView = CharBuffer.wrap(this.digits);
+
+    private char[]           buffer;
+
+    private int              offset;
+
+    Record(char[] buffer, int offset)
+    {
+      this.buffer = buffer;
+      this.offset = offset;
+    }
+
+    /**
+     * Point this record at another array, to read or write a record in place.
+     *
+     * @param buffer - The array holding the record
+     * @param offset - The offset of the record in <i>buffer</i>
+     * @return this Record
+     */
+    public Record wrap(char[] buffer, int offset)
+    {
+      if (offset < 0 || offset + FixedWidthCodec.this.recordLength > buffer.length)
+      {
+        throw new IndexOutOfBoundsException("A record of " + FixedWidthCodec.this.recordLength
+                + " characters does not fit at " + offset + " in an array of " + buffer.length);
+      }
+      this.buffer = buffer;
+      this.offset = offset;
+      return this;
+    }
+
+    /**
+     * @return the array holding the record
+     */
+    public char[] getBuffer()
+    {
+      return this.buffer;
+    }
+
+    /**
+     * @return the offset of the record in {@link #getBuffer()}
+     */
+    public int getOffset()
+    {
+      return this.offset;
+    }
+
+    /**
+     * Fill every field with its pad character.
+     *
+     * @return this Record
+     */
+    public Record clear()
+    {
+      System.arraycopy(FixedWidthCodec.this.template, 0, this.buffer, this.offset, FixedWidthCodec.this.recordLength);
+      return this;
+    }
+
+    /**
+     * Write a value, padded and aligned as per its field, truncated if longer than the field.
+     *
+     * @param index - The field index
+     * @param value - The value, null for a blank field
+     * @return this Record
+     */
+    public Record set(int index, CharSequence value)
+    {
+      final Field field = FixedWidthCodec.this.fields[index];
+      JStringUtils.pad(this.buffer, this.offset + field.offset, value == null ? JStringUtils.EMPTY : value, field.width,
+              field.padChar, field.alignment);
+      return this;
+    }
+
+    /**
+     * Write a number, padded and aligned as per its field, without creating a String.
+     *
+     * @param index - The field index
+     * @param value - The value
+     * @return this Record
+     * @throws IllegalArgumentException - if the number does not fit the field
+     */
+    public Record setLong(int index, long value)
+    {
+      final Field field = FixedWidthCodec.this.fields[index];
+
+      // Digits from the end of the scratch array, negated to handle Long.MIN_VALUE
+      int start = MAX_LONG_DIGITS;
+      long remaining = value < 0 ? value : -value;
+      do
+      {
+        this.digits[--start] = (char)('0' - remaining % 10);
+        remaining /= 10;
+      }
+      while (remaining != 0);
+      if (value < 0)
+      {
+        this.digits[--start] = '-';
+      }
+
+      if (MAX_LONG_DIGITS - start > field.width)
+      {
+        throw new IllegalArgumentException("Value " + value + " does not fit in " + field);
+      }
+
+      // Zeros go between the sign and the digits, e.g. -0042 rather than 00-42
+      int position = this.offset + field.offset;
+      int width = field.width;
+      if (value < 0 && field.padChar == '0' && field.alignment == JStringUtils.Alignment.RIGHT)
+      {
+        this.buffer[position++] = this.digits[start++];
+        width--;
+      }
+      this.digitsView.limit(MAX_LONG_DIGITS).position(start);
+      JStringUtils.pad(this.buffer, position, this.digitsView, width, field.padChar, field.alignment);
+      return this;
+    }
+
+    /**
+     * @param index - The field index
+     * @return the offset in {@link #getBuffer()} of the field's value, without its padding
+     */
+    public int start(int index)
+    {
+      final Field field = FixedWidthCodec.this.fields[index];
+      int start = this.offset + field.offset;
+      final int end = start + field.width;
+      if (field.alignment != JStringUtils.Alignment.LEFT)
+      {
+        while (start < end && this.buffer[start] == field.padChar)
+        {
+          start++;
+        }
+      }
+      return start;
+    }
+
+    /**
+     * @param index - The field index
+     * @return the offset in {@link #getBuffer()} just after the field's value, without its padding
+     */
+    public int end(int index)
+    {
+      final Field field = FixedWidthCodec.this.fields[index];
+      final int start = start(index);
+      int end = this.offset + field.offset + field.width;
+      if (field.alignment != JStringUtils.Alignment.RIGHT)
+      {
+        while (end > start && this.buffer[end - 1] == field.padChar)
+        {
+          end--;
+        }
+      }
+      return end;
+    }
+
+    /**
+     * @param index - The field index
+     * @return the value of the field, without its padding
+     */
+    public String getString(int index)
+    {
+      final int start = start(index);
+      return new String(this.buffer, start, end(index) - start);
+    }
+
+    /**
+     * @param index - The field index
+     * @param cache - The JStringCache holding the canonical values
+     * @return the canonical instance of the value of the field, without its padding, only created if <i>cache</i> does
+     *         not have it yet
+     */
+    public String getString(int index, JStringCache cache)
+    {
+      final int start = start(index);
+      return cache.intern(this.buffer, start, end(index) - start);
+    }
+
+    /**
+     * Append the value of a field, without its padding, without creating a String.
+     *
+     * @param index - The field index
+     * @param sb - The StringBuilder to append to
+     * @return <i>sb</i>
+     */
+    public StringBuilder appendTo(int index, StringBuilder sb)
+    {
+      final int start = start(index);
+      return sb.append(this.buffer, start, end(index) - start);
+    }
+
+    /**
+     * Parse the value of a field as a number, without creating a String. A blank field padded with zeros is 0.
+     *
+     * @param index - The field index
+     * @return the number
+     * @throws NumberFormatException - if the field is not a number
+     */
+    public long getLong(int index)
+    {
+      final Field field = FixedWidthCodec.this.fields[index];
+      final int start = start(index);
+      final int end = end(index);
+      if (start == end && field.padChar == '0')
+      {
+        return 0;
+      }
+
+      int i = start;
+      final boolean negative = i < end && this.buffer[i] == '-';
+      if (negative || (i < end && this.buffer[i] == '+'))
+      {
+        i++;
+      }
+      if (i == end)
+      {
+        throw new NumberFormatException("Field " + field.name + " is not a number: '"
+                + new String(this.buffer, start, end - start) + "'");
+      }
+
+      // Accumulated negatively, to reach Long.MIN_VALUE
+      long result = 0;
+      for (; i < end; i++)
+      {
+        final int digit = this.buffer[i] - '0';
+        if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10)
+        {
+          throw new NumberFormatException("Field " + field.name + " is not a number: '"
+                  + new String(this.buffer, start, end - start) + "'");
+        }
+        result = result * 10 - digit;
+      }
+      if (!negative && result == Long.MIN_VALUE)
+      {
+        throw new NumberFormatException("Field " + field.name + " is out of range: '"
+                + new String(this.buffer, start, end - start) + "'");
+      }
+      return negative ? result : -result;
+    }
+
+    @Override
+    public String toString()
+    {
+      return new String(this.buffer, this.offset, FixedWidthCodec.this.recordLength);
+    }
+  }
+
+  /**
+   * Writes records to a channel through a reused direct buffer.
+   */
+  public final class RecordWriter implements Flushable, Closeable
+  {
+    private final WritableByteChannel channel;
+
+    private final ByteBuffer          buffer;
+
+    RecordWriter(WritableByteChannel channel, ByteBuffer buffer)
+    {
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+
+    /**
+     * @param record - The Record to write
+     * @throws IOException - if the channel cannot be written
+     */
+    public void write(Record record) throws IOException
+    {
+      if (this.buffer.remaining() < getEncodedLength())
+      {
+        flush();
+      }
+      encode(record, this.buffer);
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+      this.buffer.flip();
+      while (this.buffer.hasRemaining())
+      {
+        this.channel.write(this.buffer);
+      }
+      this.buffer.clear();
+    }
+
+    /**
+     * Flushes the records and closes the channel.
+     */
+    @Override
+    public void close() throws IOException
+    {
+      try
+      {
+        flush();
+      }
+      finally
+      {
+        this.channel.close();
+      }
+    }
+  }
+
+  /**
+   * Reads records from a channel through a reused direct buffer.
+   */
+  public final class RecordReader implements Closeable
+  {
+    private final ReadableByteChannel channel;
+
+    private final ByteBuffer          buffer;
+
+    private boolean                   endOfInput;
+
+    RecordReader(ReadableByteChannel channel, ByteBuffer buffer)
+    {
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+
+    /**
+     * @param record - The Record to decode the next record into
+     * @return false at the end of the channel, in which case <i>record</i> is unchanged
+     * @throws IOException - if the channel cannot be read, or ends in the middle of a record
+     */
+    public boolean read(Record record) throws IOException
+    {
+      if (this.buffer.remaining() < getEncodedLength() && !this.endOfInput)
+      {
+        this.buffer.compact();
+        while (this.buffer.position() < getEncodedLength())
+        {
+          if (this.channel.read(this.buffer) < 0)
+          {
+            this.endOfInput = true;
+            break;
+          }
+        }
+        this.buffer.flip();
+      }
+
+      if (!this.buffer.hasRemaining())
+      {
+        return false;
+      }
+      if (this.buffer.remaining() < FixedWidthCodec.this.recordLength)
+      {
+        throw new EOFException("The last record is truncated to " + this.buffer.remaining() + " bytes");
+      }
+
+      try
+      {
+        decode(this.buffer, record);
+      }
+      catch (IllegalArgumentException e)
+      {
+        throw new IOException(e.getMessage(), e);
+      }
+      return true;
+    }
+
+    /**
+     * Closes the channel.
+     */
+    @Override
+    public void close() throws IOException
+    {
+      this.channel.close();
+    }
+  }
+}
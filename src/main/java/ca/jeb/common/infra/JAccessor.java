@@ -0,0 +1,560 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * A compiled "getter" for a single property of a class.
+ * <p>
+ * Instances are created once per resolved getter {@link Method}, by {@link #forMethod(Method)}, and wrap a
+ * {@link MethodHandle} that has been adapted to an exact <code>(Object)T</code> type. Invoking the handle with
+ * <code>invokeExact</code> avoids the argument array, access checks and boxing that {@link Method#invoke(Object, Object...)}
+ * performs on every call.
+ * <p>
+ * Getters returning a primitive get a specialised accessor, so that the typed methods, e.g. {@link #getInt(Object)}, never
+ * box. {@link #get(Object)} is always available and boxes primitive values.
+ * <p>
+ * As with {@link Method#invoke(Object, Object...)}, a null target throws a {@link NullPointerException}, a target of
+ * the wrong class an {@link IllegalArgumentException}, and only what the getter itself throws is wrapped in an
+ * {@link InvocationTargetException}.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public abstract class JAccessor
+{
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  private final String                      name;
+
+  private final Class<?>                    type;
+
+  /**
+   * @param name - The name of the property, or getter, this accessor reads
+   * @param type - The type returned by this accessor
+   */
+  protected JAccessor(String name, Class<?> type)
+  {
+    this.name = name;
+    this.type = type;
+  }
+
+  /**
+   * Create a compiled accessor for the provided no-argument <i>getter</i>.
+   *
+   * @param getter - The "getter" method
+   * @return JAccessor
+   * @throws IllegalAccessException - if the getter is not accessible
+   */
+  public static JAccessor forMethod(Method getter) throws IllegalAccessException
+  {
+    if (getter.getParameterTypes().length != 0)
+    {
+      throw new IllegalArgumentException("Getter " + getter + " must not take any arguments");
+    }
+
+    try
+    {
+      getter.setAccessible(true);
+    }
+    catch (RuntimeException e)
+    {
+      // Not permitted, the public lookup below is all we can do.
+    }
+
+    final MethodHandle handle = LOOKUP.unreflect(getter);
+    final Class<?> declaringClass = getter.getDeclaringClass();
+    final Class<?> returnType = getter.getReturnType();
+    final String name = getter.getName();
+
+    if (!returnType.isPrimitive())
+    {
+      return new ObjectAccessor(name, returnType, declaringClass, handle.asType(MethodType.methodType(Object.class, Object.class)));
+    }
+
+    final MethodHandle typed = handle.asType(MethodType.methodType(returnType, Object.class));
+    if (returnType == int.class)
+    {
+      return new IntAccessor(name, declaringClass, typed);
+    }
+    if (returnType == long.class)
+    {
+      return new LongAccessor(name, declaringClass, typed);
+    }
+    if (returnType == double.class)
+    {
+      return new DoubleAccessor(name, declaringClass, typed);
+    }
+    if (returnType == boolean.class)
+    {
+      return new BooleanAccessor(name, declaringClass, typed);
+    }
+    if (returnType == float.class)
+    {
+      return new FloatAccessor(name, declaringClass, typed);
+    }
+    if (returnType == short.class)
+    {
+      return new ShortAccessor(name, declaringClass, typed);
+    }
+    if (returnType == byte.class)
+    {
+      return new ByteAccessor(name, declaringClass, typed);
+    }
+    if (returnType == char.class)
+    {
+      return new CharAccessor(name, declaringClass, typed);
+    }
+
+    throw new IllegalArgumentException("Getter " + getter + " does not return a value");
+  }
+
+  /**
+   * @return the name of the property, or getter, this accessor reads
+   */
+  public String getName()
+  {
+    return this.name;
+  }
+
+  /**
+   * @return the type returned by this accessor
+   */
+  public Class<?> getType()
+  {
+    return this.type;
+  }
+
+  /**
+   * Read the value from <i>target</i>, boxing primitive values.
+   *
+   * @param target - The object to read from
+   * @return Object - The value of the "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public abstract Object get(Object target) throws InvocationTargetException;
+
+  /**
+   * @param target - The object to read from
+   * @return int - The value of an <code>int</code> "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public int getInt(Object target) throws InvocationTargetException
+  {
+    return (Integer)get(target);
+  }
+
+  /**
+   * @param target - The object to read from
+   * @return long - The value of a <code>long</code> "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public long getLong(Object target) throws InvocationTargetException
+  {
+    return (Long)get(target);
+  }
+
+  /**
+   * @param target - The object to read from
+   * @return double - The value of a <code>double</code> "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public double getDouble(Object target) throws InvocationTargetException
+  {
+    return (Double)get(target);
+  }
+
+  /**
+   * @param target - The object to read from
+   * @return boolean - The value of a <code>boolean</code> "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public boolean getBoolean(Object target) throws InvocationTargetException
+  {
+    return (Boolean)get(target);
+  }
+
+  /**
+   * @param target - The object to read from
+   * @return float - The value of a <code>float</code> "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public float getFloat(Object target) throws InvocationTargetException
+  {
+    return (Float)get(target);
+  }
+
+  /**
+   * @param target - The object to read from
+   * @return short - The value of a <code>short</code> "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public short getShort(Object target) throws InvocationTargetException
+  {
+    return (Short)get(target);
+  }
+
+  /**
+   * @param target - The object to read from
+   * @return byte - The value of a <code>byte</code> "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public byte getByte(Object target) throws InvocationTargetException
+  {
+    return (Byte)get(target);
+  }
+
+  /**
+   * @param target - The object to read from
+   * @return char - The value of a <code>char</code> "getter"
+   * @throws InvocationTargetException - if the getter throws
+   */
+  public char getChar(Object target) throws InvocationTargetException
+  {
+    return (Character)get(target);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + this.name + ":" + this.type.getName() + "]";
+  }
+
+  /**
+   * Check <i>target</i> the same way {@link Method#invoke(Object, Object...)} does, before calling a handle, so that
+   * anything the handle throws comes from the method itself. Generated accessors call it before their getter.
+   *
+   * @param declaringClass - The class <i>target</i> must be an instance of
+   * @param target - The object the method is to be called on
+   * @throws NullPointerException - if <i>target</i> is null
+   * @throws IllegalArgumentException - if <i>target</i> is not an instance of <i>declaringClass</i>
+   */
+  protected static void checkTarget(Class<?> declaringClass, Object target)
+  {
+    if (target == null)
+    {
+      throw new NullPointerException("Cannot call a method of " + declaringClass.getName() + " on a null target");
+    }
+    if (!declaringClass.isInstance(target))
+    {
+      throw new IllegalArgumentException("object of " + target.getClass().getName()
+              + " is not an instance of declaring class " + declaringClass.getName());
+    }
+  }
+
+  /**
+   * Wrap anything thrown by the method behind a handle the same way {@link Method#invoke(Object, Object...)} does.
+   */
+  static InvocationTargetException wrap(Throwable t)
+  {
+    if (t instanceof InvocationTargetException)
+    {
+      return (InvocationTargetException)t;
+    }
+    return new InvocationTargetException(t);
+  }
+
+  private static final class ObjectAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    ObjectAccessor(String name, Class<?> type, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, type);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+
+  private static final class IntAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    IntAccessor(String name, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, int.class);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      return getInt(target);
+    }
+
+    @Override
+    public int getInt(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return (int)this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+
+  private static final class LongAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    LongAccessor(String name, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, long.class);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      return getLong(target);
+    }
+
+    @Override
+    public long getLong(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return (long)this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+
+  private static final class DoubleAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    DoubleAccessor(String name, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, double.class);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      return getDouble(target);
+    }
+
+    @Override
+    public double getDouble(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return (double)this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+
+  private static final class BooleanAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    BooleanAccessor(String name, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, boolean.class);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      return getBoolean(target);
+    }
+
+    @Override
+    public boolean getBoolean(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return (boolean)this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+
+  private static final class FloatAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    FloatAccessor(String name, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, float.class);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      return getFloat(target);
+    }
+
+    @Override
+    public float getFloat(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return (float)this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+
+  private static final class ShortAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    ShortAccessor(String name, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, short.class);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      return getShort(target);
+    }
+
+    @Override
+    public short getShort(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return (short)this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+
+  private static final class ByteAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    ByteAccessor(String name, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, byte.class);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      return getByte(target);
+    }
+
+    @Override
+    public byte getByte(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return (byte)this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+
+  private static final class CharAccessor extends JAccessor
+  {
+    private final Class<?>     declaringClass;
+
+    private final MethodHandle handle;
+
+    CharAccessor(String name, Class<?> declaringClass, MethodHandle handle)
+    {
+      super(name, char.class);
+      this.declaringClass = declaringClass;
+      this.handle = handle;
+    }
+
+    @Override
+    public Object get(Object target) throws InvocationTargetException
+    {
+      return getChar(target);
+    }
+
+    @Override
+    public char getChar(Object target) throws InvocationTargetException
+    {
+      checkTarget(this.declaringClass, target);
+      try
+      {
+        return (char)this.handle.invokeExact(target);
+      }
+      catch (Throwable t)
+      {
+        throw wrap(t);
+      }
+    }
+  }
+}
@@ -0,0 +1,19 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+/**
+ * Supplies pre-built "getters" for the fields of one class, in place of the ones {@link JReflectionUtils} resolves by
+ * reflection. Implementations are generated for classes annotated with {@link JGenerateAccessors}, and must have a
+ * public no-argument constructor.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public interface JAccessorProvider
+{
+  /**
+   * @param fieldName - The name of the field
+   * @return the "getter" of this field, or null to fall back to reflection
+   */
+  JAccessor getAccessor(String fieldName);
+}
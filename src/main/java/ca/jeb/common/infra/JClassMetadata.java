@@ -0,0 +1,734 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reflection metadata cached per {@link Class}.
+ * <p>
+ * Instances are held in a {@link ClassValue}, so lookups are lock-free, are keyed by the {@link Class} itself rather
+ * than by its name, and are released together with the class when its class loader is unloaded.
+ * <p>
+ * The "getters" of all the fields of the class, including inherited ones, are resolved exactly once, on first use, and
+ * published as an immutable, array-indexed {@link AccessorTable}. Readers never lock and never see a partially built
+ * table.
+ * <p>
+ * Fields without a "getter" are cached too, as the {@link #NO_ACCESSOR} sentinel, so that a miss costs the same as a
+ * hit, and so are "getters" that cannot be accessed, as a sentinel rethrowing the {@link IllegalAccessException}. Field
+ * names that do not belong to the class are resolved once and cached on the side, up to
+ * {@link #MAX_OTHER_ACCESSORS} of them, as they come from the callers rather than from the class.
+ * <p>
+ * Classes annotated with {@link JGenerateAccessors} take their "getters" from the {@link JAccessorProvider} generated
+ * for them at compile time, when there is one, and only fall back to reflection for the fields it does not cover.
+ * <p>
+ * "Setters" are resolved once per (name, argument type) pair and cached as compiled {@link JMutator}s, other
+ * methods once per (name, argument types) signature and cached as compiled {@link JInvoker}s. Argument types from a
+ * class loader that cannot see the class, e.g. a child or web application loader, are not cached: they would pin
+ * that loader for as long as the class lives, so their calls are resolved every time instead.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+final class JClassMetadata
+{
+  private static final ClassValue<JClassMetadata> REGISTRY    = new ClassValue<JClassMetadata>()
+                                                               {
+                                                                 @Override
+                                                                 protected JClassMetadata computeValue(Class<?> type)
+                                                                 {
+                                                                   return new JClassMetadata(type);
+                                                                 }
+                                                               };
+
+  /**
+   * Sentinel cached for fields that have no "getter".
+   */
+  static final JAccessor                          NO_ACCESSOR = new JAccessor("<none>", void.class)
+                                                               {
+                                                                 @Override
+                                                                 public Object get(Object target)
+                                                                 {
+                                                                   return null;
+                                                                 }
+                                                               };
+
+  /**
+   * The most field names that do not belong to the class whose "getters" are cached, later ones are resolved every
+   * time.
+   */
+  static final int                                MAX_OTHER_ACCESSORS = 64;
+
+  private final Class<?>                          clazz;
+
+  private final AtomicInteger                     resolutions    = new AtomicInteger();
+
+  private final AtomicLong                        avoidedMisses  = new AtomicLong();
+
+  private final ConcurrentMap<String, JAccessor>  otherAccessors = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, ConcurrentMap<Class<?>, JMutator>> mutators = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<MethodKey, JInvoker> invokers = new ConcurrentHashMap<>();
+
+  private volatile Members                        members;
+
+  private volatile AccessorTable                  accessorTable;
+
+  private JClassMetadata(Class<?> clazz)
+  {
+    this.clazz = clazz;
+  }
+
+  /**
+   * @param clazz - The Class to retrieve the metadata for
+   * @return JClassMetadata
+   */
+  static JClassMetadata forClass(Class<?> clazz)
+  {
+    return REGISTRY.get(clazz);
+  }
+
+  /**
+   * @return the Class this metadata describes
+   */
+  Class<?> getType()
+  {
+    return this.clazz;
+  }
+
+  /**
+   * @return the number of times a "getter" or "setter" was looked up by reflection for this class
+   */
+  int getResolutionCount()
+  {
+    return this.resolutions.get();
+  }
+
+  /**
+   * @return the number of lookups of a field without a "getter" that were answered from the cache
+   */
+  long getAvoidedMissCount()
+  {
+    return this.avoidedMisses.get();
+  }
+
+  /**
+   * @return the number of field names that do not belong to this class whose "getters" are cached
+   */
+  int getOtherAccessorCount()
+  {
+    return this.otherAccessors.size();
+  }
+
+  /**
+   * @return the fields and methods of this class and its super-classes, looking them up if needed
+   */
+  Members getMembers()
+  {
+    Members result = this.members;
+    if (result == null)
+    {
+      synchronized (this)
+      {
+        result = this.members;
+        if (result == null)
+        {
+          result = new Members(this.clazz);
+          this.members = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the immutable table of "getters" for this class, building it if needed
+   */
+  AccessorTable getAccessorTable()
+  {
+    AccessorTable table = this.accessorTable;
+    if (table == null)
+    {
+      synchronized (this)
+      {
+        table = this.accessorTable;
+        if (table == null)
+        {
+          table = buildAccessorTable();
+          this.accessorTable = table;
+        }
+      }
+    }
+    return table;
+  }
+
+  /**
+   * Retrieve the "getter" for the field named <i>fieldName</i>. Fields of this class are served from the
+   * {@link AccessorTable}, anything else is resolved once and then cached.
+   *
+   * @param fieldName - The name of the field
+   * @return the "getter" for this field, or null if there is none
+   * @throws IllegalAccessException
+   */
+  JAccessor getAccessor(String fieldName) throws IllegalAccessException
+  {
+    JAccessor accessor = getAccessorTable().get(fieldName);
+    if (accessor == null)
+    {
+      accessor = this.otherAccessors.get(fieldName);
+      if (accessor == null)
+      {
+        accessor = resolveAccessor(fieldName);
+        // Checked then added without a lock, so a race can go a few entries over
+        final JAccessor existing = this.otherAccessors.size() >= MAX_OTHER_ACCESSORS ? null : this.otherAccessors
+                .putIfAbsent(fieldName, accessor);
+        if (existing == null)
+        {
+          return checkAccessor(accessor);
+        }
+        accessor = existing;
+      }
+    }
+
+    if (accessor == NO_ACCESSOR)
+    {
+      this.avoidedMisses.incrementAndGet();
+      return null;
+    }
+    return checkAccessor(accessor);
+  }
+
+  /**
+   * @return the "getter" of <i>fieldName</i>, {@link #NO_ACCESSOR} if there is none, or an
+   *         {@link InaccessibleAccessor} if it cannot be accessed
+   */
+  private JAccessor resolveAccessor(String fieldName)
+  {
+    final Method method = findGetter(fieldName);
+    if (method == null)
+    {
+      return NO_ACCESSOR;
+    }
+
+    try
+    {
+      return JAccessor.forMethod(method);
+    }
+    catch (IllegalAccessException e)
+    {
+      return new InaccessibleAccessor(method, e);
+    }
+  }
+
+  /**
+   * @return <i>accessor</i>, or null for {@link #NO_ACCESSOR}
+   * @throws IllegalAccessException - if the "getter" cannot be accessed
+   */
+  private static JAccessor checkAccessor(JAccessor accessor) throws IllegalAccessException
+  {
+    if (accessor instanceof InaccessibleAccessor)
+    {
+      throw ((InaccessibleAccessor)accessor).newException();
+    }
+    return accessor == NO_ACCESSOR ? null : accessor;
+  }
+
+  /**
+   * @param accessor - An accessor from the {@link AccessorTable}
+   * @return true if it reads a value, false for a field without a "getter", or with one that cannot be accessed
+   */
+  static boolean isUsable(JAccessor accessor)
+  {
+    return accessor != null && accessor != NO_ACCESSOR && !(accessor instanceof InaccessibleAccessor);
+  }
+
+  /**
+   * Retrieve the "setter" named <i>setterName</i> that accepts an argument of type <i>argType</i>, resolving it
+   * only the first time this (name, type) pair is asked for. An exact parameter match is preferred, otherwise
+   * the most specific setter that accepts the argument, with boxing, unboxing and primitive widening.
+   *
+   * @param setterName - The name of the "setter"
+   * @param argType - The type of the argument
+   * @return the "setter", or null if there is none
+   * @throws IllegalAccessException
+   */
+  JMutator getMutator(String setterName, Class<?> argType) throws IllegalAccessException
+  {
+    ConcurrentMap<Class<?>, JMutator> byType = this.mutators.get(setterName);
+    if (byType == null)
+    {
+      byType = new ConcurrentHashMap<>();
+      final ConcurrentMap<Class<?>, JMutator> existing = this.mutators.putIfAbsent(setterName, byType);
+      if (existing != null)
+      {
+        byType = existing;
+      }
+    }
+
+    JMutator mutator = byType.get(argType);
+    if (mutator == null)
+    {
+      final Method method = findSetter(setterName, argType);
+      mutator = method == null ? JMutator.NONE : JMutator.forMethod(method);
+      if (isVisible(argType))
+      {
+        final JMutator existing = byType.putIfAbsent(argType, mutator);
+        if (existing != null)
+        {
+          mutator = existing;
+        }
+      }
+    }
+
+    return mutator == JMutator.NONE ? null : mutator;
+  }
+
+  /**
+   * Retrieve the public method named <i>methodName</i> that can be called with arguments of the given types,
+   * resolving it only the first time this signature is asked for. Among the overloads that accept the arguments,
+   * with boxing, unboxing and primitive widening, the most specific one is chosen.
+   *
+   * @param methodName - The name of the method
+   * @param argTypes - The types of the arguments, with null for a null argument
+   * @return the method's invoker, or null if there is none
+   * @throws IllegalAccessException
+   * @throws NoSuchMethodException - if more than one overload is equally specific
+   */
+  JInvoker getInvoker(String methodName, Class<?>[] argTypes) throws IllegalAccessException, NoSuchMethodException
+  {
+    final MethodKey key = new MethodKey(methodName, argTypes);
+    JInvoker invoker = this.invokers.get(key);
+    if (invoker == null)
+    {
+      final Method method = findMethod(methodName, argTypes);
+      invoker = method == null ? JInvoker.NONE : JInvoker.forMethod(method);
+      if (isVisible(argTypes))
+      {
+        final JInvoker existing = this.invokers.putIfAbsent(key, invoker);
+        if (existing != null)
+        {
+          invoker = existing;
+        }
+      }
+    }
+
+    return invoker == JInvoker.NONE ? null : invoker;
+  }
+
+  private AccessorTable buildAccessorTable()
+  {
+    final JAccessorProvider provider = loadGeneratedAccessors();
+    final Map<String, JAccessor> accessors = new LinkedHashMap<>();
+    for (Field field : getMembers().getFields())
+    {
+      final String fieldName = field.getName();
+      if (accessors.containsKey(fieldName))
+      {
+        // A field of a sub-class hides the one from its super-class.
+        continue;
+      }
+
+      final JAccessor generated = provider == null ? null : provider.getAccessor(fieldName);
+      if (generated != null)
+      {
+        accessors.put(fieldName, generated);
+        continue;
+      }
+
+      accessors.put(fieldName, resolveAccessor(fieldName));
+    }
+    return new AccessorTable(accessors);
+  }
+
+  /**
+   * @return the provider generated at compile time for this class, or null if it is not annotated or was not processed
+   */
+  private JAccessorProvider loadGeneratedAccessors()
+  {
+    if (!this.clazz.isAnnotationPresent(JGenerateAccessors.class))
+    {
+      return null;
+    }
+
+    final String className = this.clazz.getName();
+    final int lastDot = className.lastIndexOf('.');
+    final String providerName = className.substring(0, lastDot + 1) + className.substring(lastDot + 1).replace('$', '_')
+            + JGenerateAccessors.SUFFIX;
+    try
+    {
+      final Class<?> providerClass = Class.forName(providerName, true, this.clazz.getClassLoader());
+      return (JAccessorProvider)providerClass.getDeclaredConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException | ClassCastException e)
+    {
+      // Not generated, fall back to reflection.
+      return null;
+    }
+  }
+
+  private Method findGetter(String fieldName)
+  {
+    this.resolutions.incrementAndGet();
+
+    try
+    {
+      final Method method = this.clazz.getMethod(JStringUtils.GET + JStringUtils.upperCaseFirst(fieldName));
+      if (isGetter(method))
+      {
+        return method;
+      }
+    }
+    catch (Exception e)
+    {
+      // Swallow exception so that we loop through the rest.
+    }
+
+    for (Method method : this.clazz.getMethods())
+    {
+      final String methodName = method.getName();
+      if (((methodName.startsWith(JStringUtils.GET)) && (methodName.length() == (fieldName.length() + JStringUtils.GET.length())))
+              || ((methodName.startsWith(JStringUtils.IS)) && (methodName.length() == (fieldName.length() + JStringUtils.IS.length()))))
+      {
+        if (methodName.toLowerCase().endsWith(fieldName.toLowerCase()) && isGetter(method))
+        {
+          return method;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  private Method findSetter(String setterName, Class<?> argType)
+  {
+    this.resolutions.incrementAndGet();
+
+    try
+    {
+      return this.clazz.getMethod(setterName, argType);
+    }
+    catch (NoSuchMethodException e)
+    {
+      // Fall back to a compatible parameter type below.
+    }
+
+    Method found = null;
+    for (Method method : this.clazz.getMethods())
+    {
+      final Class<?>[] parameterTypes = method.getParameterTypes();
+      if (parameterTypes.length == 1 && method.getName().equals(setterName) && JTypes.isAssignable(parameterTypes[0], argType))
+      {
+        if (found == null || JTypes.isMoreSpecific(parameterTypes, found.getParameterTypes()))
+        {
+          found = method;
+        }
+      }
+    }
+    return found;
+  }
+
+  private Method findMethod(String methodName, Class<?>[] argTypes) throws NoSuchMethodException
+  {
+    this.resolutions.incrementAndGet();
+
+    final List<Method> candidates = new ArrayList<>();
+    for (Method method : this.clazz.getMethods())
+    {
+      if (method.isBridge() || !method.getName().equals(methodName) || method.getParameterTypes().length != argTypes.length)
+      {
+        continue;
+      }
+
+      final Class<?>[] parameterTypes = method.getParameterTypes();
+      boolean applicable = true;
+      for (int i = 0; i < argTypes.length && applicable; i++)
+      {
+        applicable = JTypes.isAssignable(parameterTypes[i], argTypes[i]);
+      }
+      if (applicable)
+      {
+        candidates.add(method);
+      }
+    }
+
+    for (Method candidate : candidates)
+    {
+      boolean mostSpecific = true;
+      for (Method other : candidates)
+      {
+        if (other != candidate && !JTypes.isMoreSpecific(candidate.getParameterTypes(), other.getParameterTypes()))
+        {
+          mostSpecific = false;
+          break;
+        }
+      }
+      if (mostSpecific)
+      {
+        return candidate;
+      }
+    }
+
+    if (!candidates.isEmpty())
+    {
+      throw new NoSuchMethodException("Ambiguous call to " + this.clazz.getName() + "." + methodName + ", candidates: "
+              + candidates);
+    }
+    return null;
+  }
+
+  /**
+   * @return true if every type is loaded by the loader of this class or one of its ancestors, so that caching it here
+   *         does not keep another loader alive
+   */
+  private boolean isVisible(Class<?>... types)
+  {
+    for (Class<?> type : types)
+    {
+      if (type == null)
+      {
+        continue;
+      }
+      final ClassLoader loader = type.getClassLoader();
+      if (loader == null)
+      {
+        continue;
+      }
+
+      boolean visible = false;
+      for (ClassLoader ancestor = this.clazz.getClassLoader(); ancestor != null && !visible; ancestor = ancestor
+              .getParent())
+      {
+        visible = ancestor == loader;
+      }
+      if (!visible)
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isGetter(Method method)
+  {
+    return method.getParameterTypes().length == 0 && method.getReturnType() != void.class;
+  }
+
+  /**
+   * Immutable snapshot of the declared fields and methods of a class and all its super-classes, with the methods
+   * also indexed by name.
+   */
+  static final class Members
+  {
+    private final List<Field>         fields;
+
+    private final List<Method>        methods;
+
+    private final Map<String, Method> methodsByName;
+
+    Members(Class<?> clazz)
+    {
+      final List<Field> allFields = new ArrayList<>();
+      final List<Method> allMethods = new ArrayList<>();
+      for (Class<?> c = clazz; c != null; c = c.getSuperclass())
+      {
+        allFields.addAll(Arrays.asList(c.getDeclaredFields()));
+        allMethods.addAll(Arrays.asList(c.getDeclaredMethods()));
+      }
+
+      final Map<String, Method> byName = new HashMap<>(allMethods.size() * 2);
+      for (Method method : allMethods)
+      {
+        if (!byName.containsKey(method.getName()))
+        {
+          byName.put(method.getName(), method);
+        }
+      }
+
+      this.fields = Collections.unmodifiableList(Arrays.asList(allFields.toArray(new Field[allFields.size()])));
+      this.methods = Collections.unmodifiableList(Arrays.asList(allMethods.toArray(new Method[allMethods.size()])));
+      this.methodsByName = Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * @return all the fields, sub-class first
+     */
+    List<Field> getFields()
+    {
+      return this.fields;
+    }
+
+    /**
+     * @return all the methods, sub-class first
+     */
+    List<Method> getMethods()
+    {
+      return this.methods;
+    }
+
+    /**
+     * @param name - The method name
+     * @return the first method with this name, or null if there is none
+     */
+    Method getMethod(String name)
+    {
+      return this.methodsByName.get(name);
+    }
+  }
+
+  /**
+   * Cache key of a method call: the method name and the types of its arguments.
+   */
+  private static final class MethodKey
+  {
+    private final String     name;
+
+    private final Class<?>[] argTypes;
+
+    private final int        hash;
+
+    MethodKey(String name, Class<?>[] argTypes)
+    {
+      this.name = name;
+      this.argTypes = argTypes;
+      this.hash = 31 * name.hashCode() + Arrays.hashCode(argTypes);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return this.hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+      if (this == obj)
+      {
+        return true;
+      }
+      if (!(obj instanceof MethodKey))
+      {
+        return false;
+      }
+      final MethodKey other = (MethodKey)obj;
+      return this.name.equals(other.name) && Arrays.equals(this.argTypes, other.argTypes);
+    }
+  }
+
+  /**
+   * Sentinel cached for "getters" that cannot be accessed, so that the failure is resolved once. Each lookup throws a
+   * new {@link IllegalAccessException}, caused by the original one.
+   */
+  private static final class InaccessibleAccessor extends JAccessor
+  {
+    private final IllegalAccessException failure;
+
+    InaccessibleAccessor(Method getter, IllegalAccessException failure)
+    {
+      super(getter.getName(), getter.getReturnType());
+      this.failure = failure;
+    }
+
+    IllegalAccessException newException()
+    {
+      final IllegalAccessException e = new IllegalAccessException(this.failure.getMessage());
+      e.initCause(this.failure);
+      return e;
+    }
+
+    @Override
+    public Object get(Object target)
+    {
+      throw new IllegalStateException("Getter " + getName() + " cannot be accessed", this.failure);
+    }
+  }
+
+  /**
+   * Immutable snapshot of the "getters" of a class. Each field has a fixed index, the accessors are stored in an
+   * array by that index, with {@link JClassMetadata#NO_ACCESSOR} for fields without a "getter", and a sentinel for
+   * "getters" that cannot be accessed, see {@link JClassMetadata#isUsable(JAccessor)}.
+   */
+  static final class AccessorTable
+  {
+    private final Map<String, Integer> indexes;
+
+    private final String[]             names;
+
+    private final JAccessor[]          accessors;
+
+    AccessorTable(Map<String, JAccessor> accessors)
+    {
+      final Map<String, Integer> map = new HashMap<>(accessors.size() * 2);
+      this.names = new String[accessors.size()];
+      this.accessors = new JAccessor[accessors.size()];
+
+      int i = 0;
+      for (Map.Entry<String, JAccessor> entry : accessors.entrySet())
+      {
+        map.put(entry.getKey(), i);
+        this.names[i] = entry.getKey();
+        this.accessors[i] = entry.getValue();
+        i++;
+      }
+      this.indexes = Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * @return the number of entries in this table
+     */
+    int size()
+    {
+      return this.accessors.length;
+    }
+
+    /**
+     * @param fieldName - The name of the field
+     * @return the index of this field, or -1 if it is not a field of the class
+     */
+    int indexOf(String fieldName)
+    {
+      final Integer index = this.indexes.get(fieldName);
+      return index == null ? -1 : index;
+    }
+
+    /**
+     * @param index - The index of the accessor
+     * @return the name of the field at this index
+     */
+    String getName(int index)
+    {
+      return this.names[index];
+    }
+
+    /**
+     * @param index - The index of the accessor
+     * @return the accessor at this index
+     */
+    JAccessor get(int index)
+    {
+      return this.accessors[index];
+    }
+
+    /**
+     * @param fieldName - The name of the field
+     * @return the accessor of this field, or null if it is not a field of the class
+     */
+    JAccessor get(String fieldName)
+    {
+      final int index = indexOf(fieldName);
+      return index < 0 ? null : this.accessors[index];
+    }
+  }
+}
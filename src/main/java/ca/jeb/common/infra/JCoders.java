@@ -0,0 +1,117 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Per-thread caches of the last few {@link CharsetEncoder}s and {@link CharsetDecoder}s used, so that encoding into an
+ * existing buffer does not create a new coder each time.
+ * <p>
+ * The coders replace malformed and unmappable input, the same as {@link String#getBytes(Charset)} and
+ * {@link String#String(byte[], Charset)}, and are reset before they are returned. They must not be kept, nor shared
+ * with another thread.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+final class JCoders
+{
+  private static final int                           CACHE_SIZE = 3;
+
+  private static final ThreadLocal<CharsetEncoder[]> ENCODERS   = new ThreadLocal<CharsetEncoder[]>()
+                                                                  {
+                                                                    @Override
+                                                                    protected CharsetEncoder[] initialValue()
+                                                                    {
+                                                                      return new CharsetEncoder[CACHE_SIZE];
+                                                                    }
+                                                                  };
+
+  private static final ThreadLocal<CharsetDecoder[]> DECODERS   = new ThreadLocal<CharsetDecoder[]>()
+                                                                  {
+                                                                    @Override
+                                                                    protected CharsetDecoder[] initialValue()
+                                                                    {
+                                                                      return new CharsetDecoder[CACHE_SIZE];
+                                                                    }
+                                                                  };
+
+  private JCoders()
+  {
+    // empty utility class
+  }
+
+  /**
+   * @param charset - The Charset to encode to
+   * @return this thread's encoder for <i>charset</i>, reset
+   */
+  static CharsetEncoder encoder(Charset charset)
+  {
+    final CharsetEncoder[] cache = ENCODERS.get();
+    CharsetEncoder encoder = null;
+    int i = 0;
+    for (; i < CACHE_SIZE && cache[i] != null; i++)
+    {
+      if (cache[i].charset().equals(charset))
+      {
+        encoder = cache[i];
+        break;
+      }
+    }
+    if (encoder == null)
+    {
+      encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      i = Math.min(i, CACHE_SIZE - 1);
+    }
+
+    // Most recently used first
+    System.arraycopy(cache, 0, cache, 1, i);
+    cache[0] = encoder;
+    return encoder.reset();
+  }
+
+  /**
+   * @param charset - The Charset to decode from
+   * @return this thread's decoder for <i>charset</i>, reset
+   */
+  static CharsetDecoder decoder(Charset charset)
+  {
+    final CharsetDecoder[] cache = DECODERS.get();
+    CharsetDecoder decoder = null;
+    int i = 0;
+    for (; i < CACHE_SIZE && cache[i] != null; i++)
+    {
+      if (cache[i].charset().equals(charset))
+      {
+        decoder = cache[i];
+        break;
+      }
+    }
+    if (decoder == null)
+    {
+      decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      i = Math.min(i, CACHE_SIZE - 1);
+    }
+
+    System.arraycopy(cache, 0, cache, 1, i);
+    cache[0] = decoder;
+    return decoder.reset();
+  }
+
+  /**
+   * @param charset - A Charset
+   * @return true if <i>charset</i> encodes the characters below <code>0x80</code> as the same single byte, and uses
+   *         no bytes below <code>0x80</code> for anything else, so ASCII can be copied as is
+   */
+  static boolean isAsciiCompatible(Charset charset)
+  {
+    return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1)
+            || charset.equals(StandardCharsets.US_ASCII);
+  }
+}
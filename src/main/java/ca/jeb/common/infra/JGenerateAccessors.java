@@ -0,0 +1,31 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a class for which the <code>common-java-processor</code> annotation processor generates a
+ * {@link JAccessorProvider} at compile time.
+ * <p>
+ * The generated class is in the same package, named after the class with any <code>$</code> of a nested class replaced
+ * by <code>_</code>, plus {@link #SUFFIX}, e.g. <code>Outer_Inner_JAccessors</code>. {@link JReflectionUtils} uses its
+ * accessors, which are plain method calls, in place of reflection. Without the processor nothing is generated and the
+ * reflective accessors are used as before.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface JGenerateAccessors
+{
+  /**
+   * Suffix of the generated provider's class name.
+   */
+  String SUFFIX = "_JAccessors";
+}
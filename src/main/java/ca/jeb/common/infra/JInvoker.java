@@ -0,0 +1,139 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * A compiled call to a single method, with any number of arguments.
+ * <p>
+ * Instances are created once per resolved {@link Method}, by {@link #forMethod(Method)}. The method's handle is adapted
+ * up front into a spreader of type <code>(Object, Object[])Object</code>, so each call is a single <code>invokeExact</code>
+ * that converts its arguments the same way {@link Method#invoke(Object, Object...)} does. Static methods ignore the
+ * target.
+ * <p>
+ * The target and arguments are checked as {@link Method#invoke(Object, Object...)} checks them, so only what the
+ * method itself throws is wrapped in an {@link InvocationTargetException}.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class JInvoker
+{
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * Sentinel cached for methods that do not exist.
+   */
+  static final JInvoker                     NONE = new JInvoker(null, null);
+
+  private final Method                      method;
+
+  private final Class<?>[]                  parameterTypes;
+
+  private final boolean                     isStatic;
+
+  private final MethodHandle                spreader;
+
+  private JInvoker(Method method, MethodHandle spreader)
+  {
+    this.method = method;
+    this.parameterTypes = method == null ? null : method.getParameterTypes();
+    this.isStatic = method != null && Modifier.isStatic(method.getModifiers());
+    this.spreader = spreader;
+  }
+
+  /**
+   * Create a compiled invoker for the provided <i>method</i>.
+   *
+   * @param method - The method to call
+   * @return JInvoker
+   * @throws IllegalAccessException - if the method is not accessible
+   */
+  public static JInvoker forMethod(Method method) throws IllegalAccessException
+  {
+    try
+    {
+      method.setAccessible(true);
+    }
+    catch (RuntimeException e)
+    {
+      // Not permitted, the public lookup below is all we can do.
+    }
+
+    // A varargs method takes its array as is, the spreader must not collect it again
+    MethodHandle handle = LOOKUP.unreflect(method).asFixedArity();
+    if (Modifier.isStatic(method.getModifiers()))
+    {
+      handle = MethodHandles.dropArguments(handle, 0, Object.class);
+    }
+
+    final int arity = method.getParameterTypes().length;
+    final MethodHandle generic = handle.asType(MethodType.genericMethodType(arity + 1));
+
+    return new JInvoker(method, generic.asSpreader(Object[].class, arity));
+  }
+
+  /**
+   * @return the method this invoker calls
+   */
+  public Method getMethod()
+  {
+    return this.method;
+  }
+
+  /**
+   * Call the method on <i>target</i>.
+   *
+   * @param target - The object to call the method on, ignored for static methods
+   * @param args - The arguments, exactly as many as the method takes
+   * @return Object - The value returned by the method, or null if it is <code>void</code>
+   * @throws InvocationTargetException - if the method throws
+   */
+  public Object invoke(Object target, Object... args) throws InvocationTargetException
+  {
+    if (!this.isStatic)
+    {
+      JAccessor.checkTarget(this.method.getDeclaringClass(), target);
+    }
+    checkArguments(args);
+
+    try
+    {
+      return this.spreader.invokeExact(target, args);
+    }
+    catch (Throwable t)
+    {
+      throw JAccessor.wrap(t);
+    }
+  }
+
+  private void checkArguments(Object[] args)
+  {
+    final int count = args == null ? 0 : args.length;
+    if (count != this.parameterTypes.length)
+    {
+      throw new IllegalArgumentException("wrong number of arguments: " + count + ", " + this.method + " takes "
+              + this.parameterTypes.length);
+    }
+    for (int i = 0; i < count; i++)
+    {
+      if (!JTypes.isAssignable(this.parameterTypes[i], args[i] == null ? null : args[i].getClass()))
+      {
+        throw new IllegalArgumentException("argument type mismatch: " + (args[i] == null ? "null" : args[i]
+                .getClass().getName()) + " for the " + this.parameterTypes[i].getName() + " parameter " + i + " of "
+                + this.method);
+      }
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + this.method + "]";
+  }
+}
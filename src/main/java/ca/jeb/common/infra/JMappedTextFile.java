@@ -0,0 +1,572 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A text file mapped into memory with {@link FileChannel#map}, read as lines or slices that are decoded lazily.
+ * <p>
+ * The file is mapped in regions of up to 2 GB, each ending just after a line feed, so files of any size can be read
+ * and a line never spans two regions. Nothing is copied onto the heap until a {@link CharSequence} returned by this
+ * class is read: ISO-8859-1 and US-ASCII are read straight from the mapped bytes, other charsets are decoded on first
+ * access.
+ * <p>
+ * Lines end with a line feed, optionally preceded by a carriage return, which are not part of the line. A final line
+ * without a line feed is still a line, but an empty file has none. Only charsets where the line feed is the single byte
+ * <code>0x0A</code> and is not part of any other character are supported, e.g. UTF-8 and the single byte charsets.
+ * <p>
+ * Instances are thread-safe. Java offers no way to unmap a buffer, the regions are released when they are garbage
+ * collected, after {@link #close()}.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class JMappedTextFile implements Closeable
+{
+  /**
+   * Receives the lines of the file.
+   */
+  public interface LineHandler
+  {
+    /**
+     * @param line - The line, without its terminator
+     * @throws IOException - to stop reading
+     */
+    void onLine(CharSequence line) throws IOException;
+  }
+
+  private static final byte    LINE_FEED         = '\n';
+
+  private static final byte    CARRIAGE_RETURN   = '\r';
+
+  private static final int     MAX_REGION_SIZE   = Integer.MAX_VALUE;
+
+  private static final int     CHUNKS_PER_THREAD = 4;
+
+  private final FileChannel    channel;
+
+  private final Charset        charset;
+
+  private final boolean        singleByte;
+
+  private final long           size;
+
+  private final List<Region>   regions;
+
+  JMappedTextFile(FileChannel channel, Charset charset, int maxRegionSize) throws IOException
+  {
+    checkCharset(charset);
+    this.channel = channel;
+    this.charset = charset;
+    this.singleByte = charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII);
+    this.size = channel.size();
+    this.regions = Collections.unmodifiableList(mapRegions(maxRegionSize));
+  }
+
+  /**
+   * Map a text file into memory.
+   *
+   * @param path - The file to map
+   * @param charset - The Charset of the file
+   * @return JMappedTextFile
+   * @throws IOException - if the file cannot be mapped, or has a line longer than 2 GB
+   */
+  public static JMappedTextFile open(Path path, Charset charset) throws IOException
+  {
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try
+    {
+      return new JMappedTextFile(channel, charset, MAX_REGION_SIZE);
+    }
+    catch (IOException | RuntimeException e)
+    {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return the size of the file, in bytes
+   */
+  public long size()
+  {
+    return this.size;
+  }
+
+  /**
+   * @return the Charset of the file
+   */
+  public Charset getCharset()
+  {
+    return this.charset;
+  }
+
+  /**
+   * The text between two byte offsets of the file. Slices within a region are views of the mapped bytes, others are
+   * mapped separately.
+   *
+   * @param start - The offset of the first byte, inclusive
+   * @param end - The offset of the last byte, exclusive
+   * @return CharSequence
+   * @throws IOException - if the range cannot be mapped
+   */
+  public CharSequence slice(long start, long end) throws IOException
+  {
+    if (start < 0 || end > this.size || start > end)
+    {
+      throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") is not within the file of " + this.size
+              + " bytes");
+    }
+    if (end - start > Integer.MAX_VALUE)
+    {
+      throw new IllegalArgumentException("Range [" + start + ", " + end + ") is larger than 2 GB");
+    }
+
+    for (Region region : this.regions)
+    {
+      if (start >= region.start && end <= region.end())
+      {
+        return new Slice(region.buffer, (int)(start - region.start), (int)(end - start));
+      }
+    }
+    return new Slice(this.channel.map(FileChannel.MapMode.READ_ONLY, start, end - start), 0, (int)(end - start));
+  }
+
+  /**
+   * @return the lines of the file, in order, found as they are iterated
+   */
+  public Iterable<CharSequence> lines()
+  {
+    return new Iterable<CharSequence>()
+    {
+      @Override
+      public Iterator<CharSequence> iterator()
+      {
+        return new LineIterator();
+      }
+    };
+  }
+
+  /**
+   * Pass every line of the file to <i>handler</i>, in order, on the calling thread.
+   *
+   * @param handler - The LineHandler to call
+   * @return the number of lines
+   * @throws IOException - if the handler throws
+   */
+  public long forEachLine(LineHandler handler) throws IOException
+  {
+    long count = 0;
+    for (Region region : this.regions)
+    {
+      count += new Chunk(region, 0, region.length).forEachLine(handler);
+    }
+    return count;
+  }
+
+  /**
+   * Pass every line of the file to <i>handler</i> from <i>parallelism</i> threads. The file is split into chunks that
+   * end on a line feed; the lines of each chunk are passed in order, but chunks are read concurrently, so the handler
+   * must be thread-safe.
+   *
+   * @param handler - The LineHandler to call
+   * @param parallelism - The number of threads
+   * @return the number of lines
+   * @throws IOException - if the handler throws, the remaining chunks are then abandoned
+   */
+  public long forEachLine(final LineHandler handler, int parallelism) throws IOException
+  {
+    final List<Chunk> chunks = split(parallelism * CHUNKS_PER_THREAD);
+    if (parallelism <= 1 || chunks.size() <= 1)
+    {
+      return forEachLine(handler);
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory());
+    try
+    {
+      final List<Future<Long>> futures = new ArrayList<>(chunks.size());
+      for (final Chunk chunk : chunks)
+      {
+        futures.add(executor.submit(new Callable<Long>()
+        {
+          @Override
+          public Long call() throws IOException
+          {
+            return chunk.forEachLine(handler);
+          }
+        }));
+      }
+
+      long count = 0;
+      for (Future<Long> future : futures)
+      {
+        count += future.get();
+      }
+      return count;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while reading " + this, e);
+    }
+    catch (ExecutionException e)
+    {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+      {
+        throw (IOException)cause;
+      }
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException)cause;
+      }
+      if (cause instanceof Error)
+      {
+        throw (Error)cause;
+      }
+      throw new IOException(cause);
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Closes the channel. The mapped regions stay readable until they are garbage collected.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.channel.close();
+  }
+
+  /**
+   * Split the regions into about <i>count</i> chunks that end just after a line feed.
+   */
+  List<Chunk> split(int count)
+  {
+    final long target = Math.max(1, this.size / Math.max(1, count));
+    final List<Chunk> chunks = new ArrayList<>();
+    for (Region region : this.regions)
+    {
+      int start = 0;
+      while (start < region.length)
+      {
+        int end = (int)Math.min(region.length, start + target);
+        while (end < region.length && region.buffer.get(end - 1) != LINE_FEED)
+        {
+          end++;
+        }
+        chunks.add(new Chunk(region, start, end));
+        start = end;
+      }
+    }
+    return chunks;
+  }
+
+  private List<Region> mapRegions(int maxRegionSize) throws IOException
+  {
+    final List<Region> list = new ArrayList<>();
+    long start = 0;
+    while (start < this.size)
+    {
+      final int length = (int)Math.min(maxRegionSize, this.size - start);
+      final ByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+
+      int end = length;
+      if (start + length < this.size)
+      {
+        while (end > 0 && buffer.get(end - 1) != LINE_FEED)
+        {
+          end--;
+        }
+        if (end == 0)
+        {
+          throw new IOException("A line starting at byte " + start + " is longer than " + maxRegionSize + " bytes");
+        }
+      }
+
+      buffer.limit(end);
+      list.add(new Region(start, buffer.slice()));
+      start += end;
+    }
+    return list;
+  }
+
+  private static void checkCharset(Charset charset)
+  {
+    final boolean supported;
+    if (!charset.canEncode())
+    {
+      supported = false;
+    }
+    else
+    {
+      final CharsetEncoder encoder = charset.newEncoder();
+      final byte[] lineFeed = JStringUtils.NEW_LINE.getBytes(charset);
+      supported = lineFeed.length == 1 && lineFeed[0] == LINE_FEED
+              && (encoder.maxBytesPerChar() == 1 || charset.equals(StandardCharsets.UTF_8));
+    }
+
+    if (!supported)
+    {
+      throw new IllegalArgumentException("Charset " + charset + " is not supported, a line feed must be a single byte");
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + this.size + " bytes, " + this.regions.size() + " regions, " + this.charset
+            + "]";
+  }
+
+  /**
+   * A mapped part of the file, ending just after a line feed or at the end of the file.
+   */
+  private static final class Region
+  {
+    private final long       start;
+
+    private final ByteBuffer buffer;
+
+    private final int        length;
+
+    Region(long start, ByteBuffer buffer)
+    {
+      this.start = start;
+      this.buffer = buffer;
+      this.length = buffer.limit();
+    }
+
+    long end()
+    {
+      return this.start + this.length;
+    }
+  }
+
+  /**
+   * A range of a region that starts at the beginning of a line and ends just after a line feed or at the end of the
+   * region.
+   */
+  final class Chunk
+  {
+    private final Region region;
+
+    private final int    start;
+
+    private final int    end;
+
+    Chunk(Region region, int start, int end)
+    {
+      this.region = region;
+      this.start = start;
+      this.end = end;
+    }
+
+    long getStart()
+    {
+      return this.region.start + this.start;
+    }
+
+    long getEnd()
+    {
+      return this.region.start + this.end;
+    }
+
+    long forEachLine(LineHandler handler) throws IOException
+    {
+      final ByteBuffer buffer = this.region.buffer;
+      long count = 0;
+      int lineStart = this.start;
+      for (int i = this.start; i < this.end; i++)
+      {
+        if (buffer.get(i) == LINE_FEED)
+        {
+          handler.onLine(line(buffer, lineStart, i));
+          lineStart = i + 1;
+          count++;
+        }
+      }
+      if (lineStart < this.end)
+      {
+        handler.onLine(line(buffer, lineStart, this.end));
+        count++;
+      }
+      return count;
+    }
+  }
+
+  /**
+   * @return the line between <i>start</i> and the line feed at <i>end</i>, without a carriage return before it
+   */
+  private Slice line(ByteBuffer buffer, int start, int end)
+  {
+    final int lineEnd = end > start && buffer.get(end - 1) == CARRIAGE_RETURN ? end - 1 : end;
+    return new Slice(buffer, start, lineEnd - start);
+  }
+
+  private final class LineIterator implements Iterator<CharSequence>
+  {
+    private int   regionIndex;
+
+    private int   position;
+
+    private Slice next;
+
+    @Override
+    public boolean hasNext()
+    {
+      while (this.next == null && this.regionIndex < JMappedTextFile.this.regions.size())
+      {
+        final Region region = JMappedTextFile.this.regions.get(this.regionIndex);
+        if (this.position >= region.length)
+        {
+          this.regionIndex++;
+          this.position = 0;
+          continue;
+        }
+
+        int i = this.position;
+        while (i < region.length && region.buffer.get(i) != LINE_FEED)
+        {
+          i++;
+        }
+        this.next = line(region.buffer, this.position, i);
+        this.position = i + 1;
+      }
+      return this.next != null;
+    }
+
+    @Override
+    public CharSequence next()
+    {
+      if (!hasNext())
+      {
+        throw new NoSuchElementException();
+      }
+      final Slice line = this.next;
+      this.next = null;
+      return line;
+    }
+
+    @Override
+    public void remove()
+    {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Text backed by mapped bytes. ISO-8859-1 and US-ASCII are read byte by byte, other charsets are decoded into a
+   * String the first time the text is read.
+   */
+  private final class Slice implements CharSequence
+  {
+    private final ByteBuffer buffer;
+
+    private final int        offset;
+
+    private final int        length;
+
+    private String           decoded;
+
+    Slice(ByteBuffer buffer, int offset, int length)
+    {
+      this.buffer = buffer;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    public int length()
+    {
+      return JMappedTextFile.this.singleByte ? this.length : decoded().length();
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+      if (!JMappedTextFile.this.singleByte)
+      {
+        return decoded().charAt(index);
+      }
+      if (index < 0 || index >= this.length)
+      {
+        throw new IndexOutOfBoundsException("Index " + index + " is not within the " + this.length + " characters");
+      }
+
+      final int b = this.buffer.get(this.offset + index) & 0xFF;
+      return b > 0x7F && JMappedTextFile.this.charset.equals(StandardCharsets.US_ASCII) ? '\uFFFD' : (char)b;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+      if (!JMappedTextFile.this.singleByte)
+      {
+        return decoded().subSequence(start, end);
+      }
+      if (start < 0 || end > this.length || start > end)
+      {
+        throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") is not within the " + this.length
+                + " characters");
+      }
+      return new Slice(this.buffer, this.offset + start, end - start);
+    }
+
+    @Override
+    public String toString()
+    {
+      return decoded();
+    }
+
+    private String decoded()
+    {
+      String string = this.decoded;
+      if (string == null)
+      {
+        final ByteBuffer bytes = this.buffer.duplicate();
+        bytes.limit(this.offset + this.length).position(this.offset);
+        string = JMappedTextFile.this.charset.decode(bytes).toString();
+        this.decoded = string;
+      }
+      return string;
+    }
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory
+  {
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+      final Thread thread = new Thread(runnable, "JMappedTextFile-" + COUNT.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,229 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * A compiled "setter" for a single property of a class, the counterpart of {@link JAccessor}.
+ * <p>
+ * Instances are created once per resolved setter {@link Method}, by {@link #forMethod(Method)}. {@link #set(Object, Object)}
+ * converts its argument the same way {@link Method#invoke(Object, Object...)} does, i.e. unboxing and primitive widening.
+ * The typed methods, e.g. {@link #setInt(Object, int)}, call a setter of exactly that primitive type without boxing.
+ * <p>
+ * The target and value are checked as {@link Method#invoke(Object, Object...)} checks them, so only what the setter
+ * itself throws is wrapped in an {@link InvocationTargetException}.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class JMutator
+{
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * Sentinel cached for setters that do not exist.
+   */
+  static final JMutator                     NONE = new JMutator("<none>", void.class, null, null, null);
+
+  private final String                      name;
+
+  private final Class<?>                    type;
+
+  private final Class<?>                    declaringClass;
+
+  private final MethodHandle                handle;
+
+  private final MethodHandle                typedHandle;
+
+  private JMutator(String name, Class<?> type, Class<?> declaringClass, MethodHandle handle, MethodHandle typedHandle)
+  {
+    this.name = name;
+    this.type = type;
+    this.declaringClass = declaringClass;
+    this.handle = handle;
+    this.typedHandle = typedHandle;
+  }
+
+  /**
+   * Create a compiled mutator for the provided single-argument <i>setter</i>.
+   *
+   * @param setter - The "setter" method
+   * @return JMutator
+   * @throws IllegalAccessException - if the setter is not accessible
+   */
+  public static JMutator forMethod(Method setter) throws IllegalAccessException
+  {
+    final Class<?>[] parameterTypes = setter.getParameterTypes();
+    if (parameterTypes.length != 1)
+    {
+      throw new IllegalArgumentException("Setter " + setter + " must take exactly one argument");
+    }
+
+    try
+    {
+      setter.setAccessible(true);
+    }
+    catch (RuntimeException e)
+    {
+      // Not permitted, the public lookup below is all we can do.
+    }
+
+    // A varargs setter takes its array as is
+    final MethodHandle handle = LOOKUP.unreflect(setter).asFixedArity();
+    final Class<?> type = parameterTypes[0];
+
+    final MethodHandle generic = handle.asType(MethodType.methodType(Object.class, Object.class, Object.class));
+    final MethodHandle typed = type.isPrimitive() ? handle.asType(MethodType.methodType(void.class, Object.class, type))
+            : null;
+    return new JMutator(setter.getName(), type, setter.getDeclaringClass(), generic, typed);
+  }
+
+  /**
+   * @return the name of the setter this mutator calls
+   */
+  public String getName()
+  {
+    return this.name;
+  }
+
+  /**
+   * @return the type of the setter's argument
+   */
+  public Class<?> getType()
+  {
+    return this.type;
+  }
+
+  /**
+   * Call the setter on <i>target</i>.
+   *
+   * @param target - The object to update
+   * @param value - The value to set, unboxed and widened if the setter takes a primitive
+   * @return Object - The value returned by the setter, or null if it is <code>void</code>
+   * @throws InvocationTargetException - if the setter throws
+   */
+  public Object set(Object target, Object value) throws InvocationTargetException
+  {
+    JAccessor.checkTarget(this.declaringClass, target);
+    if (!JTypes.isAssignable(this.type, value == null ? null : value.getClass()))
+    {
+      throw new IllegalArgumentException("Cannot set " + (value == null ? "null" : "a " + value.getClass().getName())
+              + " to the " + this.type.getName() + " setter " + this.name);
+    }
+
+    try
+    {
+      return this.handle.invokeExact(target, value);
+    }
+    catch (Throwable t)
+    {
+      throw JAccessor.wrap(t);
+    }
+  }
+
+  /**
+   * @param target - The object to update
+   * @param value - The value to set
+   * @throws InvocationTargetException - if the setter throws
+   */
+  public void setInt(Object target, int value) throws InvocationTargetException
+  {
+    if (this.type != int.class)
+    {
+      set(target, value);
+      return;
+    }
+
+    JAccessor.checkTarget(this.declaringClass, target);
+    try
+    {
+      this.typedHandle.invokeExact(target, value);
+    }
+    catch (Throwable t)
+    {
+      throw JAccessor.wrap(t);
+    }
+  }
+
+  /**
+   * @param target - The object to update
+   * @param value - The value to set
+   * @throws InvocationTargetException - if the setter throws
+   */
+  public void setLong(Object target, long value) throws InvocationTargetException
+  {
+    if (this.type != long.class)
+    {
+      set(target, value);
+      return;
+    }
+
+    JAccessor.checkTarget(this.declaringClass, target);
+    try
+    {
+      this.typedHandle.invokeExact(target, value);
+    }
+    catch (Throwable t)
+    {
+      throw JAccessor.wrap(t);
+    }
+  }
+
+  /**
+   * @param target - The object to update
+   * @param value - The value to set
+   * @throws InvocationTargetException - if the setter throws
+   */
+  public void setDouble(Object target, double value) throws InvocationTargetException
+  {
+    if (this.type != double.class)
+    {
+      set(target, value);
+      return;
+    }
+
+    JAccessor.checkTarget(this.declaringClass, target);
+    try
+    {
+      this.typedHandle.invokeExact(target, value);
+    }
+    catch (Throwable t)
+    {
+      throw JAccessor.wrap(t);
+    }
+  }
+
+  /**
+   * @param target - The object to update
+   * @param value - The value to set
+   * @throws InvocationTargetException - if the setter throws
+   */
+  public void setBoolean(Object target, boolean value) throws InvocationTargetException
+  {
+    if (this.type != boolean.class)
+    {
+      set(target, value);
+      return;
+    }
+
+    JAccessor.checkTarget(this.declaringClass, target);
+    try
+    {
+      this.typedHandle.invokeExact(target, value);
+    }
+    catch (Throwable t)
+    {
+      throw JAccessor.wrap(t);
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + this.name + ":" + this.type.getName() + "]";
+  }
+}
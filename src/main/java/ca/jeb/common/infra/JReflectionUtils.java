@@ -5,20 +5,15 @@ package ca.jeb.common.infra;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 /**
  * Utility class for running some reflection methods.
  */
 public final class JReflectionUtils
 {
-  private static final Map<String, Map<String, Method>> METHOD_FIELD_MAP_CACHE = Collections
-                                                                                       .synchronizedMap(new WeakHashMap<String, Map<String, Method>>());
+  private static final Object[] NO_ARGS = new Object[0];
 
   private JReflectionUtils()
   {
@@ -38,57 +33,48 @@ public final class JReflectionUtils
   public static Object runGetter(Object object, Field field) throws IllegalAccessException, IllegalArgumentException,
           InvocationTargetException
   {
-    final Class<?> clazz = object.getClass();
-    final String fieldName = field.getName();
-
-    Map<String, Method> fieldMethodMap = METHOD_FIELD_MAP_CACHE.get(object.getClass().getCanonicalName());
-    if (fieldMethodMap != null)
-    {
-      final Method fieldMethod = fieldMethodMap.get(fieldName);
-      if (fieldMethod != null)
-      {
-        return fieldMethod.invoke(object);
-      }
-    }
-    else
-    {
-      fieldMethodMap = new HashMap<>();
-    }
-
-    try
-    {
-      final Method method = clazz.getMethod(JStringUtils.GET + JStringUtils.upperCaseFirst(fieldName), null);
-      fieldMethodMap.put(fieldName, method);
-      METHOD_FIELD_MAP_CACHE.put(object.getClass().getCanonicalName(), fieldMethodMap);
-
-      return method.invoke(object);
-    }
-    catch (Exception e)
+    final JAccessor accessor = getAccessor(object.getClass(), field.getName());
+    if (accessor == null)
     {
-      // Swallow exception so that we loop through the rest.
+      return null;
     }
 
-    for (Method method : clazz.getMethods())
-    {
-      final String methodName = method.getName();
-      if (((methodName.startsWith(JStringUtils.GET)) && (methodName.length() == (fieldName.length() + JStringUtils.GET.length())))
-              || ((methodName.startsWith(JStringUtils.IS)) && (methodName.length() == (fieldName.length() + JStringUtils.IS.length()))))
-      {
-        if (methodName.toLowerCase().endsWith(fieldName.toLowerCase()))
-        {
-          fieldMethodMap.put(fieldName, method);
-          METHOD_FIELD_MAP_CACHE.put(object.getClass().getCanonicalName(), fieldMethodMap);
+    return accessor.get(object);
+  }
 
-          return method.invoke(object);
-        }
-      }
-    }
+  /**
+   * Retrieve the compiled "getter" for the field named <i>fieldName</i> on the class, <i>clazz</i>.
+   * Use the typed methods of the returned {@link JAccessor}, e.g. {@link JAccessor#getInt(Object)},
+   * to read primitive fields without boxing.
+   * 
+   * @param clazz - The Class to find the "getter" on
+   * @param fieldName - The name of the field
+   * @return JAccessor - The "getter", or null if there is none
+   * @throws IllegalAccessException
+   */
+  public static JAccessor getAccessor(Class<?> clazz, String fieldName) throws IllegalAccessException
+  {
+    return JClassMetadata.forClass(clazz).getAccessor(fieldName);
+  }
 
-    return null;
+  /**
+   * Fields without a "getter" are remembered per class, this returns how many times such a field was
+   * looked up again for the class, <i>clazz</i>, without having to search for its "getter".
+   * 
+   * @param clazz - The Class to report on
+   * @return long - The number of avoided "getter" searches
+   */
+  public static long getAvoidedMissCount(Class<?> clazz)
+  {
+    return JClassMetadata.forClass(clazz).getAvoidedMissCount();
   }
 
   /**
    * Execute a "setter" on the provided <i>object</i> for the given <i>method</i> name.
+   * <p>
+   * The "setter" is resolved once per (class, method, argClazz) and then invoked through a compiled handle. It does
+   * not need to take exactly <i>argClazz</i>, any parameter type that accepts it, with boxing, unboxing or primitive
+   * widening, will do.
    * 
    * @param object - The Object to run the "setter" method
    * @param method - The "setter" method name as a string
@@ -105,9 +91,13 @@ public final class JReflectionUtils
       {
         argClazz = arg.getClass();
       }
-      final Method m = object.getClass().getMethod(method, argClazz);
+      final JMutator mutator = getMutator(object.getClass(), method, argClazz);
+      if (mutator == null)
+      {
+        throw new NoSuchMethodException(object.getClass().getName() + "." + method + "(" + argClazz.getName() + ")");
+      }
 
-      return m.invoke(object, arg);
+      return mutator.set(object, arg);
     }
     catch (Exception e)
     {
@@ -115,9 +105,28 @@ public final class JReflectionUtils
     }
   }
 
+  /**
+   * Retrieve the compiled "setter" named <i>method</i> on the class, <i>clazz</i>, that accepts an argument of
+   * type <i>argClazz</i>. Use the typed methods of the returned {@link JMutator}, e.g.
+   * {@link JMutator#setInt(Object, int)}, to set primitive values without boxing.
+   * 
+   * @param clazz - The Class to find the "setter" on
+   * @param method - The "setter" method name
+   * @param argClazz - The Class type of the "setter" argument
+   * @return JMutator - The "setter", or null if there is none
+   * @throws IllegalAccessException
+   */
+  public static JMutator getMutator(Class<?> clazz, String method, Class<?> argClazz) throws IllegalAccessException
+  {
+    return JClassMetadata.forClass(clazz).getMutator(method, argClazz);
+  }
+
   /**
    * Use reflection to run/execute the method represented by "method",
    * on the object {@code object}, given the list of {@code args}.
+   * <p>
+   * The public method to call is chosen among the overloads that accept the arguments, the most specific one wins.
+   * It is resolved once per (class, method, argument types) and then called through a compiled {@link JInvoker}.
    * 
    * @param object - The object to execute the method against
    * @param method - The method name
@@ -129,9 +138,13 @@ public final class JReflectionUtils
   {
     try
     {
-      final Method m = object.getClass().getMethod(method);
+      if (args == null)
+      {
+        args = NO_ARGS;
+      }
+      final JInvoker invoker = getInvoker(object.getClass(), method, args);
 
-      return m.invoke(object, args);
+      return invoker.invoke(object, args);
     }
     catch (Exception e)
     {
@@ -140,29 +153,71 @@ public final class JReflectionUtils
   }
 
   /**
-   * This static method will get ALL fields for this class, including any inherited ones.
+   * Retrieve the compiled call to the method named <i>method</i> on the class, <i>clazz</i>, that best matches the
+   * provided <i>args</i>.
    * 
-   * @param fields List&lt;Field&gt; - a list to use to add to
-   * @param clazz Class&lt;?&gt; - The Class to run the reflection on
-   * @return List&lt;Field&gt;
+   * @param clazz - The Class to find the method on
+   * @param method - The method name
+   * @param args - The arguments the method will be called with
+   * @return JInvoker - The method's invoker
+   * @throws NoSuchMethodException - if there is no such method, or the call is ambiguous
+   * @throws IllegalAccessException
    */
-  public static List<Field> getAllFields(List<Field> fields, Class<?> clazz)
+  public static JInvoker getInvoker(Class<?> clazz, String method, Object... args) throws NoSuchMethodException,
+          IllegalAccessException
   {
-    for (Field field : clazz.getDeclaredFields())
+    if (method == null)
+    {
+      throw new NoSuchMethodException("No method name provided for " + clazz.getName());
+    }
+
+    final Class<?>[] argTypes = new Class<?>[args.length];
+    for (int i = 0; i < args.length; i++)
     {
-      fields.add(field);
+      argTypes[i] = args[i] == null ? null : args[i].getClass();
     }
 
-    if (clazz.getSuperclass() != null)
+    final JInvoker invoker = JClassMetadata.forClass(clazz).getInvoker(method, argTypes);
+    if (invoker == null)
     {
-      fields = getAllFields(fields, clazz.getSuperclass());
+      throw new NoSuchMethodException(clazz.getName() + "." + method + Arrays.toString(argTypes));
     }
+    return invoker;
+  }
+
+  /**
+   * This static method will get ALL fields for this class, including any inherited ones.
+   * The fields are only looked up once per class, see {@link #getAllFields(Class)}.
+   * 
+   * @param fields List&lt;Field&gt; - a list to use to add to
+   * @param clazz Class&lt;?&gt; - The Class to run the reflection on
+   * @return List&lt;Field&gt;
+   */
+  public static List<Field> getAllFields(List<Field> fields, Class<?> clazz)
+  {
+    fields.addAll(getAllFields(clazz));
 
     return fields;
   }
 
+  /**
+   * This static method will get ALL fields for this class, including any inherited ones, starting with
+   * the fields declared by <i>clazz</i> and ending with those of {@link Object}.
+   * <p>
+   * The result is cached per class and returned as an unmodifiable list, without copying. The {@link Field}
+   * instances are shared by all callers, so do not change their accessibility.
+   * 
+   * @param clazz Class&lt;?&gt; - The Class to run the reflection on
+   * @return List&lt;Field&gt;
+   */
+  public static List<Field> getAllFields(Class<?> clazz)
+  {
+    return JClassMetadata.forClass(clazz).getMembers().getFields();
+  }
+
   /**
    * This static method will get ALL methods for this class, including any inherited ones.
+   * The methods are only looked up once per class, see {@link #getAllMethods(Class)}.
    * 
    * @param methods List&lt;Method&gt;
    * @param clazz Class&lt;?&gt; - The Class to run the reflection on
@@ -170,21 +225,29 @@ public final class JReflectionUtils
    */
   public static List<Method> getAllMethods(List<Method> methods, Class<?> clazz)
   {
-    for (Method method : clazz.getDeclaredMethods())
-    {
-      methods.add(method);
-    }
-
-    if (clazz.getSuperclass() != null)
-    {
-      methods = getAllMethods(methods, clazz.getSuperclass());
-    }
+    methods.addAll(getAllMethods(clazz));
 
     return methods;
   }
 
+  /**
+   * This static method will get ALL methods for this class, including any inherited ones, starting with
+   * the methods declared by <i>clazz</i> and ending with those of {@link Object}.
+   * <p>
+   * The result is cached per class and returned as an unmodifiable list, without copying. The {@link Method}
+   * instances are shared by all callers, so do not change their accessibility.
+   * 
+   * @param clazz Class&lt;?&gt; - The Class to run the reflection on
+   * @return List&lt;Method&gt;
+   */
+  public static List<Method> getAllMethods(Class<?> clazz)
+  {
+    return JClassMetadata.forClass(clazz).getMembers().getMethods();
+  }
+
   /**
    * Retrieve a Method object with the provided <i>name</i> on the class, <i>clazz</i>.
+   * If it is overloaded, or overridden, the first one returned by {@link #getAllMethods(Class)} is used.
    * 
    * @param clazz
    * @param name
@@ -192,15 +255,6 @@ public final class JReflectionUtils
    */
   public static Method getMethodByName(Class<?> clazz, String name)
   {
-    final List<Method> methods = JReflectionUtils.getAllMethods(new ArrayList<Method>(), clazz);
-
-    for (Method method : methods)
-    {
-      if (method.getName().equals(name))
-      {
-        return method;
-      }
-    }
-    return null;
+    return JClassMetadata.forClass(clazz).getMembers().getMethod(name);
   }
-}
\ No newline at end of file
+}
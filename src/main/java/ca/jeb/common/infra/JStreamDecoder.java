@@ -0,0 +1,342 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+/**
+ * Decode an {@link InputStream} into characters, driving a {@link CharsetDecoder} directly over reusable buffers.
+ * <p>
+ * The whole stream can be decoded into a String with {@link #decode(InputStream, int)}, or into a
+ * {@link CharSequence} view of the decoder's own buffer with {@link #decodeToBuffer(InputStream, int)}, which avoids
+ * the final copy. Large streams can be processed a chunk at a time with {@link #decode(InputStream, ChunkHandler)}, or
+ * read through {@link #newReader(InputStream)}, without ever holding the whole text.
+ * <p>
+ * Malformed and unmappable input is replaced, the same as {@link java.io.InputStreamReader}, and line terminators are
+ * kept. Instances keep their buffers between calls, and are not thread-safe; use one per thread. The array whole streams
+ * are decoded into is only kept by {@link #decode(InputStream, int)} while it is at most {@value #MAX_KEPT_TEXT_SIZE}
+ * characters, so one large stream does not pin its size for the life of the decoder.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class JStreamDecoder
+{
+  /**
+   * Receives the decoded characters of a stream, one chunk at a time.
+   */
+  public interface ChunkHandler
+  {
+    /**
+     * @param chunk - The next characters, only valid for the duration of the call; the buffer is reused for the next
+     *          chunk
+     * @throws IOException - to stop decoding
+     */
+    void onChunk(CharBuffer chunk) throws IOException;
+  }
+
+  /**
+   * The default size of the byte and chunk buffers.
+   */
+  public static final int      DEFAULT_BUFFER_SIZE = 8192;
+
+  private static final int     MIN_BUFFER_SIZE     = 64;
+
+  private static final int     MAX_ARRAY_SIZE      = Integer.MAX_VALUE - 8;
+
+  /**
+   * The largest decoded text array kept for the next call once {@link #decode(InputStream, int)} has copied it.
+   */
+  static final int             MAX_KEPT_TEXT_SIZE  = 64 * 1024;
+
+  private static final char[]  NO_TEXT             = new char[0];
+
+  private final CharsetDecoder decoder;
+
+  private final byte[]         input;
+
+  private final ByteBuffer     bytes;
+
+  private final CharBuffer     chunk;
+
+  private char[]               text                = NO_TEXT;
+
+  private boolean              endOfInput;
+
+  private boolean              flushed;
+
+  /**
+   * @param charset - The Charset of the streams to decode
+   */
+  public JStreamDecoder(Charset charset)
+  {
+    this(charset, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * @param charset - The Charset of the streams to decode
+   * @param bufferSize - The number of bytes read from the stream at a time, and of characters per chunk
+   */
+  public JStreamDecoder(Charset charset, int bufferSize)
+  {
+    final int size = Math.max(bufferSize, MIN_BUFFER_SIZE);
+    this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    this.input = new byte[size];
+    this.bytes = ByteBuffer.wrap(this.input);
+    this.chunk = CharBuffer.allocate(size);
+  }
+
+  /**
+   * @return the Charset of the streams this decoder reads
+   */
+  public Charset getCharset()
+  {
+    return this.decoder.charset();
+  }
+
+  /**
+   * Decode the rest of <i>in</i> into a String. The stream is not closed.
+   *
+   * @param in - The InputStream to read
+   * @param sizeHint - The expected number of bytes, or -1 if unknown
+   * @return String
+   * @throws IOException - if the stream cannot be read
+   */
+  public String decode(InputStream in, int sizeHint) throws IOException
+  {
+    final int length = decodeAll(in, sizeHint);
+    final String result = new String(this.text, 0, length);
+    if (this.text.length > MAX_KEPT_TEXT_SIZE)
+    {
+      this.text = NO_TEXT;
+    }
+    return result;
+  }
+
+  /**
+   * Decode the rest of <i>in</i> without copying it into a String. The stream is not closed.
+   * <p>
+   * The returned buffer is a view of this decoder's own storage: it is only valid until the next call on this decoder,
+   * and must not be modified. That storage is kept at its full size until a later {@link #decode(InputStream, int)}.
+   *
+   * @param in - The InputStream to read
+   * @param sizeHint - The expected number of bytes, or -1 if unknown
+   * @return CharBuffer - The decoded characters, from position 0 to the limit
+   * @throws IOException - if the stream cannot be read
+   */
+  public CharBuffer decodeToBuffer(InputStream in, int sizeHint) throws IOException
+  {
+    final int length = decodeAll(in, sizeHint);
+
+    return CharBuffer.wrap(this.text, 0, length);
+  }
+
+  /**
+   * Decode the rest of <i>in</i>, passing the characters to <i>handler</i> one chunk at a time. The stream is not
+   * closed. At most one chunk is held in memory.
+   *
+   * @param in - The InputStream to read
+   * @param handler - The ChunkHandler to call
+   * @return the total number of characters decoded
+   * @throws IOException - if the stream cannot be read, or the handler throws
+   */
+  public long decode(InputStream in, ChunkHandler handler) throws IOException
+  {
+    reset();
+
+    long total = 0;
+    while (true)
+    {
+      this.chunk.clear();
+      final int count = read(in, this.chunk);
+      if (count < 0)
+      {
+        return total;
+      }
+
+      this.chunk.flip();
+      if (count > 0)
+      {
+        total += count;
+        handler.onChunk(this.chunk);
+      }
+    }
+  }
+
+  /**
+   * Create a Reader that decodes <i>in</i> with this decoder, directly into the arrays it is given. Closing the Reader
+   * closes the stream. This decoder must not be used for anything else until the Reader is done.
+   *
+   * @param in - The InputStream to read
+   * @return Reader
+   */
+  public Reader newReader(final InputStream in)
+  {
+    reset();
+
+    return new Reader()
+    {
+      // A single char may decode to a surrogate pair, the low surrogate is kept for the next read
+      private final char[] pair = new char[2];
+
+      private boolean      pending;
+
+      @Override
+      public int read(char[] cbuf, int off, int len) throws IOException
+      {
+        if (len == 0)
+        {
+          return 0;
+        }
+        if (this.pending)
+        {
+          this.pending = false;
+          cbuf[off] = this.pair[1];
+          return 1;
+        }
+
+        final boolean single = len == 1;
+        final CharBuffer out = single ? CharBuffer.wrap(this.pair) : CharBuffer.wrap(cbuf, off, len);
+        int count;
+        do
+        {
+          count = JStreamDecoder.this.read(in, out);
+        }
+        while (count == 0);
+
+        if (single && count > 0)
+        {
+          cbuf[off] = this.pair[0];
+          this.pending = count == 2;
+          return 1;
+        }
+        return count;
+      }
+
+      @Override
+      public void close() throws IOException
+      {
+        in.close();
+      }
+    };
+  }
+
+  private void reset()
+  {
+    this.decoder.reset();
+    this.bytes.clear();
+    this.bytes.flip();
+    this.endOfInput = false;
+    this.flushed = false;
+  }
+
+  /**
+   * Decode the whole stream into {@link #text}, growing it as needed.
+   *
+   * @return the number of characters decoded
+   */
+  private int decodeAll(InputStream in, int sizeHint) throws IOException
+  {
+    reset();
+
+    final int expectedBytes = sizeHint >= 0 ? sizeHint : Math.max(in.available(), this.input.length);
+    final long expectedChars = (long)Math.ceil(expectedBytes * (double)this.decoder.averageCharsPerByte()) + 1;
+    if (this.text.length < expectedChars)
+    {
+      this.text = new char[(int)Math.min(expectedChars, MAX_ARRAY_SIZE)];
+    }
+
+    int length = 0;
+    while (true)
+    {
+      final int count = read(in, CharBuffer.wrap(this.text, length, this.text.length - length));
+      if (count < 0)
+      {
+        return length;
+      }
+      length += count;
+
+      // Also grow when nothing fit, e.g. a surrogate pair in the last free char
+      if (count == 0 || length == this.text.length)
+      {
+        if (this.text.length == MAX_ARRAY_SIZE)
+        {
+          throw new OutOfMemoryError("The stream is too large to decode into a single array");
+        }
+        this.text = Arrays.copyOf(this.text, (int)Math.min(Math.max(this.text.length * 2L, 16), MAX_ARRAY_SIZE));
+      }
+    }
+  }
+
+  /**
+   * Decode as many characters as fit into <i>out</i>, reading from <i>in</i> as needed. Once some characters have been
+   * decoded, this returns rather than blocking on the stream.
+   *
+   * @return the number of characters decoded, or -1 at the end of the stream
+   */
+  private int read(InputStream in, CharBuffer out) throws IOException
+  {
+    final int start = out.position();
+    while (out.hasRemaining() && !this.flushed)
+    {
+      CoderResult result = this.decoder.decode(this.bytes, out, this.endOfInput);
+      if (result.isUnderflow())
+      {
+        if (this.endOfInput)
+        {
+          result = this.decoder.flush(out);
+          if (result.isUnderflow())
+          {
+            this.flushed = true;
+            break;
+          }
+        }
+        else
+        {
+          if (out.position() > start && in.available() <= 0)
+          {
+            break;
+          }
+          fill(in);
+          continue;
+        }
+      }
+
+      if (result.isOverflow())
+      {
+        break;
+      }
+      result.throwException();
+    }
+
+    final int count = out.position() - start;
+    return count == 0 && this.flushed ? -1 : count;
+  }
+
+  /**
+   * Read more bytes after those not decoded yet, leaving {@link #bytes} ready to be decoded.
+   */
+  private void fill(InputStream in) throws IOException
+  {
+    this.bytes.compact();
+    final int count = in.read(this.input, this.bytes.position(), this.bytes.remaining());
+    if (count < 0)
+    {
+      this.endOfInput = true;
+    }
+    else
+    {
+      this.bytes.position(this.bytes.position() + count);
+    }
+    this.bytes.flip();
+  }
+}
@@ -0,0 +1,439 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, concurrent cache of canonical Strings, to keep a single instance of values that are decoded over and over,
+ * e.g. currency codes, flags or symbols.
+ * <p>
+ * Values are looked up by their characters or bytes, so a String is only created the first time a value is seen, or
+ * after it was evicted. The cache is a hash table of a fixed number of sets of a few slots each; when all the slots of a
+ * set are taken, the {@link Eviction} policy either replaces the oldest value of the set or leaves the new value out of
+ * the cache. Values longer than the maximum length are never cached, nor counted.
+ * <p>
+ * Lookups take no locks, and may rarely miss a value being inserted by another thread, which then only costs an extra
+ * String.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class JStringCache
+{
+  /**
+   * What to do with a new value when all the slots of its set are taken.
+   */
+  public enum Eviction
+  {
+    /**
+     * Replace the oldest value of the set.
+     */
+    FIFO,
+
+    /**
+     * Keep the cached values, the new value is returned without being cached.
+     */
+    NONE
+  }
+
+  /**
+   * The default number of slots per set.
+   */
+  public static final int                    DEFAULT_WAYS       = 4;
+
+  /**
+   * The default maximum length of the cached values.
+   */
+  public static final int                    DEFAULT_MAX_LENGTH = 64;
+
+  private static final int                   STRIPES            = 16;
+
+  // Counters a cache line apart, so threads do not share them
+  private static final int                   STRIPE_SPACING     = 8;
+
+  private static final ThreadLocal<char[]>   SCRATCH            = new ThreadLocal<char[]>()
+                                                                {
+                                                                  @Override
+                                                                  protected char[] initialValue()
+                                                                  {
+                                                                    return new char[DEFAULT_MAX_LENGTH];
+                                                                  }
+                                                                };
+
+  private final AtomicReferenceArray<String> table;
+
+  private final AtomicIntegerArray           cursors;
+
+  private final int                          setMask;
+
+  private final int                          ways;
+
+  private final Eviction                     eviction;
+
+  private final int                          maxLength;
+
+  private final AtomicLongArray              hits               = new AtomicLongArray(STRIPES * STRIPE_SPACING);
+
+  private final AtomicLongArray              misses             = new AtomicLongArray(STRIPES * STRIPE_SPACING);
+
+  /**
+   * A FIFO cache of values up to {@link #DEFAULT_MAX_LENGTH} characters, with {@link #DEFAULT_WAYS} slots per set.
+   *
+   * @param capacity - The number of values to cache, rounded up to a power of two
+   */
+  public JStringCache(int capacity)
+  {
+    this(capacity, DEFAULT_WAYS, Eviction.FIFO, DEFAULT_MAX_LENGTH);
+  }
+
+  /**
+   * @param capacity - The number of values to cache, rounded up to a power of two number of sets
+   * @param ways - The number of slots per set, the more there are, the fewer values are evicted early but the longer
+   *          a lookup takes
+   * @param eviction - What to do with a new value when its set is full
+   * @param maxLength - The maximum length of the cached values
+   */
+  public JStringCache(int capacity, int ways, Eviction eviction, int maxLength)
+  {
+    if (capacity <= 0 || ways <= 0 || maxLength < 0)
+    {
+      throw new IllegalArgumentException("Capacity and ways must be positive, and the maximum length not negative");
+    }
+
+    int sets = 1;
+    while (sets * ways < capacity)
+    {
+      sets <<= 1;
+    }
+    this.setMask = sets - 1;
+    this.ways = ways;
+    this.eviction = eviction;
+    this.maxLength = maxLength;
+    this.table = new AtomicReferenceArray<>(sets * ways);
+    this.cursors = new AtomicIntegerArray(sets);
+  }
+
+  /**
+   * @param value - The value, possibly null
+   * @return the cached instance equal to <i>value</i>, or <i>value</i> itself, now cached
+   */
+  public String intern(String value)
+  {
+    if (value == null || value.length() > this.maxLength)
+    {
+      return value;
+    }
+
+    final int hash = value.hashCode();
+    final int base = base(hash);
+    for (int i = 0; i < this.ways; i++)
+    {
+      final String cached = this.table.get(base + i);
+      if (cached == null)
+      {
+        break;
+      }
+      if (cached.hashCode() == hash && cached.equals(value))
+      {
+        count(this.hits);
+        return cached;
+      }
+    }
+
+    count(this.misses);
+    return insert(base, value);
+  }
+
+  /**
+   * @param chars - The CharSequence holding the value
+   * @param start - The offset of the value's first character
+   * @param end - The offset just after the value's last character
+   * @return the cached String with these characters, created and cached if there is none
+   */
+  public String intern(CharSequence chars, int start, int end)
+  {
+    final int length = end - start;
+    if (length > this.maxLength)
+    {
+      return chars.subSequence(start, end).toString();
+    }
+
+    int hash = 0;
+    for (int i = start; i < end; i++)
+    {
+      hash = 31 * hash + chars.charAt(i);
+    }
+
+    final int base = base(hash);
+    for (int i = 0; i < this.ways; i++)
+    {
+      final String cached = this.table.get(base + i);
+      if (cached == null)
+      {
+        break;
+      }
+      if (cached.hashCode() == hash && cached.length() == length && contentEquals(cached, chars, start))
+      {
+        count(this.hits);
+        return cached;
+      }
+    }
+
+    count(this.misses);
+    return insert(base, chars.subSequence(start, end).toString());
+  }
+
+  /**
+   * @param chars - The array holding the value
+   * @param offset - The offset of the value's first character
+   * @param length - The number of characters of the value
+   * @return the cached String with these characters, created and cached if there is none
+   */
+  public String intern(char[] chars, int offset, int length)
+  {
+    if (length > this.maxLength)
+    {
+      return new String(chars, offset, length);
+    }
+
+    final int end = offset + length;
+    int hash = 0;
+    for (int i = offset; i < end; i++)
+    {
+      hash = 31 * hash + chars[i];
+    }
+
+    final int base = base(hash);
+    for (int i = 0; i < this.ways; i++)
+    {
+      final String cached = this.table.get(base + i);
+      if (cached == null)
+      {
+        break;
+      }
+      if (cached.hashCode() == hash && cached.length() == length && contentEquals(cached, chars, offset))
+      {
+        count(this.hits);
+        return cached;
+      }
+    }
+
+    count(this.misses);
+    return insert(base, new String(chars, offset, length));
+  }
+
+  /**
+   * Look up a value by its encoded bytes. ASCII values of UTF-8, ISO-8859-1 or US-ASCII are compared byte for byte,
+   * others are first decoded into a per-thread array.
+   *
+   * @param bytes - The array holding the value
+   * @param offset - The offset of the value's first byte
+   * @param length - The number of bytes of the value
+   * @param charset - The Charset of the bytes
+   * @return the cached String with these bytes, created and cached if there is none
+   */
+  public String intern(byte[] bytes, int offset, int length, Charset charset)
+  {
+    final int end = offset + length;
+    if (length <= this.maxLength && JCoders.isAsciiCompatible(charset))
+    {
+      int hash = 0;
+      int i = offset;
+      for (; i < end && bytes[i] >= 0; i++)
+      {
+        hash = 31 * hash + bytes[i];
+      }
+
+      if (i == end)
+      {
+        final int base = base(hash);
+        for (int j = 0; j < this.ways; j++)
+        {
+          final String cached = this.table.get(base + j);
+          if (cached == null)
+          {
+            break;
+          }
+          if (cached.hashCode() == hash && cached.length() == length && contentEquals(cached, bytes, offset))
+          {
+            count(this.hits);
+            return cached;
+          }
+        }
+
+        count(this.misses);
+        return insert(base, new String(bytes, offset, length, charset));
+      }
+    }
+
+    // No charset in use takes more than 4 bytes per character, so longer values cannot be cached
+    if (length > this.maxLength * 4)
+    {
+      return new String(bytes, offset, length, charset);
+    }
+
+    final int maxChars = (int)Math.ceil(length * (double)JCoders.decoder(charset).maxCharsPerByte());
+    char[] scratch = SCRATCH.get();
+    if (scratch.length < maxChars)
+    {
+      scratch = new char[maxChars];
+      SCRATCH.set(scratch);
+    }
+    return intern(scratch, 0, JStringUtils.decode(bytes, offset, length, charset, scratch, 0));
+  }
+
+  /**
+   * @return the number of lookups that found their value
+   */
+  public long getHitCount()
+  {
+    return sum(this.hits);
+  }
+
+  /**
+   * @return the number of lookups that did not find their value
+   */
+  public long getMissCount()
+  {
+    return sum(this.misses);
+  }
+
+  /**
+   * @return the ratio of hits to lookups, or 0 if there was none
+   */
+  public double getHitRate()
+  {
+    final long hits = getHitCount();
+    final long total = hits + getMissCount();
+    return total == 0 ? 0 : (double)hits / total;
+  }
+
+  /**
+   * @return the number of values cached
+   */
+  public int size()
+  {
+    int size = 0;
+    for (int i = 0; i < this.table.length(); i++)
+    {
+      if (this.table.get(i) != null)
+      {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Remove every value, and reset the statistics.
+   */
+  public void clear()
+  {
+    for (int i = 0; i < this.table.length(); i++)
+    {
+      this.table.set(i, null);
+    }
+    for (int i = 0; i < this.hits.length(); i++)
+    {
+      this.hits.set(i, 0);
+      this.misses.set(i, 0);
+    }
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+            + "]";
+  }
+
+  /**
+   * @return the index of the first slot of the set of <i>hash</i>
+   */
+  private int base(int hash)
+  {
+    return ((hash ^ (hash >>> 16)) & this.setMask) * this.ways;
+  }
+
+  private String insert(int base, String value)
+  {
+    for (int i = 0; i < this.ways; i++)
+    {
+      final String cached = this.table.get(base + i);
+      if (cached == null)
+      {
+        if (this.table.compareAndSet(base + i, null, value))
+        {
+          return value;
+        }
+      }
+      else if (cached.equals(value))
+      {
+        // Inserted by another thread in the meantime
+        return cached;
+      }
+    }
+
+    if (this.eviction == Eviction.FIFO)
+    {
+      final int set = base / this.ways;
+      final int way = (this.cursors.getAndIncrement(set) & Integer.MAX_VALUE) % this.ways;
+      this.table.set(base + way, value);
+    }
+    return value;
+  }
+
+  private static boolean contentEquals(String cached, CharSequence chars, int start)
+  {
+    for (int i = 0; i < cached.length(); i++)
+    {
+      if (cached.charAt(i) != chars.charAt(start + i))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean contentEquals(String cached, char[] chars, int offset)
+  {
+    for (int i = 0; i < cached.length(); i++)
+    {
+      if (cached.charAt(i) != chars[offset + i])
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean contentEquals(String cached, byte[] bytes, int offset)
+  {
+    for (int i = 0; i < cached.length(); i++)
+    {
+      if (cached.charAt(i) != bytes[offset + i])
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void count(AtomicLongArray counters)
+  {
+    counters.incrementAndGet((int)(Thread.currentThread().getId() & (STRIPES - 1)) * STRIPE_SPACING);
+  }
+
+  private static long sum(AtomicLongArray counters)
+  {
+    long sum = 0;
+    for (int i = 0; i < counters.length(); i += STRIPE_SPACING)
+    {
+      sum += counters.get(i);
+    }
+    return sum;
+  }
+}
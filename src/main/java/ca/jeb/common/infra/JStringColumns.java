@@ -0,0 +1,330 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The {@link JStringUtils} predicates over whole columns of values, e.g. to validate a file column by column.
+ * <p>
+ * Each method returns a mask with bit <code>i % 64</code> of word <code>i / 64</code> set when value <code>i</code>
+ * matches, which {@link java.util.BitSet#valueOf(long[])} turns into a BitSet. The mask is built a word at a time, and
+ * columns of at least {@value #PARALLEL_THRESHOLD} values are split across a shared fork/join pool, each task filling
+ * its own words.
+ * <p>
+ * Byte columns are the values of one field laid end to end in a single array, value <code>i</code> being the bytes from
+ * <code>offsets[i]</code> to <code>offsets[i + 1]</code>, in an ASCII compatible charset. Their digits are looked for 8
+ * bytes at a time.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class JStringColumns
+{
+  /**
+   * The number of values from which a column is scanned in parallel.
+   */
+  public static final int   PARALLEL_THRESHOLD = 1 << 14;
+
+  // The number of mask words, 4096 values, below which a task is not split further
+  private static final int  TASK_WORDS         = 64;
+
+  private static final long ONES               = 0x0101010101010101L;
+
+  private static final long HIGH_BITS          = 0x8080808080808080L;
+
+  private JStringColumns()
+  {
+    // empty utility class
+  }
+
+  /**
+   * @param values - CharSequence[], possibly with nulls
+   * @return the mask of the values with any of the digits <code>0</code> to <code>9</code>
+   * @see JStringUtils#hasDigit(CharSequence)
+   */
+  public static long[] hasDigit(CharSequence[] values)
+  {
+    return hasDigit(Arrays.asList(values));
+  }
+
+  /**
+   * @param values - List&lt;? extends CharSequence&gt;, random access, possibly with nulls
+   * @return the mask of the values with any of the digits <code>0</code> to <code>9</code>
+   * @see JStringUtils#hasDigit(CharSequence)
+   */
+  public static long[] hasDigit(final List<? extends CharSequence> values)
+  {
+    return scan(new Scan(values.size())
+    {
+      @Override
+      long word(int from, int to)
+      {
+        long word = 0;
+        for (int i = from; i < to; i++)
+        {
+          final CharSequence value = values.get(i);
+          if (value != null && JStringUtils.hasDigit(value))
+          {
+            word |= 1L << i;
+          }
+        }
+        return word;
+      }
+    });
+  }
+
+  /**
+   * @param data - The bytes of the column
+   * @param offsets - The offset of each value in <i>data</i>, followed by the offset just after the last one
+   * @return the mask of the values with any of the digits <code>0</code> to <code>9</code>
+   */
+  public static long[] hasDigit(byte[] data, final int[] offsets)
+  {
+    final ByteBuffer buffer = ByteBuffer.wrap(data);
+    return scan(new Scan(offsets.length - 1)
+    {
+      @Override
+      long word(int from, int to)
+      {
+        long word = 0;
+        for (int i = from; i < to; i++)
+        {
+          if (hasDigit(buffer, offsets[i], offsets[i + 1]))
+          {
+            word |= 1L << i;
+          }
+        }
+        return word;
+      }
+    });
+  }
+
+  /**
+   * @param values - CharSequence[], possibly with nulls
+   * @return the mask of the null or empty values
+   * @see JStringUtils#isNullOrEmpty(String)
+   */
+  public static long[] isNullOrEmpty(CharSequence[] values)
+  {
+    return isNullOrEmpty(Arrays.asList(values));
+  }
+
+  /**
+   * @param values - List&lt;? extends CharSequence&gt;, random access, possibly with nulls
+   * @return the mask of the null or empty values
+   * @see JStringUtils#isNullOrEmpty(String)
+   */
+  public static long[] isNullOrEmpty(final List<? extends CharSequence> values)
+  {
+    return scan(new Scan(values.size())
+    {
+      @Override
+      long word(int from, int to)
+      {
+        long word = 0;
+        for (int i = from; i < to; i++)
+        {
+          final CharSequence value = values.get(i);
+          if (value == null || value.length() == 0)
+          {
+            word |= 1L << i;
+          }
+        }
+        return word;
+      }
+    });
+  }
+
+  /**
+   * @param offsets - The offsets of the values of a byte column, followed by the offset just after the last one
+   * @return the mask of the empty values
+   */
+  public static long[] isNullOrEmpty(final int[] offsets)
+  {
+    return scan(new Scan(offsets.length - 1)
+    {
+      @Override
+      long word(int from, int to)
+      {
+        long word = 0;
+        for (int i = from; i < to; i++)
+        {
+          if (offsets[i] == offsets[i + 1])
+          {
+            word |= 1L << i;
+          }
+        }
+        return word;
+      }
+    });
+  }
+
+  /**
+   * @param values - CharSequence[], possibly with nulls
+   * @return the mask of the values neither null nor empty
+   * @see JStringUtils#hasValue(String)
+   */
+  public static long[] hasValue(CharSequence[] values)
+  {
+    return not(isNullOrEmpty(values), values.length);
+  }
+
+  /**
+   * @param values - List&lt;? extends CharSequence&gt;, random access, possibly with nulls
+   * @return the mask of the values neither null nor empty
+   * @see JStringUtils#hasValue(String)
+   */
+  public static long[] hasValue(List<? extends CharSequence> values)
+  {
+    return not(isNullOrEmpty(values), values.size());
+  }
+
+  /**
+   * @param offsets - The offsets of the values of a byte column, followed by the offset just after the last one
+   * @return the mask of the values that are not empty
+   */
+  public static long[] hasValue(int[] offsets)
+  {
+    return not(isNullOrEmpty(offsets), offsets.length - 1);
+  }
+
+  /**
+   * Look for a digit 8 bytes at a time, then byte by byte for the last few.
+   */
+  static boolean hasDigit(ByteBuffer data, int start, int end)
+  {
+    int i = start;
+    for (; i + 8 <= end; i += 8)
+    {
+      if (digitBytes(data.getLong(i)) != 0)
+      {
+        return true;
+      }
+    }
+    for (; i < end; i++)
+    {
+      final byte b = data.get(i);
+      if (b >= '0' && b <= '9')
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return <i>word</i> with the high bit of each byte that is a digit set, and every other bit clear
+   */
+  static long digitBytes(long word)
+  {
+    // Digits become 0 to 9, the only bytes that stay below 0x80 once 0x76 is added to their low 7 bits
+    final long shifted = word ^ (ONES * '0');
+    return ~(((shifted & ~HIGH_BITS) + ONES * 0x76) | shifted) & HIGH_BITS;
+  }
+
+  private static long[] not(long[] mask, int size)
+  {
+    for (int i = 0; i < mask.length; i++)
+    {
+      mask[i] = ~mask[i];
+    }
+    if ((size & 63) != 0)
+    {
+      mask[mask.length - 1] &= (1L << size) - 1;
+    }
+    return mask;
+  }
+
+  private static long[] scan(Scan scan)
+  {
+    final long[] mask = new long[(scan.size + 63) >>> 6];
+    if (scan.size < PARALLEL_THRESHOLD)
+    {
+      scan.fill(mask, 0, mask.length);
+    }
+    else
+    {
+      Pool.POOL.invoke(new ScanTask(scan, mask, 0, mask.length));
+    }
+    return mask;
+  }
+
+  /**
+   * A predicate over the values of a column.
+   */
+  private abstract static class Scan
+  {
+    final int size;
+
+    Scan(int size)
+    {
+      if (size < 0)
+      {
+        throw new IllegalArgumentException("A column needs at least one offset");
+      }
+      this.size = size;
+    }
+
+    /**
+     * @return the mask bits of the values from <i>from</i> to <i>to</i>, within the same word; shifts only use the low
+     *         6 bits of the index
+     */
+    abstract long word(int from, int to);
+
+    void fill(long[] mask, int fromWord, int toWord)
+    {
+      for (int w = fromWord; w < toWord; w++)
+      {
+        final int from = w << 6;
+        mask[w] = word(from, Math.min(from + 64, this.size));
+      }
+    }
+  }
+
+  private static final class ScanTask extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private final Scan        scan;
+
+    private final long[]      mask;
+
+    private final int         fromWord;
+
+    private final int         toWord;
+
+    ScanTask(Scan scan, long[] mask, int fromWord, int toWord)
+    {
+      this.scan = scan;
+      this.mask = mask;
+      this.fromWord = fromWord;
+      this.toWord = toWord;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (this.toWord - this.fromWord <= TASK_WORDS)
+      {
+        this.scan.fill(this.mask, this.fromWord, this.toWord);
+        return;
+      }
+
+      final int middle = (this.fromWord + this.toWord) >>> 1;
+      invokeAll(new ScanTask(this.scan, this.mask, this.fromWord, middle), new ScanTask(this.scan, this.mask, middle,
+              this.toWord));
+    }
+  }
+
+  /**
+   * Created on the first parallel scan only.
+   */
+  private static final class Pool
+  {
+    static final ForkJoinPool POOL = new ForkJoinPool();
+  }
+}
@@ -6,12 +6,21 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.RandomAccess;
 
 import javax.annotation.Nullable;
 
@@ -62,8 +71,67 @@ public final class JStringUtils
 
   public static final String  IS            = "is";
 
+  public static final String  SET           = "set";
+
   public static final Charset UTF8_CHARSET  = Charset.forName("UTF-8");
 
+  /**
+   * Where {@link JStringUtils#pad(String, int, char, Alignment)} places the text within the padding.
+   */
+  public enum Alignment
+  {
+    /**
+     * Text first, padded at the end.
+     */
+    LEFT,
+
+    /**
+     * Padded at the beginning, text last.
+     */
+    RIGHT,
+
+    /**
+     * Text in the middle, with any odd padding character at the end.
+     */
+    CENTER;
+
+    /**
+     * @return how much of <i>padLength</i> goes before the text
+     */
+    int before(int padLength)
+    {
+      switch (this)
+      {
+        case RIGHT:
+          return padLength;
+        case CENTER:
+          return padLength / 2;
+        default:
+          return 0;
+      }
+    }
+  }
+
+  private static final int                              FILLER_LENGTH          = 256;
+
+  /**
+   * The length assumed for elements whose length is not known up front when sizing a join.
+   */
+  private static final int                              DEFAULT_ELEMENT_LENGTH = 16;
+
+  private static final int                              JOIN_SAMPLES           = 16;
+
+  private static final int                              INT_DIGITS             = 11;
+
+  private static final int                              LONG_DIGITS            = 20;
+
+  /**
+   * {@link #FILLER_LENGTH} spaces and zeros, the usual pad characters, wider pads are written from them in a loop.
+   */
+  private static final char[]                           SPACES                 = newFiller(' ', FILLER_LENGTH);
+
+  private static final char[]                           ZEROS                  = newFiller('0', FILLER_LENGTH);
+
   private JStringUtils()
   {
     // empty utility class
@@ -88,24 +156,81 @@ public final class JStringUtils
 
   /**
    * Remove spaces from the beginning.
+   * <p>
+   * Whitespace is what the regular expression <code>\s</code> matches, i.e. <code>[ \t\n\x0B\f\r]</code>. The
+   * original instance is returned if there is nothing to remove.
    * 
    * @param source
    * @return the trimmed String
    */
   public static String ltrim(String source)
   {
-    return source.replaceAll("^\\s+", EMPTY);
+    final int start = leadingWhitespaceEnd(source);
+
+    return start == 0 ? source : source.substring(start);
+  }
+
+  /**
+   * Remove spaces from the beginning, without copying: same as {@link #ltrim(String)}, but returns a
+   * sub-sequence of <i>source</i>, or <i>source</i> itself if there is nothing to remove.
+   * 
+   * @param source
+   * @return the trimmed CharSequence
+   */
+  public static CharSequence ltrim(CharSequence source)
+  {
+    final int start = leadingWhitespaceEnd(source);
+
+    return start == 0 ? source : source.subSequence(start, source.length());
   }
 
   /**
    * Remove trailing whitespace.
+   * <p>
+   * Whitespace is what the regular expression <code>\s</code> matches, i.e. <code>[ \t\n\x0B\f\r]</code>. Like the
+   * regular expression <code>\s+$</code>, whitespace just before a final U+0085, U+2028 or U+2029 line terminator is
+   * removed and the terminator kept. The original instance is returned if there is nothing to remove.
    * 
    * @param source
    * @return the trimmed String
    */
   public static String rtrim(String source)
   {
-    return source.replaceAll("\\s+$", EMPTY);
+    final int length = source.length();
+    final int end = trailingWhitespaceStart(source, length);
+    if (end == length)
+    {
+      return source;
+    }
+    if (isFinalLineTerminator(source, length))
+    {
+      return source.substring(0, end) + source.charAt(length - 1);
+    }
+
+    return source.substring(0, end);
+  }
+
+  /**
+   * Remove trailing whitespace, without copying: same as {@link #rtrim(String)}, but returns a sub-sequence
+   * of <i>source</i>, or <i>source</i> itself if there is nothing to remove.
+   * 
+   * @param source
+   * @return the trimmed CharSequence
+   */
+  public static CharSequence rtrim(CharSequence source)
+  {
+    final int length = source.length();
+    final int end = trailingWhitespaceStart(source, length);
+    if (end == length)
+    {
+      return source;
+    }
+    if (isFinalLineTerminator(source, length))
+    {
+      return new StringBuilder(end + 1).append(source, 0, end).append(source.charAt(length - 1)).toString();
+    }
+
+    return source.subSequence(0, end);
   }
 
   /**
@@ -116,15 +241,79 @@ public final class JStringUtils
    */
   public static boolean hasDigit(String str)
   {
-    final Pattern pattern = Pattern.compile("[0-9]");
-    final Matcher matcher = pattern.matcher(str);
-    while (matcher.find())
+    return hasDigit((CharSequence)str);
+  }
+
+  /**
+   * Returns true if this character sequence contains any of the digits <code>0</code> to <code>9</code>,
+   * false otherwise.
+   * 
+   * @param str
+   * @return hasDigit Boolean
+   * @see JStringColumns#hasDigit(CharSequence[]) for whole columns
+   */
+  public static boolean hasDigit(CharSequence str)
+  {
+    final int length = str.length();
+    for (int i = 0; i < length; i++)
     {
-      return true;
+      final char c = str.charAt(i);
+      if (c >= '0' && c <= '9')
+      {
+        return true;
+      }
     }
     return false;
   }
 
+  /**
+   * Returns true for the characters matched by the regular expression <code>\s</code>.
+   */
+  private static boolean isWhitespace(char c)
+  {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  /**
+   * Returns true if the last character is a line terminator that is not whitespace, the regular expression
+   * <code>$</code> then also matches just before it.
+   */
+  private static boolean isFinalLineTerminator(CharSequence source, int length)
+  {
+    if (length == 0)
+    {
+      return false;
+    }
+    final char c = source.charAt(length - 1);
+    return c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  private static int leadingWhitespaceEnd(CharSequence source)
+  {
+    final int length = source.length();
+    int start = 0;
+    while (start < length && isWhitespace(source.charAt(start)))
+    {
+      start++;
+    }
+    return start;
+  }
+
+  /**
+   * @return the index of the first trailing whitespace character, before the final line terminator if there is one,
+   *         or <i>length</i> if there is none
+   */
+  private static int trailingWhitespaceStart(CharSequence source, int length)
+  {
+    final int last = isFinalLineTerminator(source, length) ? length - 1 : length;
+    int end = last;
+    while (end > 0 && isWhitespace(source.charAt(end - 1)))
+    {
+      end--;
+    }
+    return end == last ? length : end;
+  }
+
   /**
    * Pad string with a character at end of text.
    * 
@@ -135,38 +324,145 @@ public final class JStringUtils
    */
   public static String pad(String rawString, int length, char padChar)
   {
-    String padded = rawString;
-    String padFiller = null;
+    return pad(rawString, length, padChar, Alignment.LEFT);
+  }
 
-    if (padded.length() == length)
+  /**
+   * Pad string with a character to <i>length</i>, placing the text as per <i>alignment</i>. Text longer than
+   * <i>length</i> is truncated to its first <i>length</i> characters, whatever the alignment.
+   * 
+   * @param rawString
+   * @param length - total length of the desired string
+   * @param padChar - character to pad the text with
+   * @param alignment - where to place the text
+   * @return the padded String, <i>rawString</i> itself if it is already <i>length</i> long
+   */
+  public static String pad(String rawString, int length, char padChar, Alignment alignment)
+  {
+    if (rawString.length() == length)
+    {
+      return rawString;
+    }
+    if (rawString.length() > length)
     {
-      return padded;
+      return rawString.substring(0, length);
     }
 
-    if (padded.length() < length)
+    final char[] padded = new char[length];
+    pad(padded, 0, rawString, length, padChar, alignment);
+    return new String(padded);
+  }
+
+  /**
+   * Append text padded to <i>length</i> with a character, without any intermediate String. Text longer than
+   * <i>length</i> is truncated to its first <i>length</i> characters, whatever the alignment.
+   * 
+   * @param sb - the StringBuilder to append to
+   * @param raw - the text to pad
+   * @param length - the number of characters to append
+   * @param padChar - character to pad the text with
+   * @param alignment - where to place the text
+   * @return <i>sb</i>
+   */
+  public static StringBuilder pad(StringBuilder sb, CharSequence raw, int length, char padChar, Alignment alignment)
+  {
+    final int textLength = Math.min(raw.length(), length);
+    final int padLength = length - textLength;
+    final int before = alignment.before(padLength);
+    final char[] filler = filler(padChar, padLength);
+
+    fill(sb, filler, before);
+    sb.append(raw, 0, textLength);
+    fill(sb, filler, padLength - before);
+    return sb;
+  }
+
+  /**
+   * Write text padded to <i>length</i> with a character into an array. Text longer than <i>length</i> is truncated to
+   * its first <i>length</i> characters, whatever the alignment.
+   * 
+   * @param dest - the array to write to
+   * @param offset - where to start writing in <i>dest</i>
+   * @param raw - the text to pad
+   * @param length - the number of characters to write
+   * @param padChar - character to pad the text with
+   * @param alignment - where to place the text
+   * @return the offset just after the padded text, <i>offset + length</i>
+   */
+  public static int pad(char[] dest, int offset, CharSequence raw, int length, char padChar, Alignment alignment)
+  {
+    if (offset < 0 || length < 0 || offset + length > dest.length)
     {
-      //
-      // Keep a zero string that is big enough to pad the
-      // largest field that we have, then to pad each field
-      // we just append this string to the field and then
-      // substr to the desired size.
-      //
-      StringBuffer buff = new StringBuffer(length);
+      throw new IndexOutOfBoundsException("Cannot write " + length + " characters at " + offset + " in an array of "
+              + dest.length);
+    }
+
+    final int textLength = Math.min(raw.length(), length);
+    final int padLength = length - textLength;
+    final int before = alignment.before(padLength);
+    final char[] filler = filler(padChar, padLength);
 
-      for (int i = buff.length(); i < length; i++)
+    int position = fill(dest, offset, filler, before);
+    if (raw instanceof String)
+    {
+      ((String)raw).getChars(0, textLength, dest, position);
+    }
+    else
+    {
+      for (int i = 0; i < textLength; i++)
       {
-        buff.append(padChar);
+        dest[position + i] = raw.charAt(i);
       }
-      padFiller = buff.toString();
+    }
+    position += textLength;
+    return fill(dest, position, filler, padLength - before);
+  }
+
+  /**
+   * @return an array of <i>padChar</i> to write <i>length</i> of them from, in a loop if needed, shared for spaces and
+   *         zeros and never to be modified
+   */
+  private static char[] filler(char padChar, int length)
+  {
+    switch (padChar)
+    {
+      case ' ':
+        return SPACES;
+      case '0':
+        return ZEROS;
+      default:
+        return newFiller(padChar, Math.min(length, FILLER_LENGTH));
+    }
+  }
 
-      padded = rawString + padFiller;
-      return padded.substring(0, length);
+  private static char[] newFiller(char padChar, int length)
+  {
+    final char[] filler = new char[length];
+    Arrays.fill(filler, padChar);
+    return filler;
+  }
 
+  private static void fill(StringBuilder sb, char[] filler, int count)
+  {
+    for (int remaining = count; remaining > 0; remaining -= filler.length)
+    {
+      sb.append(filler, 0, Math.min(remaining, filler.length));
     }
-    else
+  }
+
+  /**
+   * @return the offset just after the <i>count</i> characters written
+   */
+  private static int fill(char[] dest, int offset, char[] filler, int count)
+  {
+    int position = offset;
+    for (int remaining = count; remaining > 0; remaining -= filler.length)
     {
-      return padded.substring(0, length);
+      final int length = Math.min(remaining, filler.length);
+      System.arraycopy(filler, 0, dest, position, length);
+      position += length;
     }
+    return position;
   }
 
   /**
@@ -179,7 +475,10 @@ public final class JStringUtils
    * @param charset - String, the character set
    * @return String
    * @throws IOException
+   * @deprecated the line terminators are dropped, use {@link #decode(InputStream, Charset)} instead, or
+   *             {@link JStreamDecoder} to reuse buffers or process the stream in chunks
    */
+  @Deprecated
   public static String convertInputStreamToString(InputStream is, String charset) throws IOException
   {
     if (is == null)
@@ -218,6 +517,20 @@ public final class JStringUtils
     return sb.toString();
   }
 
+  /**
+   * Map a text file into memory, to read it as lines or slices without copying it onto the heap.
+   * 
+   * @param path - Path of the file
+   * @param charset - Charset of the file
+   * @return JMappedTextFile - to be closed by the caller
+   * @throws IOException
+   * @see JMappedTextFile
+   */
+  public static JMappedTextFile mapTextFile(Path path, Charset charset) throws IOException
+  {
+    return JMappedTextFile.open(path, charset);
+  }
+
   /**
    * Upper case the first character of the supplied string.
    * 
@@ -248,6 +561,321 @@ public final class JStringUtils
     return StringUtils.join(collection, separator);
   }
 
+  /**
+   * Estimate the length of the joined elements, to size the target up front. The average length of the first few
+   * elements of a random access List stands for the rest, other elements count for 16 characters each.
+   * 
+   * @param collection - Collection&lt;?&gt;
+   * @param separator - CharSequence
+   * @return the estimated number of characters
+   */
+  public static int estimateJoinedLength(Collection<?> collection, CharSequence separator)
+  {
+    final int size = collection.size();
+    if (size == 0)
+    {
+      return 0;
+    }
+
+    int averageLength = DEFAULT_ELEMENT_LENGTH;
+    if (collection instanceof List && collection instanceof RandomAccess)
+    {
+      final List<?> list = (List<?>)collection;
+      final int samples = Math.min(size, JOIN_SAMPLES);
+      long sampled = 0;
+      for (int i = 0; i < samples; i++)
+      {
+        final Object element = list.get(i);
+        sampled += element instanceof CharSequence ? ((CharSequence)element).length() : DEFAULT_ELEMENT_LENGTH;
+      }
+      averageLength = (int)((sampled + samples - 1) / samples);
+    }
+
+    final long estimate = (long)size * averageLength + (long)(size - 1) * separator.length();
+    return (int)Math.min(estimate, Integer.MAX_VALUE - 8);
+  }
+
+  /**
+   * Join elements into an Appendable as they are iterated, without building the joined String, e.g. to stream a large
+   * collection to a {@link Writer}. A StringBuilder is first grown to fit
+   * {@link #estimateJoinedLength(Collection, CharSequence)}. Null elements are appended as empty, as by
+   * {@link #join(Collection, String)}.
+   * 
+   * @param out - the Appendable to write to
+   * @param elements - Iterable&lt;?&gt;
+   * @param separator - CharSequence
+   * @return <i>out</i>
+   * @throws IOException - if <i>out</i> throws it
+   */
+  public static <A extends Appendable> A join(A out, Iterable<?> elements, CharSequence separator) throws IOException
+  {
+    if (out instanceof StringBuilder && elements instanceof Collection)
+    {
+      final StringBuilder sb = (StringBuilder)out;
+      sb.ensureCapacity(sb.length() + estimateJoinedLength((Collection<?>)elements, separator));
+    }
+    return join(out, elements.iterator(), separator);
+  }
+
+  /**
+   * Join the remaining elements of an Iterator into an Appendable, without building the joined String.
+   * 
+   * @param out - the Appendable to write to
+   * @param elements - Iterator&lt;?&gt;
+   * @param separator - CharSequence
+   * @return <i>out</i>
+   * @throws IOException - if <i>out</i> throws it
+   */
+  public static <A extends Appendable> A join(A out, Iterator<?> elements, CharSequence separator) throws IOException
+  {
+    if (elements.hasNext())
+    {
+      appendElement(out, elements.next());
+    }
+    while (elements.hasNext())
+    {
+      out.append(separator);
+      appendElement(out, elements.next());
+    }
+    return out;
+  }
+
+  /**
+   * Join numbers into an Appendable, without creating a String per number.
+   * 
+   * @param out - the Appendable to write to
+   * @param values - int[]
+   * @param separator - CharSequence
+   * @return <i>out</i>
+   * @throws IOException - if <i>out</i> throws it
+   */
+  public static <A extends Appendable> A join(A out, int[] values, CharSequence separator) throws IOException
+  {
+    if (out instanceof StringBuilder)
+    {
+      final StringBuilder sb = (StringBuilder)out;
+      sb.ensureCapacity(sb.length() + estimateJoinedLength(values.length, INT_DIGITS, separator));
+      for (int i = 0; i < values.length; i++)
+      {
+        (i == 0 ? sb : sb.append(separator)).append(values[i]);
+      }
+      return out;
+    }
+
+    final char[] digits = new char[LONG_DIGITS];
+    final CharBuffer view = CharBuffer.wrap(digits);
+    for (int i = 0; i < values.length; i++)
+    {
+      if (i > 0)
+      {
+        out.append(separator);
+      }
+      appendDigits(out, digits, view, formatLong(values[i], digits));
+    }
+    return out;
+  }
+
+  /**
+   * Join numbers into an Appendable, without creating a String per number.
+   * 
+   * @param out - the Appendable to write to
+   * @param values - long[]
+   * @param separator - CharSequence
+   * @return <i>out</i>
+   * @throws IOException - if <i>out</i> throws it
+   */
+  public static <A extends Appendable> A join(A out, long[] values, CharSequence separator) throws IOException
+  {
+    if (out instanceof StringBuilder)
+    {
+      final StringBuilder sb = (StringBuilder)out;
+      sb.ensureCapacity(sb.length() + estimateJoinedLength(values.length, LONG_DIGITS, separator));
+      for (int i = 0; i < values.length; i++)
+      {
+        (i == 0 ? sb : sb.append(separator)).append(values[i]);
+      }
+      return out;
+    }
+
+    final char[] digits = new char[LONG_DIGITS];
+    final CharBuffer view = CharBuffer.wrap(digits);
+    for (int i = 0; i < values.length; i++)
+    {
+      if (i > 0)
+      {
+        out.append(separator);
+      }
+      appendDigits(out, digits, view, formatLong(values[i], digits));
+    }
+    return out;
+  }
+
+  /**
+   * Join numbers into an Appendable, formatted as by {@link Double#toString(double)}.
+   * 
+   * @param out - the Appendable to write to
+   * @param values - double[]
+   * @param separator - CharSequence
+   * @return <i>out</i>
+   * @throws IOException - if <i>out</i> throws it
+   */
+  public static <A extends Appendable> A join(A out, double[] values, CharSequence separator) throws IOException
+  {
+    if (out instanceof StringBuilder)
+    {
+      final StringBuilder sb = (StringBuilder)out;
+      sb.ensureCapacity(sb.length() + estimateJoinedLength(values.length, DEFAULT_ELEMENT_LENGTH, separator));
+      for (int i = 0; i < values.length; i++)
+      {
+        (i == 0 ? sb : sb.append(separator)).append(values[i]);
+      }
+      return out;
+    }
+
+    for (int i = 0; i < values.length; i++)
+    {
+      if (i > 0)
+      {
+        out.append(separator);
+      }
+      out.append(Double.toString(values[i]));
+    }
+    return out;
+  }
+
+  /**
+   * Join elements straight into an existing buffer, heap or direct, with this thread's encoder for <i>charset</i>.
+   * 
+   * @param dest - the ByteBuffer to write to, from its position
+   * @param elements - Iterable&lt;?&gt;
+   * @param separator - CharSequence
+   * @param charset - Charset
+   * @return the number of bytes written
+   * @throws BufferOverflowException - if <i>dest</i> is too small, its position is then unchanged
+   */
+  public static int join(ByteBuffer dest, Iterable<?> elements, CharSequence separator, Charset charset)
+  {
+    final int start = dest.position();
+    final byte[] encodedSeparator = separator.toString().getBytes(charset);
+    try
+    {
+      boolean first = true;
+      for (final Object element : elements)
+      {
+        if (!first)
+        {
+          dest.put(encodedSeparator);
+        }
+        first = false;
+        if (element != null)
+        {
+          encode(element instanceof CharSequence ? (CharSequence)element : element.toString(), charset, dest);
+        }
+      }
+    }
+    catch (BufferOverflowException e)
+    {
+      dest.position(start);
+      throw e;
+    }
+    return dest.position() - start;
+  }
+
+  /**
+   * Join numbers straight into an existing buffer, heap or direct, without creating a String per number.
+   * 
+   * @param dest - the ByteBuffer to write to, from its position
+   * @param values - long[]
+   * @param separator - CharSequence
+   * @param charset - Charset
+   * @return the number of bytes written
+   * @throws BufferOverflowException - if <i>dest</i> is too small, its position is then unchanged
+   */
+  public static int join(ByteBuffer dest, long[] values, CharSequence separator, Charset charset)
+  {
+    final int start = dest.position();
+    final byte[] encodedSeparator = separator.toString().getBytes(charset);
+    final char[] digits = new char[LONG_DIGITS];
+    final CharBuffer view = CharBuffer.wrap(digits);
+    try
+    {
+      for (int i = 0; i < values.length; i++)
+      {
+        if (i > 0)
+        {
+          dest.put(encodedSeparator);
+        }
+        view.limit(LONG_DIGITS).position(formatLong(values[i], digits));
+        encode(view, charset, dest);
+      }
+    }
+    catch (BufferOverflowException e)
+    {
+      dest.position(start);
+      throw e;
+    }
+    return dest.position() - start;
+  }
+
+  private static int estimateJoinedLength(int count, int elementLength, CharSequence separator)
+  {
+    if (count == 0)
+    {
+      return 0;
+    }
+    final long estimate = (long)count * elementLength + (long)(count - 1) * separator.length();
+    return (int)Math.min(estimate, Integer.MAX_VALUE - 8);
+  }
+
+  private static void appendElement(Appendable out, Object element) throws IOException
+  {
+    if (element instanceof CharSequence)
+    {
+      out.append((CharSequence)element);
+    }
+    else if (element != null)
+    {
+      out.append(element.toString());
+    }
+  }
+
+  /**
+   * Write the decimal digits of <i>value</i> at the end of <i>digits</i>.
+   * 
+   * @return the offset of the first character written
+   */
+  private static int formatLong(long value, char[] digits)
+  {
+    // Negative, so that Long.MIN_VALUE does not overflow
+    long remaining = value > 0 ? -value : value;
+    int i = digits.length;
+    do
+    {
+      digits[--i] = (char)('0' - remaining % 10);
+      remaining /= 10;
+    }
+    while (remaining != 0);
+
+    if (value < 0)
+    {
+      digits[--i] = '-';
+    }
+    return i;
+  }
+
+  private static void appendDigits(Appendable out, char[] digits, CharBuffer view, int start) throws IOException
+  {
+    if (out instanceof Writer)
+    {
+      ((Writer)out).write(digits, start, digits.length - start);
+    }
+    else
+    {
+      view.limit(digits.length).position(start);
+      out.append(view);
+    }
+  }
+
   /**
    * Split a string into a {@link List} of Strings, given the String
    * of "seperator" characters.
@@ -255,6 +883,7 @@ public final class JStringUtils
    * @param str
    * @param separatorChars
    * @return the split String as a List
+   * @see Tokenizer to read only some of the tokens, without creating a String per token
    */
   public static List<String> split(String str, String separatorChars)
   {
@@ -274,6 +903,45 @@ public final class JStringUtils
     return new String(bytes, charset);
   }
 
+  /**
+   * Decode an InputStream, keeping its line terminators, and close it.
+   * 
+   * @param is - InputStream
+   * @param charset - Charset
+   * @return String - the decoded stream, or {@link #EMPTY} if it is null
+   * @throws IOException
+   */
+  public static String decode(InputStream is, Charset charset) throws IOException
+  {
+    return decode(is, charset, -1);
+  }
+
+  /**
+   * Decode an InputStream, keeping its line terminators, and close it.
+   * 
+   * @param is - InputStream
+   * @param charset - Charset
+   * @param sizeHint - the expected number of bytes, or -1 if unknown
+   * @return String - the decoded stream, or {@link #EMPTY} if it is null
+   * @throws IOException
+   */
+  public static String decode(InputStream is, Charset charset, int sizeHint) throws IOException
+  {
+    if (is == null)
+    {
+      return EMPTY;
+    }
+
+    try
+    {
+      return new JStreamDecoder(charset).decode(is, sizeHint);
+    }
+    finally
+    {
+      is.close();
+    }
+  }
+
   /**
    * @param string
    * @param charset
@@ -284,6 +952,247 @@ public final class JStringUtils
     return string.getBytes(charset);
   }
 
+  /**
+   * Encode characters into an existing buffer, heap or direct, with this thread's encoder for <i>charset</i>.
+   * Characters that cannot be encoded are replaced, as by {@link String#getBytes(Charset)}.
+   * 
+   * @param chars - the characters to encode
+   * @param charset - Charset
+   * @param dest - the ByteBuffer to write to, from its position
+   * @return the number of bytes written
+   * @throws BufferOverflowException - if <i>dest</i> is too small, its position is then unchanged
+   */
+  public static int encode(CharSequence chars, Charset charset, ByteBuffer dest)
+  {
+    try
+    {
+      return encode(chars, JCoders.encoder(charset), dest);
+    }
+    catch (CharacterCodingException e)
+    {
+      throw new IllegalStateException("Encoder replacing errors threw " + e, e);
+    }
+  }
+
+  /**
+   * Encode characters into an existing buffer, heap or direct, with the caller's encoder. ASCII characters are copied
+   * as is for UTF-8, ISO-8859-1 and US-ASCII, the encoder only sees the rest.
+   * 
+   * @param chars - the characters to encode
+   * @param encoder - the CharsetEncoder to use, reset by this method
+   * @param dest - the ByteBuffer to write to, from its position
+   * @return the number of bytes written
+   * @throws CharacterCodingException - if the encoder reports an error, the position of <i>dest</i> is then unchanged
+   * @throws BufferOverflowException - if <i>dest</i> is too small, its position is then unchanged
+   */
+  public static int encode(CharSequence chars, CharsetEncoder encoder, ByteBuffer dest) throws CharacterCodingException
+  {
+    final int start = dest.position();
+    final int length = chars.length();
+
+    int i = 0;
+    if (JCoders.isAsciiCompatible(encoder.charset()))
+    {
+      final int count = Math.min(length, dest.remaining());
+      if (dest.hasArray())
+      {
+        final byte[] array = dest.array();
+        final int base = dest.arrayOffset() + start;
+        for (char c; i < count && (c = chars.charAt(i)) < 0x80; i++)
+        {
+          array[base + i] = (byte)c;
+        }
+        dest.position(start + i);
+      }
+      else
+      {
+        for (char c; i < count && (c = chars.charAt(i)) < 0x80; i++)
+        {
+          dest.put((byte)c);
+        }
+      }
+    }
+
+    if (i < length)
+    {
+      encoder.reset();
+      CoderResult result = encoder.encode(CharBuffer.wrap(chars, i, length), dest, true);
+      if (result.isUnderflow())
+      {
+        result = encoder.flush(dest);
+      }
+      if (!result.isUnderflow())
+      {
+        dest.position(start);
+        if (result.isOverflow())
+        {
+          throw new BufferOverflowException();
+        }
+        result.throwException();
+      }
+    }
+    return dest.position() - start;
+  }
+
+  /**
+   * Decode a slice of an array.
+   * 
+   * @param bytes - byte[]
+   * @param offset - the offset of the first byte to decode
+   * @param length - the number of bytes to decode
+   * @param charset - Charset
+   * @return String
+   */
+  public static String decode(byte[] bytes, int offset, int length, Charset charset)
+  {
+    return new String(bytes, offset, length, charset);
+  }
+
+  /**
+   * Decode a slice of an array into the canonical instance of its value, without creating a String if <i>cache</i>
+   * already has it.
+   * 
+   * @param bytes - byte[]
+   * @param offset - the offset of the first byte to decode
+   * @param length - the number of bytes to decode
+   * @param charset - Charset
+   * @param cache - the JStringCache holding the canonical values
+   * @return String
+   */
+  public static String decode(byte[] bytes, int offset, int length, Charset charset, JStringCache cache)
+  {
+    return cache.intern(bytes, offset, length, charset);
+  }
+
+  /**
+   * Decode a slice of an array into an existing array, with this thread's decoder for <i>charset</i>. ASCII bytes are
+   * copied as is for UTF-8, ISO-8859-1 and US-ASCII. Malformed input is replaced, as by
+   * {@link String#String(byte[], Charset)}.
+   * 
+   * @param bytes - byte[]
+   * @param offset - the offset of the first byte to decode
+   * @param length - the number of bytes to decode
+   * @param charset - Charset
+   * @param dest - the array to write to
+   * @param destOffset - where to start writing in <i>dest</i>
+   * @return the number of characters written
+   * @throws BufferOverflowException - if <i>dest</i> is too small
+   */
+  public static int decode(byte[] bytes, int offset, int length, Charset charset, char[] dest, int destOffset)
+  {
+    if (offset < 0 || length < 0 || offset + length > bytes.length || destOffset < 0 || destOffset > dest.length)
+    {
+      throw new IndexOutOfBoundsException("Cannot decode " + length + " bytes at " + offset + " of " + bytes.length
+              + " into " + destOffset + " of " + dest.length);
+    }
+
+    int i = 0;
+    if (JCoders.isAsciiCompatible(charset))
+    {
+      final int count = Math.min(length, dest.length - destOffset);
+      for (byte b; i < count && (b = bytes[offset + i]) >= 0; i++)
+      {
+        dest[destOffset + i] = (char)b;
+      }
+    }
+    if (i == length)
+    {
+      return i;
+    }
+
+    final CharsetDecoder decoder = JCoders.decoder(charset);
+    final CharBuffer out = CharBuffer.wrap(dest, destOffset + i, dest.length - destOffset - i);
+    CoderResult result = decoder.decode(ByteBuffer.wrap(bytes, offset + i, length - i), out, true);
+    if (result.isUnderflow())
+    {
+      result = decoder.flush(out);
+    }
+    if (result.isOverflow())
+    {
+      throw new BufferOverflowException();
+    }
+    return out.position() - destOffset;
+  }
+
+  /**
+   * Decode the remaining bytes of a buffer, heap or direct, with this thread's decoder for <i>charset</i>. Malformed
+   * input is replaced, as by {@link String#String(byte[], Charset)}.
+   * 
+   * @param src - the ByteBuffer to decode, from its position to its limit, which it is moved to
+   * @param charset - Charset
+   * @return String
+   */
+  public static String decode(ByteBuffer src, Charset charset)
+  {
+    final int length = src.remaining();
+    if (src.hasArray())
+    {
+      final String decoded = new String(src.array(), src.arrayOffset() + src.position(), length, charset);
+      src.position(src.limit());
+      return decoded;
+    }
+
+    final CharsetDecoder decoder = JCoders.decoder(charset);
+    final char[] chars = new char[(int)Math.ceil(length * (double)decoder.maxCharsPerByte())];
+    final CharBuffer out = CharBuffer.wrap(chars);
+    decoder.decode(src, out, true);
+    decoder.flush(out);
+    return new String(chars, 0, out.position());
+  }
+
+  /**
+   * Decode the remaining bytes of a buffer, heap or direct, into an existing buffer with the caller's decoder. ASCII
+   * bytes are copied as is for UTF-8, ISO-8859-1 and US-ASCII, the decoder only sees the rest.
+   * 
+   * @param src - the ByteBuffer to decode, from its position to its limit
+   * @param decoder - the CharsetDecoder to use, reset by this method
+   * @param dest - the CharBuffer to write to, from its position
+   * @return the number of characters written
+   * @throws CharacterCodingException - if the decoder reports an error, the positions are then unchanged
+   * @throws BufferOverflowException - if <i>dest</i> is too small, the positions are then unchanged
+   */
+  public static int decode(ByteBuffer src, CharsetDecoder decoder, CharBuffer dest) throws CharacterCodingException
+  {
+    final int srcStart = src.position();
+    final int start = dest.position();
+
+    if (JCoders.isAsciiCompatible(decoder.charset()))
+    {
+      final int count = Math.min(src.remaining(), dest.remaining());
+      for (int i = 0; i < count; i++)
+      {
+        final byte b = src.get(srcStart + i);
+        if (b < 0)
+        {
+          break;
+        }
+        dest.put((char)b);
+      }
+      src.position(srcStart + dest.position() - start);
+    }
+
+    if (src.hasRemaining())
+    {
+      decoder.reset();
+      CoderResult result = decoder.decode(src, dest, true);
+      if (result.isUnderflow())
+      {
+        result = decoder.flush(dest);
+      }
+      if (!result.isUnderflow())
+      {
+        src.position(srcStart);
+        dest.position(start);
+        if (result.isOverflow())
+        {
+          throw new BufferOverflowException();
+        }
+        result.throwException();
+      }
+    }
+    return dest.position() - start;
+  }
+
   /**
    * Returns true if the provided string is null or empty.
    * 
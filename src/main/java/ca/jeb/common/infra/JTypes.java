@@ -0,0 +1,147 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Type matching rules shared by the reflection caches, following those of
+ * {@link java.lang.reflect.Method#invoke(Object, Object...)}: boxing, unboxing and primitive widening.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+final class JTypes
+{
+  private static final Map<Class<?>, Class<?>> WRAPPERS   = new HashMap<>();
+
+  private static final Map<Class<?>, Class<?>> PRIMITIVES = new HashMap<>();
+
+  static
+  {
+    WRAPPERS.put(boolean.class, Boolean.class);
+    WRAPPERS.put(byte.class, Byte.class);
+    WRAPPERS.put(char.class, Character.class);
+    WRAPPERS.put(short.class, Short.class);
+    WRAPPERS.put(int.class, Integer.class);
+    WRAPPERS.put(long.class, Long.class);
+    WRAPPERS.put(float.class, Float.class);
+    WRAPPERS.put(double.class, Double.class);
+    WRAPPERS.put(void.class, Void.class);
+
+    for (Map.Entry<Class<?>, Class<?>> entry : WRAPPERS.entrySet())
+    {
+      PRIMITIVES.put(entry.getValue(), entry.getKey());
+    }
+  }
+
+  private JTypes()
+  {
+    // empty utility class
+  }
+
+  /**
+   * @param clazz - Any class
+   * @return the wrapper class if <i>clazz</i> is a primitive, otherwise <i>clazz</i>
+   */
+  static Class<?> wrap(Class<?> clazz)
+  {
+    final Class<?> wrapper = WRAPPERS.get(clazz);
+    return wrapper != null ? wrapper : clazz;
+  }
+
+  /**
+   * @param clazz - Any class
+   * @return the primitive class if <i>clazz</i> is a wrapper, otherwise <i>clazz</i>
+   */
+  static Class<?> unwrap(Class<?> clazz)
+  {
+    final Class<?> primitive = PRIMITIVES.get(clazz);
+    return primitive != null ? primitive : clazz;
+  }
+
+  /**
+   * Returns true if a value of type <i>argType</i> can be passed to a parameter of type <i>paramType</i> by reflection.
+   *
+   * @param paramType - The parameter type
+   * @param argType - The argument type, or null for a null argument
+   * @return boolean
+   */
+  static boolean isAssignable(Class<?> paramType, Class<?> argType)
+  {
+    if (argType == null)
+    {
+      return !paramType.isPrimitive();
+    }
+    if (paramType.isAssignableFrom(argType))
+    {
+      return true;
+    }
+    if (paramType.isPrimitive())
+    {
+      return isWidening(paramType, unwrap(argType));
+    }
+    return argType.isPrimitive() && paramType.isAssignableFrom(wrap(argType));
+  }
+
+  /**
+   * Returns true if every parameter in <i>a</i> is at least as specific as the one in <i>b</i>.
+   *
+   * @param a - Parameter types
+   * @param b - Parameter types, of the same length
+   * @return boolean
+   */
+  static boolean isMoreSpecific(Class<?>[] a, Class<?>[] b)
+  {
+    for (int i = 0; i < a.length; i++)
+    {
+      if (!isAssignable(b[i], a[i]))
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWidening(Class<?> to, Class<?> from)
+  {
+    if (to == from)
+    {
+      return true;
+    }
+    if (!from.isPrimitive() || from == boolean.class || to == boolean.class || to == char.class)
+    {
+      return false;
+    }
+    if (from == char.class)
+    {
+      return to == int.class || to == long.class || to == float.class || to == double.class;
+    }
+    return rank(to) > rank(from);
+  }
+
+  private static int rank(Class<?> clazz)
+  {
+    if (clazz == byte.class)
+    {
+      return 1;
+    }
+    if (clazz == short.class)
+    {
+      return 2;
+    }
+    if (clazz == int.class)
+    {
+      return 3;
+    }
+    if (clazz == long.class)
+    {
+      return 4;
+    }
+    if (clazz == float.class)
+    {
+      return 5;
+    }
+    return 6;
+  }
+}
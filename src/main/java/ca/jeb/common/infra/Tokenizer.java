@@ -0,0 +1,392 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+/**
+ * A reusable tokenizer over a {@link CharSequence} that yields the offsets of each token rather than a String, for
+ * callers that only look at some of the tokens.
+ * <p>
+ * Tokens are separated by a single delimiter character; adjacent delimiters delimit empty tokens, and an empty source
+ * has no tokens. A token starting with the quote character runs to the matching quote, delimiters included, and a
+ * doubled quote within it stands for one quote; anything between the closing quote and the next delimiter is ignored.
+ * The escape character, anywhere, makes the next character literal.
+ * <p>
+ * {@link #start()} and {@link #end()} are the offsets of the current token in the source, without its quotes. Only
+ * {@link #token()} creates a String, and {@link #appendTo(StringBuilder)} and {@link #contentEquals(CharSequence)}
+ * read the token without one; all three resolve quotes and escapes. Instances are not thread-safe, and are meant to be
+ * kept and {@link #reset(CharSequence) reset} for each line.
+ *
+ * <pre>
+ * final Tokenizer tokenizer = new Tokenizer(',', '"', Tokenizer.NONE);
+ * tokenizer.reset(line);
+ * if (tokenizer.advanceTo(3) &amp;&amp; tokenizer.contentEquals("EUR"))
+ * {
+ *   ...
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class Tokenizer
+{
+  /**
+   * No quote or escape character.
+   */
+  public static final char NONE = '\0';
+
+  private final char       delimiter;
+
+  private final char       quote;
+
+  private final char       escape;
+
+  private CharSequence     source;
+
+  private int              limit;
+
+  private int              position;
+
+  private boolean          done;
+
+  private int              index;
+
+  private int              start;
+
+  private int              end;
+
+  private boolean          quoted;
+
+  private boolean          escaped;
+
+  /**
+   * @param delimiter - The character between tokens
+   */
+  public Tokenizer(char delimiter)
+  {
+    this(delimiter, NONE, NONE);
+  }
+
+  /**
+   * @param delimiter - The character between tokens
+   * @param quote - The character around quoted tokens, or {@link #NONE}
+   * @param escape - The character making the next one literal, or {@link #NONE}
+   */
+  public Tokenizer(char delimiter, char quote, char escape)
+  {
+    if (delimiter == quote || delimiter == escape)
+    {
+      throw new IllegalArgumentException("The delimiter cannot also be the quote or escape character");
+    }
+    this.delimiter = delimiter;
+    this.quote = quote;
+    this.escape = escape;
+    reset(JStringUtils.EMPTY);
+  }
+
+  /**
+   * Start tokenizing a new source.
+   *
+   * @param source - The CharSequence to tokenize
+   * @return this Tokenizer
+   */
+  public Tokenizer reset(CharSequence source)
+  {
+    return reset(source, 0, source.length());
+  }
+
+  /**
+   * Start tokenizing a range of a new source. Offsets are still relative to the start of <i>source</i>.
+   *
+   * @param source - The CharSequence to tokenize
+   * @param from - The offset of the first character to tokenize
+   * @param to - The offset just after the last character to tokenize
+   * @return this Tokenizer
+   */
+  public Tokenizer reset(CharSequence source, int from, int to)
+  {
+    if (from < 0 || to > source.length() || from > to)
+    {
+      throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") is not within the " + source.length()
+              + " characters");
+    }
+    this.source = source;
+    this.limit = to;
+    this.position = from;
+    this.done = from == to;
+    this.index = -1;
+    this.start = from;
+    this.end = from;
+    this.quoted = false;
+    this.escaped = false;
+    return this;
+  }
+
+  /**
+   * Move to the next token.
+   *
+   * @return false if there are no more tokens
+   */
+  public boolean next()
+  {
+    if (this.done)
+    {
+      return false;
+    }
+
+    final CharSequence source = this.source;
+    final int limit = this.limit;
+    int i = this.position;
+    this.escaped = false;
+    this.quoted = this.quote != NONE && i < limit && source.charAt(i) == this.quote;
+
+    if (this.quoted)
+    {
+      this.start = ++i;
+      while (i < limit)
+      {
+        final char c = source.charAt(i);
+        if (c == this.escape && this.escape != NONE)
+        {
+          this.escaped = true;
+          i += 2;
+        }
+        else if (c == this.quote)
+        {
+          if (i + 1 < limit && source.charAt(i + 1) == this.quote)
+          {
+            this.escaped = true;
+            i += 2;
+          }
+          else
+          {
+            break;
+          }
+        }
+        else
+        {
+          i++;
+        }
+      }
+      this.end = Math.min(i, limit);
+
+      while (i < limit && source.charAt(i) != this.delimiter)
+      {
+        i++;
+      }
+    }
+    else
+    {
+      this.start = i;
+      while (i < limit)
+      {
+        final char c = source.charAt(i);
+        if (c == this.escape && this.escape != NONE)
+        {
+          this.escaped = true;
+          i += 2;
+        }
+        else if (c == this.delimiter)
+        {
+          break;
+        }
+        else
+        {
+          i++;
+        }
+      }
+      i = Math.min(i, limit);
+      this.end = i;
+    }
+
+    // A delimiter at the very end is followed by one more, empty, token
+    if (i < limit)
+    {
+      this.position = i + 1;
+    }
+    else
+    {
+      this.done = true;
+    }
+    this.index++;
+    return true;
+  }
+
+  /**
+   * Move forward to the token at <i>index</i>, without looking at the ones in between.
+   *
+   * @param index - The index of the token, from 0
+   * @return false if there are fewer tokens, or the current token is already past <i>index</i>
+   */
+  public boolean advanceTo(int index)
+  {
+    while (this.index < index)
+    {
+      if (!next())
+      {
+        return false;
+      }
+    }
+    return this.index == index;
+  }
+
+  /**
+   * @return the index of the current token, from 0, or -1 before the first call to {@link #next()}
+   */
+  public int index()
+  {
+    return this.index;
+  }
+
+  /**
+   * @return the offset in the source of the current token's first character, after any opening quote
+   */
+  public int start()
+  {
+    return this.start;
+  }
+
+  /**
+   * @return the offset in the source just after the current token's last character, before any closing quote
+   */
+  public int end()
+  {
+    return this.end;
+  }
+
+  /**
+   * @return the number of characters between {@link #start()} and {@link #end()}
+   */
+  public int length()
+  {
+    return this.end - this.start;
+  }
+
+  /**
+   * @return true if the current token was quoted
+   */
+  public boolean isQuoted()
+  {
+    return this.quoted;
+  }
+
+  /**
+   * @return true if the current token has escaped characters or doubled quotes, i.e. differs from the source between
+   *         {@link #start()} and {@link #end()}
+   */
+  public boolean hasEscapes()
+  {
+    return this.escaped;
+  }
+
+  /**
+   * @return the current token, unquoted and unescaped
+   */
+  public String token()
+  {
+    if (!this.escaped)
+    {
+      return this.source.subSequence(this.start, this.end).toString();
+    }
+    return appendTo(new StringBuilder(this.end - this.start)).toString();
+  }
+
+  /**
+   * @param cache - The JStringCache holding the canonical values
+   * @return the canonical instance of the current token, unquoted and unescaped, only created if <i>cache</i> does not
+   *         have it yet, unless it has escapes
+   */
+  public String token(JStringCache cache)
+  {
+    if (!this.escaped)
+    {
+      return cache.intern(this.source, this.start, this.end);
+    }
+    return cache.intern(token());
+  }
+
+  /**
+   * Append the current token, unquoted and unescaped.
+   *
+   * @param sb - The StringBuilder to append to
+   * @return <i>sb</i>
+   */
+  public StringBuilder appendTo(StringBuilder sb)
+  {
+    if (!this.escaped)
+    {
+      return sb.append(this.source, this.start, this.end);
+    }
+
+    for (int i = this.start; i < this.end; i++)
+    {
+      sb.append(unescaped(i));
+      if (isEscape(i))
+      {
+        i++;
+      }
+    }
+    return sb;
+  }
+
+  /**
+   * Compare the current token, unquoted and unescaped, with <i>value</i>.
+   *
+   * @param value - The CharSequence to compare with
+   * @return true if they have the same characters
+   */
+  public boolean contentEquals(CharSequence value)
+  {
+    if (!this.escaped)
+    {
+      if (value.length() != this.end - this.start)
+      {
+        return false;
+      }
+      for (int i = 0; i < value.length(); i++)
+      {
+        if (this.source.charAt(this.start + i) != value.charAt(i))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    int j = 0;
+    for (int i = this.start; i < this.end; i++, j++)
+    {
+      if (j == value.length() || unescaped(i) != value.charAt(j))
+      {
+        return false;
+      }
+      if (isEscape(i))
+      {
+        i++;
+      }
+    }
+    return j == value.length();
+  }
+
+  /**
+   * @return true if the character at <i>i</i> is an escape, or the first of a doubled quote
+   */
+  private boolean isEscape(int i)
+  {
+    final char c = this.source.charAt(i);
+    return i + 1 < this.end && ((c == this.escape && this.escape != NONE) || (this.quoted && c == this.quote));
+  }
+
+  /**
+   * @return the character at <i>i</i>, or the one after it if it is an escape
+   */
+  private char unescaped(int i)
+  {
+    return isEscape(i) ? this.source.charAt(i + 1) : this.source.charAt(i);
+  }
+
+  @Override
+  public String toString()
+  {
+    return getClass().getSimpleName() + "[" + this.index + ": " + this.start + ", " + this.end + "]";
+  }
+}
@@ -0,0 +1,156 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.RuntimeMBeanException;
+import javax.management.openmbean.CompositeData;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+
+/**
+ * The steps of a training run of {@link SpringMain}: once the context is refreshed, {@link #warmUp(ListableBeanFactory)}
+ * runs every {@link WarmupHook}, then {@link #dumpArchive(Path)} writes the classes loaded so far to a dynamic class
+ * data sharing (AppCDS) archive, which later JVMs map instead of loading and linking the classes again.
+ * <p>
+ * When the JVM was started with <code>-XX:ArchiveClassesAtExit=&lt;file&gt;</code>, it writes the archive itself on
+ * exit, and {@link #dumpArchive(Path)} leaves it to it. Otherwise the archive is dumped through the
+ * <code>VM.cds dynamic_dump</code> diagnostic command, which needs a JVM started with
+ * <code>-XX:+RecordDynamicDumpInfo</code>, JDK 17 or later.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class CdsTrainingRun
+{
+  private static final Logger LOGGER             = LoggerFactory.getLogger(CdsTrainingRun.class);
+
+  private static final String ARCHIVE_AT_EXIT    = "-XX:ArchiveClassesAtExit";
+
+  private static final String DIAGNOSTIC_COMMAND = "com.sun.management:type=DiagnosticCommand";
+
+  private static final String HOTSPOT_DIAGNOSTIC = "com.sun.management:type=HotSpotDiagnostic";
+
+  private static final String RECORD_FLAG        = "RecordDynamicDumpInfo";
+
+  private static final String RECORD_OPTION      = "-XX:+" + RECORD_FLAG;
+
+  private static final String CDS_OPERATION      = "vmCds";
+
+  private static final String DYNAMIC_DUMP       = "dynamic_dump";
+
+  private CdsTrainingRun()
+  {
+  }
+
+  /**
+   * @param beanFactory - The bean factory of the refreshed context
+   * @return the number of hooks run
+   * @throws BeanCreationException - naming the first hook that failed
+   */
+  public static int warmUp(ListableBeanFactory beanFactory)
+  {
+    final Map<String, WarmupHook> beans = beanFactory.getBeansOfType(WarmupHook.class);
+    final List<WarmupHook> hooks = new ArrayList<>(beans.values());
+    AnnotationAwareOrderComparator.sort(hooks);
+
+    final long start = System.nanoTime();
+    for (final WarmupHook hook : hooks)
+    {
+      try
+      {
+        hook.warmup();
+      }
+      catch (Exception e)
+      {
+        throw new BeanCreationException(beanName(beans, hook), "Warm-up failed", e);
+      }
+    }
+    LOGGER.info("Ran " + hooks.size() + " warm-up hooks in " + (System.nanoTime() - start) / 1000000 + " ms");
+    return hooks.size();
+  }
+
+  /**
+   * @param archive - The archive to dump, or null to only rely on <code>-XX:ArchiveClassesAtExit</code>
+   * @return true if the archive is dumped, or is to be on exit
+   */
+  public static boolean dumpArchive(Path archive)
+  {
+    for (final String argument : ManagementFactory.getRuntimeMXBean().getInputArguments())
+    {
+      if (argument.startsWith(ARCHIVE_AT_EXIT + "="))
+      {
+        LOGGER.info("The class data sharing archive is written on exit, to "
+                + argument.substring(ARCHIVE_AT_EXIT.length() + 1));
+        return true;
+      }
+    }
+    if (archive == null)
+    {
+      LOGGER.warn("No class data sharing archive is written: start the JVM with " + ARCHIVE_AT_EXIT
+              + "=<file>, or give SpringMain an archive and start the JVM with " + RECORD_OPTION);
+      return false;
+    }
+
+    try
+    {
+      // Without the flag, the command only answers with an error message
+      if (!recordsDynamicDumpInfo())
+      {
+        LOGGER.warn("Could not dump the class data sharing archive to " + archive + ", start the JVM with "
+                + RECORD_OPTION + ", or with " + ARCHIVE_AT_EXIT + "=<file>");
+        return false;
+      }
+      final Object result = ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(DIAGNOSTIC_COMMAND),
+              CDS_OPERATION, new Object[]{ new String[]{ DYNAMIC_DUMP, archive.toAbsolutePath().toString() } },
+              new String[]{ String[].class.getName() });
+      LOGGER.info("Dumped the class data sharing archive to " + archive.toAbsolutePath() + ": " + result);
+      return true;
+    }
+    catch (JMException | RuntimeException e)
+    {
+      LOGGER.warn("Could not dump the class data sharing archive to " + archive + ": " + e, e);
+      return false;
+    }
+  }
+
+  /**
+   * @return true if the JVM records what a dynamic dump needs, false if not or if it does not know the flag, before
+   *         JDK 17
+   */
+  private static boolean recordsDynamicDumpInfo() throws JMException
+  {
+    try
+    {
+      final CompositeData option = (CompositeData)ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(
+              HOTSPOT_DIAGNOSTIC), "getVMOption", new Object[]{ RECORD_FLAG }, new String[]{ String.class.getName() });
+      return Boolean.parseBoolean(String.valueOf(option.get("value")));
+    }
+    catch (RuntimeMBeanException e)
+    {
+      return false;
+    }
+  }
+
+  private static String beanName(Map<String, WarmupHook> beans, WarmupHook hook)
+  {
+    for (final Map.Entry<String, WarmupHook> bean : beans.entrySet())
+    {
+      if (bean.getValue() == hook)
+      {
+        return bean.getKey();
+      }
+    }
+    return hook.toString();
+  }
+}
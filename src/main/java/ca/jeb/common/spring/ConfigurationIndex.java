@@ -0,0 +1,97 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The configuration classes listed at build time, by the <code>JConfigurationIndexProcessor</code> of the optional
+ * <code>common-java-processor</code>, in the {@link #LOCATION} resource of each jar or class directory.
+ * <p>
+ * {@link SpringMain} looks its arguments up in it, to tell a class from an XML file without trying to load the class.
+ * The resource is a UTF-8 text file with one binary class name per line; blank lines and lines starting with
+ * <code>#</code> are ignored.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class ConfigurationIndex
+{
+  /**
+   * The resource listing the configuration classes of a jar or class directory.
+   */
+  public static final String LOCATION = "META-INF/ca.jeb.common.spring.configurations";
+
+  private static final char  COMMENT  = '#';
+
+  private final Set<String>  classNames;
+
+  private ConfigurationIndex(Set<String> classNames)
+  {
+    this.classNames = Collections.unmodifiableSet(classNames);
+  }
+
+  /**
+   * @param classLoader - The class loader to read every {@link #LOCATION} resource from
+   * @return the classes listed by all the resources, or null if there are none
+   * @throws IOException - if a resource cannot be read
+   */
+  public static ConfigurationIndex load(ClassLoader classLoader) throws IOException
+  {
+    final Enumeration<URL> resources = classLoader.getResources(LOCATION);
+    if (!resources.hasMoreElements())
+    {
+      return null;
+    }
+
+    final Set<String> classNames = new HashSet<>();
+    while (resources.hasMoreElements())
+    {
+      final URL resource = resources.nextElement();
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.openStream(),
+              StandardCharsets.UTF_8)))
+      {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+          line = line.trim();
+          if (!line.isEmpty() && line.charAt(0) != COMMENT)
+          {
+            classNames.add(line);
+          }
+        }
+      }
+    }
+    return new ConfigurationIndex(classNames);
+  }
+
+  /**
+   * @param className - The binary name of a class
+   * @return true if the class is listed
+   */
+  public boolean contains(String className)
+  {
+    return this.classNames.contains(className);
+  }
+
+  /**
+   * @return the binary names of the classes listed
+   */
+  public Set<String> getClassNames()
+  {
+    return this.classNames;
+  }
+
+  @Override
+  public String toString()
+  {
+    return "ConfigurationIndex" + this.classNames;
+  }
+}
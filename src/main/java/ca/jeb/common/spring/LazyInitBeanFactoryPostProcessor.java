@@ -0,0 +1,71 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+
+/**
+ * Makes every bean lazily initialized, but those listed as eager, for tools and batch jobs that only use a few of the
+ * beans of their context: a bean is then created when first needed, by an eager bean or a call to
+ * {@link org.springframework.beans.factory.BeanFactory#getBean(String)}.
+ * <p>
+ * Infrastructure beans, and post processors, which Spring creates before the other beans regardless, are left as is.
+ * Lifecycle beans still start with the context, as Spring creates them to start them.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class LazyInitBeanFactoryPostProcessor implements BeanFactoryPostProcessor
+{
+  private final Set<String> eagerBeans;
+
+  /**
+   * @param eagerBeans - The names of the beans to create with the context, as usual
+   */
+  public LazyInitBeanFactoryPostProcessor(Collection<String> eagerBeans)
+  {
+    this.eagerBeans = new HashSet<>(eagerBeans);
+  }
+
+  /**
+   * @param eagerBeans - The names of the beans to create with the context, as usual
+   */
+  public LazyInitBeanFactoryPostProcessor(String... eagerBeans)
+  {
+    this(Arrays.asList(eagerBeans));
+  }
+
+  @Override
+  public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException
+  {
+    for (final String beanName : beanFactory.getBeanDefinitionNames())
+    {
+      final BeanDefinition definition = beanFactory.getBeanDefinition(beanName);
+      if (this.eagerBeans.contains(beanName) || definition.isAbstract()
+              || definition.getRole() == BeanDefinition.ROLE_INFRASTRUCTURE)
+      {
+        continue;
+      }
+
+      setLazyInit(definition);
+      // The merged definition may already be cached, by looking up the post processors
+      setLazyInit(beanFactory.getMergedBeanDefinition(beanName));
+    }
+  }
+
+  private static void setLazyInit(BeanDefinition definition)
+  {
+    if (definition instanceof AbstractBeanDefinition)
+    {
+      ((AbstractBeanDefinition)definition).setLazyInit(true);
+    }
+  }
+}
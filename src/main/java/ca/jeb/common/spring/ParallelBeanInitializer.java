@@ -0,0 +1,313 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+
+/**
+ * Calls {@link ParallelInitializingBean#initialize()} on every such singleton of its bean factory, on a bounded pool of
+ * threads, once all the singletons are created.
+ * <p>
+ * Spring creates singletons one at a time, holding the lock of its singleton registry, so the creation itself cannot
+ * be spread across threads. Instead, slow beans move their work to {@link ParallelInitializingBean#initialize()},
+ * which this runs concurrently for beans independent of each other. A bean is initialized only once every
+ * ParallelInitializingBean it depends on, directly or through other beans, is, as registered by the bean factory for
+ * injection and <code>depends-on</code>.
+ * <p>
+ * Other singletons are all created and initialized before any ParallelInitializingBean is, so a singleton that depends
+ * on one is given it uninitialized, and must not use it from its own init callbacks. It can use it once the context is
+ * refreshed, e.g. from a {@link org.springframework.context.SmartLifecycle} or a
+ * {@link org.springframework.context.event.ContextRefreshedEvent} listener, or be a ParallelInitializingBean itself to
+ * be initialized after it.
+ * <p>
+ * Beans created afterwards, such as lazy singletons, and beans that are not singletons are initialized as soon as
+ * they are created, on the thread creating them.
+ * <p>
+ * No more beans are started than there are threads, so the first bean to fail stops the initialization: the beans
+ * being initialized are interrupted, no other one is started, even on a single thread, and a
+ * {@link BeanCreationException} naming the failed bean is thrown, failing the refresh of the context.
+ * <p>
+ * {@link SpringMain} declares one; other contexts declare it as a bean themselves.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class ParallelBeanInitializer implements SmartInitializingSingleton, BeanFactoryAware, BeanPostProcessor
+{
+  /**
+   * The name of the bean declared by {@link SpringMain}.
+   */
+  public static final String              BEAN_NAME   = "ca.jeb.common.spring.parallelBeanInitializer";
+
+  private static final Logger             LOGGER      = LoggerFactory.getLogger(ParallelBeanInitializer.class);
+
+  // Runs the beans one after the other on the refreshing thread
+  private static final Executor           SAME_THREAD = new Executor()
+                                                        {
+                                                          @Override
+                                                          public void execute(Runnable command)
+                                                          {
+                                                            command.run();
+                                                          }
+                                                        };
+
+  private final int                       threads;
+
+  private ConfigurableListableBeanFactory beanFactory;
+
+  private volatile boolean                singletonsInstantiated;
+
+  /**
+   * @param threads - The number of threads to initialize beans on, 1 to initialize them on the refreshing thread
+   */
+  public ParallelBeanInitializer(int threads)
+  {
+    if (threads < 1)
+    {
+      throw new IllegalArgumentException("At least one thread is needed, not " + threads);
+    }
+    this.threads = threads;
+  }
+
+  @Override
+  public void setBeanFactory(BeanFactory beanFactory) throws BeansException
+  {
+    if (!(beanFactory instanceof ConfigurableListableBeanFactory))
+    {
+      throw new IllegalArgumentException("ParallelBeanInitializer needs a ConfigurableListableBeanFactory, not "
+              + beanFactory);
+    }
+    this.beanFactory = (ConfigurableListableBeanFactory)beanFactory;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName)
+  {
+    return bean;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName)
+  {
+    if (bean instanceof ParallelInitializingBean
+            && (this.singletonsInstantiated || !this.beanFactory.containsBeanDefinition(beanName) || !this.beanFactory
+                    .getBeanDefinition(beanName).isSingleton()))
+    {
+      initialize(beanName, (ParallelInitializingBean)bean);
+    }
+    return bean;
+  }
+
+  @Override
+  public void afterSingletonsInstantiated()
+  {
+    this.singletonsInstantiated = true;
+
+    // Only the singletons already created, lazy ones are initialized on their own when first used
+    final Map<String, ParallelInitializingBean> beans = new LinkedHashMap<>();
+    for (final String beanName : this.beanFactory.getBeanNamesForType(ParallelInitializingBean.class, false, false))
+    {
+      if (this.beanFactory.containsSingleton(beanName))
+      {
+        beans.put(beanName, this.beanFactory.getBean(beanName, ParallelInitializingBean.class));
+      }
+    }
+    if (beans.isEmpty())
+    {
+      return;
+    }
+
+    // The number of beans each one waits for, and the beans waiting for each one
+    final Map<String, Integer> waitingFor = new HashMap<>();
+    final Map<String, List<String>> waitedBy = new HashMap<>();
+    for (final String beanName : beans.keySet())
+    {
+      final Set<String> prerequisites = prerequisites(beanName, beans.keySet());
+      waitingFor.put(beanName, prerequisites.size());
+      for (final String prerequisite : prerequisites)
+      {
+        if (!waitedBy.containsKey(prerequisite))
+        {
+          waitedBy.put(prerequisite, new ArrayList<String>());
+        }
+        waitedBy.get(prerequisite).add(beanName);
+      }
+    }
+
+    final long start = System.nanoTime();
+    final int poolSize = Math.min(this.threads, beans.size());
+    final ExecutorService pool = this.threads == 1 ? null : Executors.newFixedThreadPool(poolSize,
+            new InitializerThreadFactory());
+    final CompletionService<String> completion = new ExecutorCompletionService<>(pool == null ? SAME_THREAD : pool);
+    try
+    {
+      final Deque<String> ready = new ArrayDeque<>();
+      for (final String beanName : beans.keySet())
+      {
+        if (waitingFor.get(beanName) == 0)
+        {
+          ready.add(beanName);
+        }
+      }
+
+      int running = 0;
+      int initialized = 0;
+      while (true)
+      {
+        // Only as many as there are threads, so a failure is seen before any other bean is started
+        while (running < poolSize && !ready.isEmpty())
+        {
+          final String beanName = ready.poll();
+          completion.submit(initializeTask(beanName, beans.get(beanName)));
+          running++;
+        }
+        if (running == 0)
+        {
+          break;
+        }
+
+        final String beanName = completion.take().get();
+        running--;
+        initialized++;
+        waitingFor.remove(beanName);
+        if (waitedBy.containsKey(beanName))
+        {
+          for (final String dependent : waitedBy.get(beanName))
+          {
+            final int remaining = waitingFor.get(dependent) - 1;
+            waitingFor.put(dependent, remaining);
+            if (remaining == 0)
+            {
+              ready.add(dependent);
+            }
+          }
+        }
+      }
+
+      if (!waitingFor.isEmpty())
+      {
+        throw new BeanCreationException(waitingFor.keySet().iterator().next(),
+                "Circular dependency between the parallel initializing beans " + waitingFor.keySet());
+      }
+      LOGGER.info("Initialized " + initialized + " beans on " + poolSize + " threads in "
+              + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+    catch (ExecutionException e)
+    {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException)cause;
+      }
+      throw (Error)cause;
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new BeanCreationException("Interrupted while initializing the parallel initializing beans", e);
+    }
+    finally
+    {
+      if (pool != null)
+      {
+        pool.shutdownNow();
+      }
+    }
+  }
+
+  /**
+   * @return the beans among <i>parallelBeans</i> that <i>beanName</i> depends on, directly or through beans that are
+   *         not parallel initializing
+   */
+  private Set<String> prerequisites(String beanName, Set<String> parallelBeans)
+  {
+    final Set<String> prerequisites = new HashSet<>();
+    final Set<String> visited = new HashSet<>();
+    final Deque<String> toVisit = new ArrayDeque<>(Arrays.asList(this.beanFactory.getDependenciesForBean(beanName)));
+    while (!toVisit.isEmpty())
+    {
+      final String dependency = toVisit.pop();
+      if (!visited.add(dependency) || dependency.equals(beanName))
+      {
+        continue;
+      }
+      if (parallelBeans.contains(dependency))
+      {
+        prerequisites.add(dependency);
+      }
+      else
+      {
+        toVisit.addAll(Arrays.asList(this.beanFactory.getDependenciesForBean(dependency)));
+      }
+    }
+    return prerequisites;
+  }
+
+  private static void initialize(String beanName, ParallelInitializingBean bean)
+  {
+    try
+    {
+      bean.initialize();
+    }
+    catch (Exception e)
+    {
+      throw new BeanCreationException(beanName, "Parallel initialization failed", e);
+    }
+  }
+
+  private static Callable<String> initializeTask(final String beanName, final ParallelInitializingBean bean)
+  {
+    return new Callable<String>()
+    {
+      @Override
+      public String call()
+      {
+        initialize(beanName, bean);
+        return beanName;
+      }
+    };
+  }
+
+  /**
+   * Daemon threads, so that a bean stuck in its initialization does not keep the JVM from exiting.
+   */
+  private static final class InitializerThreadFactory implements ThreadFactory
+  {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable)
+    {
+      final Thread thread = new Thread(runnable, "parallel-init-" + this.count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
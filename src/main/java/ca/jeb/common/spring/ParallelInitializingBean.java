@@ -0,0 +1,27 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+/**
+ * A singleton with slow initialization, e.g. loading a cache or connecting to a broker, that can run concurrently with
+ * the initialization of other such beans.
+ * <p>
+ * {@link #initialize()} is called by the {@link ParallelBeanInitializer} once every singleton is created, after that of
+ * every other ParallelInitializingBean this bean depends on, even through beans that are not, and before the
+ * lifecycle beans of the context are started. A bean created later, e.g. a lazy singleton, or a bean that is not a
+ * singleton, is initialized as soon as it is created.
+ * <p>
+ * Beans that are not ParallelInitializingBeans are injected with this bean before it is initialized, and must wait for
+ * the context to be refreshed to use it.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public interface ParallelInitializingBean
+{
+  /**
+   * Initialize the bean, possibly on another thread than the one that created it.
+   *
+   * @throws Exception - to fail the startup of the context
+   */
+  void initialize() throws Exception;
+}
@@ -2,31 +2,177 @@
 
 package ca.jeb.common.spring;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionReader;
 import org.springframework.beans.factory.xml.XmlBeanDefinitionReader;
 import org.springframework.context.annotation.AnnotatedBeanDefinitionReader;
 import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.util.StringUtils;
 
 /**
  * <i>Main</i> class that takes a Spring configuration file as
  * an argument and creates a {@link GenericApplicationContext} from it.
+ * <p>
+ * A config location is either a <code>@Configuration</code> class, or an XML file: a name ending with
+ * <code>.xml</code> or holding a <code>/</code> or <code>:</code> is a file. Other names are looked up in the
+ * {@link ConfigurationIndex}, when the build generated one: a name it does not list is read directly as a file when
+ * that file exists. Other names, and all of them without an index, are tried as a class before falling back to a file,
+ * so modules built without the index still work.
+ * <p>
+ * Arguments starting with <code>--</code> are options, each also settable as a system property:
+ * <ul>
+ * <li><code>--lazy</code>, <code>-Dspringmain.lazy=true</code>: create beans when first used, by the
+ * {@link LazyInitBeanFactoryPostProcessor}, but those listed by <code>--eager=&lt;bean&gt;,...</code>,
+ * <code>-Dspringmain.eager=&lt;bean&gt;,...</code>.</li>
+ * <li><code>--profiles=&lt;profile&gt;,...</code>, <code>-Dspring.profiles.active=&lt;profile&gt;,...</code>: the
+ * Spring profiles to activate.</li>
+ * <li><code>--startup-report=&lt;file&gt;</code>, <code>-Dspringmain.startupReport=&lt;file&gt;</code>: profile the
+ * startup with a {@link SpringStartupProfiler}; the phases and slowest beans are logged once started, and every bean is
+ * written to the file. The beans created later are not profiled.</li>
+ * <li><code>--init-threads=&lt;count&gt;</code>, <code>-Dspringmain.init.threads=&lt;count&gt;</code>: the number of
+ * threads to initialize {@link ParallelInitializingBean}s on once every singleton is created, 1 by default.</li>
+ * <li><code>--training-run</code>, <code>-Dspringmain.training=true</code>: once started, run every
+ * {@link WarmupHook}, dump the class data sharing archive named by <code>--cds-archive=&lt;file&gt;</code>,
+ * <code>-Dspringmain.cds.archive=&lt;file&gt;</code>, as described by {@link CdsTrainingRun}, then close the context
+ * and exit. The run fails, with exit status 1, if a hook fails or the archive it names cannot be dumped.</li>
+ * </ul>
  * 
  * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
  */
 public final class SpringMain
 {
-  private static final Logger       LOGGER = LoggerFactory.getLogger(SpringMain.class);
+  /**
+   * The system property naming the file to write the startup profile to.
+   */
+  public static final String        STARTUP_REPORT_PROPERTY = "springmain.startupReport";
+
+  /**
+   * The system property setting the number of threads to initialize {@link ParallelInitializingBean}s on.
+   */
+  public static final String        INIT_THREADS_PROPERTY   = "springmain.init.threads";
+
+  /**
+   * The system property making every bean lazily initialized, but the eager ones.
+   */
+  public static final String        LAZY_PROPERTY           = "springmain.lazy";
+
+  /**
+   * The system property listing the beans to create with the context when the others are lazy.
+   */
+  public static final String        EAGER_PROPERTY          = "springmain.eager";
+
+  /**
+   * The system property making the run a training run, that exits once started and warmed up.
+   */
+  public static final String        TRAINING_PROPERTY       = "springmain.training";
+
+  /**
+   * The system property naming the class data sharing archive a training run dumps.
+   */
+  public static final String        CDS_ARCHIVE_PROPERTY    = "springmain.cds.archive";
+
+  private static final String       OPTION_PREFIX           = "--";
+
+  private static final String       XML_SUFFIX              = ".xml";
+
+  private static final Logger       LOGGER                  = LoggerFactory.getLogger(SpringMain.class);
+
+  private final ClassLoader         classLoader;
 
   private GenericApplicationContext context;
 
   private String[]                  configLocations;
 
+  private Path                      profileFile;
+
+  private int                       initThreads             = 1;
+
+  private boolean                   lazyInit;
+
+  private String[]                  eagerBeans              = new String[0];
+
+  private String[]                  activeProfiles;
+
+  private boolean                   trainingRun;
+
+  private Path                      cdsArchive;
+
+  private ConfigurationIndex        configurationIndex;
+
+  private boolean                   configurationIndexLoaded;
+
+  /**
+   * Load the configuration classes, files and index from the class loader of SpringMain.
+   */
+  public SpringMain()
+  {
+    this(SpringMain.class.getClassLoader());
+  }
+
+  /**
+   * @param classLoader - The class loader to load the configuration classes, files and index from
+   */
+  SpringMain(ClassLoader classLoader)
+  {
+    this.classLoader = classLoader;
+  }
+
   public static void main(String[] args)
+  {
+    final SpringMain sm = fromArguments(args);
+
+    try
+    {
+      if (System.getSecurityManager() == null)
+      {
+        sm.runInternal();
+      }
+      else
+      {
+        AccessController.doPrivileged(new PrivilegedAction<Void>()
+        {
+          public Void run()
+          {
+            sm.runInternal();
+            return null;
+          }
+        });
+      }
+    }
+    catch (RuntimeException e)
+    {
+      if (sm.isTrainingRun())
+      {
+        // Already logged, and the context closed: the failure must not pass for a finished training run
+        System.exit(1);
+      }
+      throw e;
+    }
+
+    if (sm.isTrainingRun())
+    {
+      // Threads the context left running must not keep the JVM, and the archive it writes on exit, waiting
+      System.exit(0);
+    }
+  }
+
+  /**
+   * @param args - The arguments of {@link #main(String[])}, options and config locations
+   * @return a SpringMain set from the system properties, then from the options
+   */
+  static SpringMain fromArguments(String... args)
   {
     if (args == null || args.length < 1)
     {
@@ -34,34 +180,116 @@ public final class SpringMain
     }
 
     final SpringMain sm = new SpringMain();
-    sm.setConfigLocations(args);
 
-    if (System.getSecurityManager() == null)
+    final String profileFile = System.getProperty(STARTUP_REPORT_PROPERTY);
+    if (profileFile != null)
     {
-      sm.runInternal();
+      sm.setProfileFile(Paths.get(profileFile));
     }
-    else
+    sm.setInitThreads(Integer.getInteger(INIT_THREADS_PROPERTY, 1));
+    sm.setLazyInit(Boolean.getBoolean(LAZY_PROPERTY));
+    sm.setEagerBeans(StringUtils.tokenizeToStringArray(System.getProperty(EAGER_PROPERTY, ""), ","));
+    sm.setTrainingRun(Boolean.getBoolean(TRAINING_PROPERTY));
+    final String cdsArchive = System.getProperty(CDS_ARCHIVE_PROPERTY);
+    if (cdsArchive != null)
     {
-      AccessController.doPrivileged(new PrivilegedAction<Void>()
+      sm.setCdsArchive(Paths.get(cdsArchive));
+    }
+
+    // Options override the system properties
+    final List<String> configLocations = new ArrayList<>();
+    for (final String arg : args)
+    {
+      if (arg.startsWith(OPTION_PREFIX))
       {
-        public Void run()
-        {
-          sm.runInternal();
-          return null;
-        }
-      });
+        sm.setOption(arg.substring(OPTION_PREFIX.length()));
+      }
+      else
+      {
+        configLocations.add(arg);
+      }
+    }
+    if (configLocations.isEmpty())
+    {
+      throw new IllegalArgumentException("Please provide a config location");
+    }
+    sm.setConfigLocations(configLocations.toArray(new String[configLocations.size()]));
+    return sm;
+  }
+
+  /**
+   * @param option - An option, without its <code>--</code> prefix, e.g. <code>eager=a,b</code>
+   */
+  private void setOption(String option)
+  {
+    final int equals = option.indexOf('=');
+    final String name = equals == -1 ? option : option.substring(0, equals);
+    final String value = equals == -1 ? null : option.substring(equals + 1);
+
+    switch (name)
+    {
+      case "lazy":
+        setLazyInit(value == null || Boolean.parseBoolean(value));
+        break;
+      case "eager":
+        setEagerBeans(StringUtils.tokenizeToStringArray(requireValue(name, value), ","));
+        break;
+      case "profiles":
+        setActiveProfiles(StringUtils.tokenizeToStringArray(requireValue(name, value), ","));
+        break;
+      case "startup-report":
+        setProfileFile(Paths.get(requireValue(name, value)));
+        break;
+      case "init-threads":
+        setInitThreads(Integer.parseInt(requireValue(name, value)));
+        break;
+      case "training-run":
+        setTrainingRun(value == null || Boolean.parseBoolean(value));
+        break;
+      case "cds-archive":
+        setCdsArchive(Paths.get(requireValue(name, value)));
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown option --" + name + ", expected --lazy, --eager=<beans>, "
+                + "--profiles=<profiles>, --startup-report=<file>, --init-threads=<count>, --training-run or "
+                + "--cds-archive=<file>");
+    }
+  }
+
+  private static String requireValue(String name, String value)
+  {
+    if (value == null)
+    {
+      throw new IllegalArgumentException("Option --" + name + " needs a value, as in --" + name + "=<value>");
     }
+    return value;
   }
 
-  private void runInternal()
+  void runInternal()
   {
+    final SpringStartupProfiler profiler = this.profileFile == null ? null : new SpringStartupProfiler();
 
     if (this.context == null)
     {
-      this.context = new GenericApplicationContext();
+      this.context = profiler == null ? new GenericApplicationContext() : new ProfiledApplicationContext(profiler);
+      this.context.setClassLoader(this.classLoader);
+    }
+    if (profiler != null)
+    {
+      this.context.getBeanFactory().addBeanPostProcessor(profiler);
+    }
+    if (this.activeProfiles != null)
+    {
+      // Before loading, as profiles select the definitions
+      this.context.getEnvironment().setActiveProfiles(this.activeProfiles);
+    }
+    if (this.lazyInit)
+    {
+      this.context.addBeanFactoryPostProcessor(new LazyInitBeanFactoryPostProcessor(this.eagerBeans));
     }
 
     // Finally load app config and start...
+    final long loadStart = System.nanoTime();
     BeanDefinitionReader xmlReader = new XmlBeanDefinitionReader(this.context);
     AnnotatedBeanDefinitionReader classReader = new AnnotatedBeanDefinitionReader(context);
 
@@ -72,14 +300,44 @@ public final class SpringMain
         xmlReader.loadBeanDefinitions(configLocation);
       }
     }
+    if (!this.context.containsBeanDefinition(ParallelBeanInitializer.BEAN_NAME))
+    {
+      this.context.registerBeanDefinition(ParallelBeanInitializer.BEAN_NAME, BeanDefinitionBuilder
+              .rootBeanDefinition(ParallelBeanInitializer.class).addConstructorArgValue(this.initThreads)
+              .setRole(BeanDefinition.ROLE_INFRASTRUCTURE).getBeanDefinition());
+    }
+    if (profiler != null)
+    {
+      profiler.phase("load definitions", loadStart);
+    }
 
     boolean started = false;
     try
     {
       this.context.registerShutdownHook();
       // refresh context and start SmartLifecycleBean
+      final long refreshStart = System.nanoTime();
       this.context.refresh();
       LOGGER.info("SpringMain has completed startup!");
+      if (profiler != null)
+      {
+        profiler.phase("refresh, in all", refreshStart);
+        report(profiler);
+        profiler.stop();
+      }
+      if (this.trainingRun)
+      {
+        CdsTrainingRun.warmUp(this.context.getBeanFactory());
+        if (!CdsTrainingRun.dumpArchive(this.cdsArchive) && this.cdsArchive != null)
+        {
+          // Already logged why, the run must not pass for one that wrote the archive
+          throw new IllegalStateException("The training run could not dump the class data sharing archive to "
+                  + this.cdsArchive);
+        }
+        this.context.close();
+        LOGGER.info("SpringMain has completed its training run");
+      }
+      // Only now, so that the context is closed if the training run fails
       started = true;
     }
     catch (Throwable t)
@@ -107,15 +365,36 @@ public final class SpringMain
     }
   }
 
+  private void report(SpringStartupProfiler profiler)
+  {
+    LOGGER.info(profiler.report());
+    try
+    {
+      profiler.write(this.profileFile);
+      LOGGER.info("Startup profile written to " + this.profileFile.toAbsolutePath());
+    }
+    catch (IOException e)
+    {
+      LOGGER.warn("Could not write the startup profile to " + this.profileFile + ": " + e, e);
+    }
+  }
+
   private boolean registerClass(AnnotatedBeanDefinitionReader classReader, String className)
   {
-    if (!(className.indexOf('/') == -1 && className.indexOf(':') == -1))
+    if (!(className.indexOf('/') == -1 && className.indexOf(':') == -1) || className.endsWith(XML_SUFFIX))
+    {
+      return false;
+    }
+    // A name the index does not list is an XML file, if there is one, rather than a class to try loading. The index
+    // may only cover some of the jars, so an unlisted name without a file is still tried as a class
+    final ConfigurationIndex index = getConfigurationIndex();
+    if (index != null && !index.contains(className) && this.classLoader.getResource(className) != null)
     {
       return false;
     }
     try
     {
-      Class<?> configClass = getClass().getClassLoader().loadClass(className);
+      Class<?> configClass = this.classLoader.loadClass(className);
       classReader.register(configClass);
       return true;
     }
@@ -125,6 +404,35 @@ public final class SpringMain
     }
   }
 
+  /**
+   * @return the configuration classes listed at build time, or null if no index is on the class path or it cannot be
+   *         read
+   */
+  private ConfigurationIndex getConfigurationIndex()
+  {
+    if (!this.configurationIndexLoaded)
+    {
+      this.configurationIndexLoaded = true;
+      try
+      {
+        this.configurationIndex = ConfigurationIndex.load(this.classLoader);
+      }
+      catch (IOException e)
+      {
+        LOGGER.warn("Ignoring the configuration index, it could not be read: " + e, e);
+      }
+    }
+    return this.configurationIndex;
+  }
+
+  /**
+   * @return the context, once run
+   */
+  GenericApplicationContext getContext()
+  {
+    return this.context;
+  }
+
   /**
    * @return the array of config locations
    */
@@ -141,4 +449,163 @@ public final class SpringMain
   {
     this.configLocations = configLocations;
   }
+
+  /**
+   * @return the file the startup profile is written to, or null if the startup is not profiled
+   */
+  public Path getProfileFile()
+  {
+    return this.profileFile;
+  }
+
+  /**
+   * @param profileFile
+   *          the file to write the startup profile to, or null not to profile the startup
+   */
+  public void setProfileFile(Path profileFile)
+  {
+    this.profileFile = profileFile;
+  }
+
+  /**
+   * @return the number of threads to initialize {@link ParallelInitializingBean}s on
+   */
+  public int getInitThreads()
+  {
+    return this.initThreads;
+  }
+
+  /**
+   * @param initThreads
+   *          the number of threads to initialize {@link ParallelInitializingBean}s on, 1 to initialize them on the
+   *          main thread
+   */
+  public void setInitThreads(int initThreads)
+  {
+    this.initThreads = initThreads;
+  }
+
+  /**
+   * @return true if beans are created when first used, but the eager ones
+   */
+  public boolean isLazyInit()
+  {
+    return this.lazyInit;
+  }
+
+  /**
+   * @param lazyInit
+   *          true to create beans when first used, but the eager ones
+   */
+  public void setLazyInit(boolean lazyInit)
+  {
+    this.lazyInit = lazyInit;
+  }
+
+  /**
+   * @return the names of the beans created with the context when the others are lazy
+   */
+  public String[] getEagerBeans()
+  {
+    return this.eagerBeans;
+  }
+
+  /**
+   * @param eagerBeans
+   *          the names of the beans to create with the context when the others are lazy
+   */
+  public void setEagerBeans(String... eagerBeans)
+  {
+    this.eagerBeans = eagerBeans;
+  }
+
+  /**
+   * @return the Spring profiles to activate, or null to leave them to <code>spring.profiles.active</code>
+   */
+  public String[] getActiveProfiles()
+  {
+    return this.activeProfiles;
+  }
+
+  /**
+   * @param activeProfiles
+   *          the Spring profiles to activate, or null to leave them to <code>spring.profiles.active</code>
+   */
+  public void setActiveProfiles(String... activeProfiles)
+  {
+    this.activeProfiles = activeProfiles;
+  }
+
+  /**
+   * @return true if the run exits once started and warmed up
+   */
+  public boolean isTrainingRun()
+  {
+    return this.trainingRun;
+  }
+
+  /**
+   * @param trainingRun
+   *          true to run every {@link WarmupHook} once started, dump the class data sharing archive, and exit
+   */
+  public void setTrainingRun(boolean trainingRun)
+  {
+    this.trainingRun = trainingRun;
+  }
+
+  /**
+   * @return the class data sharing archive a training run dumps, or null to leave it to
+   *         <code>-XX:ArchiveClassesAtExit</code>
+   */
+  public Path getCdsArchive()
+  {
+    return this.cdsArchive;
+  }
+
+  /**
+   * @param cdsArchive
+   *          the class data sharing archive a training run dumps, or null to leave it to
+   *          <code>-XX:ArchiveClassesAtExit</code>
+   */
+  public void setCdsArchive(Path cdsArchive)
+  {
+    this.cdsArchive = cdsArchive;
+  }
+
+  /**
+   * Times the phases of the refresh around the beans timed by the {@link SpringStartupProfiler}.
+   */
+  private static final class ProfiledApplicationContext extends GenericApplicationContext
+  {
+    private final SpringStartupProfiler profiler;
+
+    ProfiledApplicationContext(SpringStartupProfiler profiler)
+    {
+      this.profiler = profiler;
+    }
+
+    @Override
+    protected void invokeBeanFactoryPostProcessors(ConfigurableListableBeanFactory beanFactory)
+    {
+      final long start = System.nanoTime();
+      super.invokeBeanFactoryPostProcessors(beanFactory);
+      this.profiler.phase("bean factory post processors", start);
+    }
+
+    @Override
+    protected void finishBeanFactoryInitialization(ConfigurableListableBeanFactory beanFactory)
+    {
+      final long start = System.nanoTime();
+      super.finishBeanFactoryInitialization(beanFactory);
+      this.profiler.phase("singletons", start);
+    }
+
+    @Override
+    protected void finishRefresh()
+    {
+      final long start = System.nanoTime();
+      super.finishRefresh();
+      this.profiler.phase("lifecycle start", start);
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,360 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.beans.PropertyDescriptor;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.PropertyValues;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+
+/**
+ * Times the creation of every bean, and the phases of the startup, to find what makes a context slow to start.
+ * <p>
+ * Added to a bean factory before its context is refreshed, it is the first post processor called for each bean, and
+ * splits its creation into:
+ * <ul>
+ * <li><b>instantiation</b>, the constructor or factory method,</li>
+ * <li><b>injection</b>, the properties, autowiring and aware callbacks,</li>
+ * <li><b>init</b>, <code>@PostConstruct</code>, <code>afterPropertiesSet</code> and the init method.</li>
+ * </ul>
+ * A bean created while another is being injected is counted in the other bean's total, but not in its self time.
+ * Timings are kept per thread, so beans created concurrently are timed separately.
+ * <p>
+ * The profiler stays registered for the life of the context, so {@link #stop()} it once started: the beans created
+ * later, e.g. prototypes, are then no longer timed or kept.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public final class SpringStartupProfiler implements InstantiationAwareBeanPostProcessor
+{
+  /**
+   * The number of beans listed by {@link #report()}; the file written by {@link #write(Path)} lists them all.
+   */
+  public static final int                           REPORT_SIZE = 20;
+
+  private final ThreadLocal<Deque<BeanTiming>>      inProgress  = new ThreadLocal<Deque<BeanTiming>>()
+                                                                {
+                                                                  @Override
+                                                                  protected Deque<BeanTiming> initialValue()
+                                                                  {
+                                                                    return new ArrayDeque<>();
+                                                                  }
+                                                                };
+
+  private final ConcurrentLinkedQueue<BeanTiming>   beans       = new ConcurrentLinkedQueue<>();
+
+  private final Map<String, Long>                   phases      = new LinkedHashMap<>();
+
+  private volatile boolean                          stopped;
+
+  /**
+   * The time taken by one creation of a bean, in nanoseconds.
+   */
+  public static final class BeanTiming
+  {
+    private final String   beanName;
+
+    private final Class<?> beanClass;
+
+    private final long     start;
+
+    private long           instantiated;
+
+    private long           injected;
+
+    private long           end;
+
+    private long           nested;
+
+    BeanTiming(String beanName, Class<?> beanClass, long start)
+    {
+      this.beanName = beanName;
+      this.beanClass = beanClass;
+      this.start = start;
+    }
+
+    /**
+     * @return the name of the bean
+     */
+    public String getBeanName()
+    {
+      return this.beanName;
+    }
+
+    /**
+     * @return the class of the bean, as declared
+     */
+    public Class<?> getBeanClass()
+    {
+      return this.beanClass;
+    }
+
+    /**
+     * @return the time taken by the constructor or factory method
+     */
+    public long getInstantiationNanos()
+    {
+      return this.instantiated - this.start;
+    }
+
+    /**
+     * @return the time taken to inject the bean, beans it depends on included
+     */
+    public long getInjectionNanos()
+    {
+      return this.injected - this.instantiated;
+    }
+
+    /**
+     * @return the time taken by the init callbacks
+     */
+    public long getInitNanos()
+    {
+      return this.end - this.injected;
+    }
+
+    /**
+     * @return the time taken to create the bean, beans it depends on included
+     */
+    public long getTotalNanos()
+    {
+      return this.end - this.start;
+    }
+
+    /**
+     * @return the time taken to create the bean, without the beans created meanwhile
+     */
+    public long getSelfNanos()
+    {
+      return getTotalNanos() - this.nested;
+    }
+
+    @Override
+    public String toString()
+    {
+      return String.format("%10.1f ms  %s (%s) instantiation %.1f ms, injection %.1f ms, init %.1f ms",
+              millis(getSelfNanos()), this.beanName, this.beanClass == null ? "?" : this.beanClass.getName(),
+              millis(getInstantiationNanos()), millis(getInjectionNanos()), millis(getInitNanos()));
+    }
+  }
+
+  @Override
+  public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName)
+  {
+    if (this.stopped)
+    {
+      return null;
+    }
+    this.inProgress.get().push(new BeanTiming(beanName, beanClass, System.nanoTime()));
+    return null;
+  }
+
+  @Override
+  public boolean postProcessAfterInstantiation(Object bean, String beanName)
+  {
+    final BeanTiming timing = current(beanName);
+    if (timing != null)
+    {
+      timing.instantiated = System.nanoTime();
+    }
+    return true;
+  }
+
+  @Override
+  public PropertyValues postProcessPropertyValues(PropertyValues pvs, PropertyDescriptor[] pds, Object bean,
+          String beanName)
+  {
+    return pvs;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName)
+  {
+    final BeanTiming timing = current(beanName);
+    if (timing != null)
+    {
+      timing.injected = System.nanoTime();
+    }
+    return bean;
+  }
+
+  @Override
+  public Object postProcessAfterInitialization(Object bean, String beanName)
+  {
+    // Also called for the objects of factory beans, which are not being created
+    final BeanTiming timing = current(beanName);
+    if (timing == null)
+    {
+      return bean;
+    }
+    if (timing.injected == 0)
+    {
+      // Created by a post processor before instantiation
+      timing.instantiated = System.nanoTime();
+      timing.injected = timing.instantiated;
+    }
+
+    timing.end = System.nanoTime();
+    final Deque<BeanTiming> stack = this.inProgress.get();
+    stack.pop();
+    if (!stack.isEmpty())
+    {
+      stack.peek().nested += timing.getTotalNanos();
+    }
+    if (!this.stopped)
+    {
+      this.beans.add(timing);
+    }
+    return bean;
+  }
+
+  /**
+   * @return the timing of <i>beanName</i>, now at the top of this thread's stack, or null if it is not being created on
+   *         this thread
+   */
+  private BeanTiming current(String beanName)
+  {
+    final Deque<BeanTiming> stack = this.inProgress.get();
+
+    // Drop the beans whose creation failed without the exception stopping the startup
+    for (final Iterator<BeanTiming> it = stack.iterator(); it.hasNext();)
+    {
+      if (it.next().beanName.equals(beanName))
+      {
+        while (!stack.peek().beanName.equals(beanName))
+        {
+          stack.pop();
+        }
+        return stack.peek();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Stop timing the beans created from now on, keeping those recorded so far.
+   */
+  public void stop()
+  {
+    this.stopped = true;
+  }
+
+  /**
+   * @return true once {@link #stop()} is called
+   */
+  public boolean isStopped()
+  {
+    return this.stopped;
+  }
+
+  /**
+   * Record the time taken by a phase of the startup.
+   *
+   * @param name - The name of the phase
+   * @param startNanos - The {@link System#nanoTime()} at the start of the phase, which ends now
+   */
+  public synchronized void phase(String name, long startNanos)
+  {
+    this.phases.put(name, System.nanoTime() - startNanos);
+  }
+
+  /**
+   * @return the phases recorded, in nanoseconds by name, in the order they were recorded
+   */
+  public synchronized Map<String, Long> getPhases()
+  {
+    return new LinkedHashMap<>(this.phases);
+  }
+
+  /**
+   * @return the beans created so far, slowest self time first
+   */
+  public List<BeanTiming> getBeanTimings()
+  {
+    final List<BeanTiming> timings = new ArrayList<>(this.beans);
+    Collections.sort(timings, new Comparator<BeanTiming>()
+    {
+      @Override
+      public int compare(BeanTiming o1, BeanTiming o2)
+      {
+        return Long.compare(o2.getSelfNanos(), o1.getSelfNanos());
+      }
+    });
+    return timings;
+  }
+
+  /**
+   * @return the phases and the {@link #REPORT_SIZE} slowest beans, one per line
+   */
+  public String report()
+  {
+    final StringBuilder sb = new StringBuilder("Startup phases:");
+    for (final Map.Entry<String, Long> phase : getPhases().entrySet())
+    {
+      sb.append(String.format("%n%10.1f ms  %s", millis(phase.getValue()), phase.getKey()));
+    }
+
+    final List<BeanTiming> timings = getBeanTimings();
+    sb.append(String.format("%nSlowest of %d beans, by self time:", timings.size()));
+    for (final BeanTiming timing : timings.subList(0, Math.min(REPORT_SIZE, timings.size())))
+    {
+      sb.append(String.format("%n")).append(timing);
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Write the phases and every bean, slowest first, as tab separated values in microseconds.
+   *
+   * @param file - The file to write, replaced if it exists
+   * @throws IOException - if it cannot be written
+   */
+  public void write(Path file) throws IOException
+  {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+    {
+      writer.write("kind\tname\ttype\tinstantiation_us\tinjection_us\tinit_us\ttotal_us\tself_us");
+      writer.newLine();
+      for (final Map.Entry<String, Long> phase : getPhases().entrySet())
+      {
+        final long micros = micros(phase.getValue());
+        writer.write("phase\t" + phase.getKey() + "\t\t\t\t\t" + micros + "\t" + micros);
+        writer.newLine();
+      }
+      for (final BeanTiming timing : getBeanTimings())
+      {
+        writer.write("bean\t" + timing.beanName + "\t" + (timing.beanClass == null ? "" : timing.beanClass.getName())
+                + "\t" + micros(timing.getInstantiationNanos()) + "\t" + micros(timing.getInjectionNanos()) + "\t"
+                + micros(timing.getInitNanos()) + "\t" + micros(timing.getTotalNanos()) + "\t"
+                + micros(timing.getSelfNanos()));
+        writer.newLine();
+      }
+    }
+  }
+
+  private static double millis(long nanos)
+  {
+    return nanos / 1e6;
+  }
+
+  private static long micros(long nanos)
+  {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+}
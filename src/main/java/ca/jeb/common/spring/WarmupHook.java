@@ -0,0 +1,24 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+/**
+ * A bean exercising the code paths of the application during a training run of {@link SpringMain}, so that the
+ * classes they load are in the class data sharing archive the run produces.
+ * <p>
+ * Hooks run on the main thread, once the context is refreshed, in the order given by
+ * {@link org.springframework.core.Ordered} or {@link org.springframework.core.annotation.Order}; they are not called
+ * outside training runs.
+ *
+ * @author <a href="mailto:erick@jeb.ca">Erick Bourgeois</a>
+ */
+public interface WarmupHook
+{
+  /**
+   * Exercise the application, e.g. decode a sample message or render a sample report, without side effects outside the
+   * JVM.
+   *
+   * @throws Exception - to fail the training run
+   */
+  void warmup() throws Exception;
+}
@@ -0,0 +1,159 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class BeanIntrospectorTest
+{
+  private final BeanIntrospector introspector = BeanIntrospector.forClass(TestBean.class);
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.BeanIntrospector#forClass(java.lang.Class)}.
+   */
+  @Test
+  public void testProperties()
+  {
+    Assert.assertSame("The introspector was rebuilt", introspector, BeanIntrospector.forClass(TestBean.class));
+    Assert.assertEquals("Static fields should not be properties", 5, introspector.size());
+    Assert.assertEquals("The first property is not 'name'", "name", introspector.getName(0));
+    Assert.assertEquals("The inherited property 'id' is not last", 4, introspector.indexOf("id"));
+    Assert.assertEquals("The type of 'count' is not int", int.class, introspector.getFieldType(introspector.indexOf("count")));
+    Assert.assertNull("'readOnly' should not have a setter", introspector.getSetter(introspector.indexOf("readOnly")));
+    Assert.assertNull("'writeOnly' should not have a getter", introspector.getGetter(introspector.indexOf("writeOnly")));
+    Assert.assertEquals("A missing property has an index", -1, introspector.indexOf("missing"));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.BeanIntrospector#extractAll(java.lang.Object, java.lang.Object[])}.
+   */
+  @Test
+  public void testExtractAll() throws InvocationTargetException
+  {
+    final TestBean bean = new TestBean();
+    bean.setName("foo");
+    bean.setCount(10);
+    bean.setId(20L);
+
+    final Object[] values = new Object[introspector.size()];
+    introspector.extractAll(bean, values);
+    Assert.assertArrayEquals(new Object[]{ "foo", 10, "fixed", null, 20L }, values);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.BeanIntrospector#populate(java.lang.Object, java.lang.Object[])}.
+   */
+  @Test
+  public void testPopulate() throws InvocationTargetException
+  {
+    final TestBean bean = new TestBean();
+    introspector.populate(bean, new Object[]{ "bar", 30, "ignored", "baz", 40L });
+
+    Assert.assertEquals("'name' was not populated", "bar", bean.getName());
+    Assert.assertEquals("'count' was not populated", 30, bean.getCount());
+    Assert.assertEquals("'id' was not populated", Long.valueOf(40L), bean.getId());
+    Assert.assertEquals("'readOnly' was populated", "fixed", bean.getReadOnly());
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.BeanIntrospector#extractAll(java.lang.Object, java.lang.Object[])}.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testExtractAllArrayTooSmall() throws InvocationTargetException
+  {
+    introspector.extractAll(new TestBean(), new Object[1]);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.BeanIntrospector#getSetter(int)}, which must resolve the same "setter"
+   * as {@link JReflectionUtils#runSetter(Object, String, Object, Class)}.
+   */
+  @Test
+  public void testBoxedSetter() throws Exception
+  {
+    final BeanIntrospector boxed = BeanIntrospector.forClass(BoxedBean.class);
+    final JMutator setter = boxed.getSetter(boxed.indexOf("size"));
+    Assert.assertNotNull("The boxed setter of an int field was not found", setter);
+    Assert.assertSame("populate and runSetter resolve different setters", JReflectionUtils.getMutator(BoxedBean.class,
+            "setSize", int.class), setter);
+
+    final BoxedBean bean = new BoxedBean();
+    boxed.populate(bean, new Object[]{ 7 });
+    Assert.assertEquals("'size' was not populated", 7, bean.size);
+  }
+
+  private static class BoxedBean
+  {
+    private int size;
+
+    public void setSize(Integer size)
+    {
+      this.size = size;
+    }
+  }
+
+  private static class BaseBean
+  {
+    private Long id;
+
+    public Long getId()
+    {
+      return id;
+    }
+
+    public void setId(Long id)
+    {
+      this.id = id;
+    }
+  }
+
+  private static class TestBean extends BaseBean
+  {
+    @SuppressWarnings("unused")
+    private static final String CONSTANT = "constant";
+
+    private String              name;
+
+    private int                 count;
+
+    private String              readOnly = "fixed";
+
+    @SuppressWarnings("unused")
+    private String              writeOnly;
+
+    public String getName()
+    {
+      return name;
+    }
+
+    public void setName(String name)
+    {
+      this.name = name;
+    }
+
+    public int getCount()
+    {
+      return count;
+    }
+
+    public void setCount(int count)
+    {
+      this.count = count;
+    }
+
+    public String getReadOnly()
+    {
+      return readOnly;
+    }
+
+    public void setWriteOnly(String writeOnly)
+    {
+      this.writeOnly = writeOnly;
+    }
+  }
+}
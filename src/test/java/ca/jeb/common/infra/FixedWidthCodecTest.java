@@ -0,0 +1,217 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class FixedWidthCodecTest
+{
+  private static final int             ID       = 0;
+
+  private static final int             NAME     = 1;
+
+  private static final int             CURRENCY = 2;
+
+  private static final int             AMOUNT   = 3;
+
+  private static final FixedWidthCodec CODEC    = newCodec(StandardCharsets.ISO_8859_1);
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.FixedWidthCodec.Record#set(int, java.lang.CharSequence)}.
+   */
+  @Test
+  public void testSet()
+  {
+    final FixedWidthCodec.Record record = CODEC.newRecord();
+    Assert.assertEquals("A new record is not blank", "000000          *** 000000000", record.toString());
+
+    record.setLong(ID, 42).set(NAME, "foo").set(CURRENCY, "EUR").setLong(AMOUNT, -1250);
+    Assert.assertEquals("set is not padding the fields", "000042foo       EUR -00001250", record.toString());
+
+    record.set(NAME, "a name that is too long");
+    Assert.assertEquals("set is not truncating the value", "a name tha", record.getString(NAME));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.FixedWidthCodec.Record#getLong(int)}.
+   */
+  @Test
+  public void testGetLong()
+  {
+    final FixedWidthCodec.Record record = CODEC.newRecord();
+    Assert.assertEquals("getLong is not returning 0 for a blank field", 0, record.getLong(ID));
+
+    for (long value : new long[]{ 0, 7, -7, 99999999L, -9999999L })
+    {
+      Assert.assertEquals("getLong is not returning " + value, value, record.setLong(AMOUNT, value).getLong(AMOUNT));
+    }
+
+    final FixedWidthCodec wide = new FixedWidthCodec(StandardCharsets.ISO_8859_1, null, Arrays.asList(
+            new FixedWidthCodec.Field("value", 0, 20, JStringUtils.Alignment.RIGHT, ' ')));
+    final FixedWidthCodec.Record wideRecord = wide.newRecord();
+    for (long value : new long[]{ Long.MAX_VALUE, Long.MIN_VALUE })
+    {
+      Assert.assertEquals("getLong is not returning " + value, value, wideRecord.setLong(0, value).getLong(0));
+    }
+
+    try
+    {
+      record.setLong(AMOUNT, 1234567890L);
+      Assert.fail("setLong is not rejecting a number that does not fit");
+    }
+    catch (IllegalArgumentException e)
+    {
+      // expected
+    }
+
+    try
+    {
+      record.set(CURRENCY, "EU1").getLong(CURRENCY);
+      Assert.fail("getLong is not rejecting letters");
+    }
+    catch (NumberFormatException e)
+    {
+      // expected
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.FixedWidthCodec#encode(FixedWidthCodec.Record, java.nio.ByteBuffer)}
+   * and {@link ca.jeb.common.infra.FixedWidthCodec#decode(java.nio.ByteBuffer, FixedWidthCodec.Record)}.
+   */
+  @Test
+  public void testEncodeDecode()
+  {
+    final FixedWidthCodec.Record record = CODEC.newRecord().setLong(ID, 1).set(NAME, "caf\u00E9").set(CURRENCY, "EUR");
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(CODEC.getEncodedLength() * 2);
+    CODEC.encode(record, buffer);
+    CODEC.encode(record.setLong(ID, 2), buffer);
+    buffer.flip();
+
+    final FixedWidthCodec.Record decoded = CODEC.newRecord();
+    CODEC.decode(buffer, decoded);
+    Assert.assertEquals("decode is not returning the first id", 1, decoded.getLong(ID));
+    Assert.assertEquals("decode is not returning the name", "caf\u00E9", decoded.getString(NAME));
+    Assert.assertEquals("decode is not returning the currency", "EUR",
+            decoded.appendTo(CURRENCY, new StringBuilder()).toString());
+    CODEC.decode(buffer, decoded);
+    Assert.assertEquals("decode is not returning the second id", 2, decoded.getLong(ID));
+    Assert.assertFalse("decode is not skipping the separator", buffer.hasRemaining());
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.FixedWidthCodec.Record#wrap(char[], int)}.
+   */
+  @Test
+  public void testWrap()
+  {
+    final int length = CODEC.getRecordLength();
+    final char[] records = new char[length * 2];
+    final FixedWidthCodec.Record record = CODEC.newRecord();
+    record.wrap(records, 0).clear().setLong(ID, 1).set(NAME, "foo");
+    record.wrap(records, length).clear().setLong(ID, 2).set(NAME, "bar");
+
+    Assert.assertEquals("wrap is not writing in place", "000002bar       *** 000000000", new String(records, length,
+            length));
+    Assert.assertEquals("wrap is not reading in place", "foo", record.wrap(records, 0).getString(NAME));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.FixedWidthCodec#newWriter(java.nio.channels.WritableByteChannel, int)}
+   * and {@link ca.jeb.common.infra.FixedWidthCodec#newReader(java.nio.channels.ReadableByteChannel, int)}.
+   */
+  @Test
+  public void testStreaming() throws Exception
+  {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final FixedWidthCodec.Record record = CODEC.newRecord();
+    try (FixedWidthCodec.RecordWriter writer = CODEC.newWriter(Channels.newChannel(out), 3))
+    {
+      for (int i = 0; i < 10; i++)
+      {
+        writer.write(record.setLong(ID, i).setLong(AMOUNT, i * 100));
+      }
+    }
+    Assert.assertEquals("The writer is not writing every record", CODEC.getEncodedLength() * 10, out.size());
+
+    int count = 0;
+    try (FixedWidthCodec.RecordReader reader = CODEC.newReader(Channels.newChannel(new ByteArrayInputStream(out
+            .toByteArray())), 4))
+    {
+      while (reader.read(record))
+      {
+        Assert.assertEquals("The reader is not reading the records in order", count, record.getLong(ID));
+        Assert.assertEquals("The reader is not reading the amount", count * 100, record.getLong(AMOUNT));
+        count++;
+      }
+    }
+    Assert.assertEquals("The reader is not reading every record", 10, count);
+
+    final byte[] truncated = Arrays.copyOf(out.toByteArray(), CODEC.getEncodedLength() + 5);
+    try (FixedWidthCodec.RecordReader reader = CODEC.newReader(Channels.newChannel(new ByteArrayInputStream(truncated)),
+            4))
+    {
+      Assert.assertTrue("The reader is not reading the first record", reader.read(record));
+      reader.read(record);
+      Assert.fail("The reader is not rejecting a truncated record");
+    }
+    catch (EOFException e)
+    {
+      // expected
+    }
+  }
+
+  /**
+   * Encoding and decoding through an EBCDIC code page.
+   */
+  @Test
+  public void testEbcdic()
+  {
+    if (!Charset.isSupported("IBM037"))
+    {
+      return;
+    }
+
+    final FixedWidthCodec codec = newCodec(Charset.forName("IBM037"));
+    final FixedWidthCodec.Record record = codec.newRecord().setLong(ID, 42).set(NAME, "Foo");
+    final ByteBuffer buffer = ByteBuffer.allocate(codec.getEncodedLength());
+    codec.encode(record, buffer);
+    Assert.assertEquals("'4' is not encoded as EBCDIC", (byte)0xF4, buffer.get(4));
+
+    buffer.flip();
+    codec.decode(buffer, record.clear());
+    Assert.assertEquals("The EBCDIC record did not round trip", "Foo", record.getString(NAME));
+    Assert.assertEquals("The EBCDIC record did not round trip", 42, record.getLong(ID));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.FixedWidthCodec#FixedWidthCodec(Charset, String, java.util.List)}.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testOverlappingFields()
+  {
+    new FixedWidthCodec(StandardCharsets.ISO_8859_1, null, Arrays.asList(new FixedWidthCodec.Field("a", 0, 5,
+            JStringUtils.Alignment.LEFT, ' '), new FixedWidthCodec.Field("b", 4, 5, JStringUtils.Alignment.LEFT, ' ')));
+  }
+
+  private static FixedWidthCodec newCodec(Charset charset)
+  {
+    return new FixedWidthCodec(charset, JStringUtils.NEW_LINE, Arrays.asList(
+            new FixedWidthCodec.Field("id", 0, 6, JStringUtils.Alignment.RIGHT, '0'),
+            new FixedWidthCodec.Field("name", 6, 10, JStringUtils.Alignment.LEFT, ' '),
+            new FixedWidthCodec.Field("currency", 16, 3, JStringUtils.Alignment.LEFT, '*'),
+            new FixedWidthCodec.Field("amount", 20, 9, JStringUtils.Alignment.RIGHT, '0')));
+  }
+}
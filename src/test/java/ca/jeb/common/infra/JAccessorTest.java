@@ -0,0 +1,145 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class JAccessorTest
+{
+  private TestClass testClass = new TestClass();
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JAccessor#getInt(java.lang.Object)}.
+   */
+  @Test
+  public void testGetInt() throws Exception
+  {
+    final JAccessor accessor = JAccessor.forMethod(TestClass.class.getMethod("getCount"));
+    Assert.assertEquals("Accessor type is not int", int.class, accessor.getType());
+    Assert.assertEquals("getInt is not returning 42", 42, accessor.getInt(testClass));
+    Assert.assertEquals("get is not returning a boxed 42", Integer.valueOf(42), accessor.get(testClass));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JAccessor#getBoolean(java.lang.Object)}.
+   */
+  @Test
+  public void testGetBoolean() throws Exception
+  {
+    final JAccessor accessor = JAccessor.forMethod(TestClass.class.getMethod("isActive"));
+    Assert.assertTrue("getBoolean is not returning true", accessor.getBoolean(testClass));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JAccessor#get(java.lang.Object)}.
+   */
+  @Test
+  public void testGetObject() throws Exception
+  {
+    final JAccessor accessor = JAccessor.forMethod(TestClass.class.getMethod("getName"));
+    Assert.assertEquals("get is not returning 'foo'", "foo", accessor.get(testClass));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JAccessor#get(java.lang.Object)}.
+   */
+  @Test(expected = InvocationTargetException.class)
+  public void testGetThrows() throws Exception
+  {
+    JAccessor.forMethod(TestClass.class.getMethod("getBroken")).get(testClass);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JAccessor#getInt(java.lang.Object)} on a null target.
+   */
+  @Test(expected = NullPointerException.class)
+  public void testGetNullTarget() throws Exception
+  {
+    JAccessor.forMethod(TestClass.class.getMethod("getCount")).getInt(null);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JAccessor#get(java.lang.Object)} on a target of another class.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testGetWrongTarget() throws Exception
+  {
+    JAccessor.forMethod(TestClass.class.getMethod("getName")).get("not a TestClass");
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JMutator#set(java.lang.Object, java.lang.Object)} with a value of the
+   * wrong type.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testSetWrongValue() throws Exception
+  {
+    JMutator.forMethod(TestClass.class.getMethod("setCount", int.class)).set(testClass, "42");
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JInvoker#invoke(java.lang.Object, java.lang.Object...)}.
+   */
+  @Test
+  public void testInvokeChecks() throws Exception
+  {
+    final JInvoker invoker = JInvoker.forMethod(TestClass.class.getMethod("add", int.class, long.class));
+    Assert.assertEquals("invoke is not widening its arguments", 3L, invoker.invoke(testClass, 1, 2));
+    try
+    {
+      invoker.invoke(testClass, 1);
+      Assert.fail("invoke is not checking the number of arguments");
+    }
+    catch (IllegalArgumentException e)
+    {
+      // expected
+    }
+    try
+    {
+      invoker.invoke(null, 1, 2L);
+      Assert.fail("invoke is not checking the target");
+    }
+    catch (NullPointerException e)
+    {
+      // expected
+    }
+  }
+
+  private class TestClass
+  {
+    public void setCount(int count)
+    {
+      // ignored
+    }
+
+    public long add(int a, long b)
+    {
+      return a + b;
+    }
+
+    public int getCount()
+    {
+      return 42;
+    }
+
+    public boolean isActive()
+    {
+      return true;
+    }
+
+    public String getName()
+    {
+      return "foo";
+    }
+
+    public String getBroken()
+    {
+      throw new IllegalStateException("broken");
+    }
+  }
+}
@@ -0,0 +1,228 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class JClassMetadataTest
+{
+  private static final int THREADS    = 16;
+
+  private static final int ITERATIONS = 10000;
+
+  /**
+   * Hammer {@link JReflectionUtils#runGetter(Object, Field)} from many threads at once, on a class that has never
+   * been seen before, and make sure each "getter" was only ever resolved once.
+   */
+  @Test
+  public void testConcurrentRunGetterResolvesOnce() throws Exception
+  {
+    final Field[] fields = StressBean.class.getDeclaredFields();
+    final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try
+    {
+      final List<Future<Long>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++)
+      {
+        futures.add(executor.submit(new Callable<Long>()
+        {
+          @Override
+          public Long call() throws Exception
+          {
+            final StressBean bean = new StressBean();
+            barrier.await();
+
+            long sum = 0;
+            for (int i = 0; i < ITERATIONS; i++)
+            {
+              for (Field field : fields)
+              {
+                sum += ((Number)JReflectionUtils.runGetter(bean, field)).longValue();
+              }
+            }
+            return sum;
+          }
+        }));
+      }
+
+      for (Future<Long> future : futures)
+      {
+        Assert.assertEquals("Unexpected sum of getter values", (long)ITERATIONS * (1 + 2 + 3), (long)future.get());
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    Assert.assertEquals("Getters were resolved more than once", fields.length, JClassMetadata.forClass(StressBean.class)
+            .getResolutionCount());
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JClassMetadata#getAccessorTable()}.
+   */
+  @Test
+  public void testAccessorTable()
+  {
+    final JClassMetadata.AccessorTable table = JClassMetadata.forClass(StressBean.class).getAccessorTable();
+    Assert.assertSame("The accessor table was rebuilt", table, JClassMetadata.forClass(StressBean.class).getAccessorTable());
+    Assert.assertEquals("The accessor table does not have 3 entries", 3, table.size());
+
+    final int index = table.indexOf("second");
+    Assert.assertEquals("The accessor table is not indexed by name", "second", table.getName(index));
+    Assert.assertEquals("The accessor at the index of 'second' is not 'getSecond'", "getSecond", table.get(index).getName());
+    Assert.assertEquals("A missing field has an index", -1, table.indexOf("missing"));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JReflectionUtils#getAvoidedMissCount(java.lang.Class)}.
+   */
+  @Test
+  public void testMissesAreCached() throws Exception
+  {
+    final MissBean bean = new MissBean();
+    final Field hidden = MissBean.class.getDeclaredField("hidden");
+    final Field foreign = StressBean.class.getDeclaredField("first");
+
+    for (int i = 0; i < 10; i++)
+    {
+      Assert.assertNull("A field without a getter returned a value", JReflectionUtils.runGetter(bean, hidden));
+      Assert.assertNull("A field of another class returned a value", JReflectionUtils.runGetter(bean, foreign));
+    }
+
+    Assert.assertEquals("Misses were resolved more than once", 2, JClassMetadata.forClass(MissBean.class).getResolutionCount());
+    Assert.assertEquals("Avoided misses were not counted", 19, JReflectionUtils.getAvoidedMissCount(MissBean.class));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JClassMetadata#getAccessor(String)} with more names that do not belong
+   * to the class than are cached.
+   */
+  @Test
+  public void testOtherAccessorsAreBounded() throws IllegalAccessException
+  {
+    final JClassMetadata metadata = JClassMetadata.forClass(OtherNamesBean.class);
+    for (int i = 0; i < JClassMetadata.MAX_OTHER_ACCESSORS * 4; i++)
+    {
+      Assert.assertNull("A name of no field returned a getter", metadata.getAccessor("missing" + i));
+    }
+    Assert.assertEquals("The names of no field are not bounded", JClassMetadata.MAX_OTHER_ACCESSORS, metadata
+            .getOtherAccessorCount());
+
+    final int resolutions = metadata.getResolutionCount();
+    Assert.assertNull("A cached name of no field returned a getter", metadata.getAccessor("missing0"));
+    Assert.assertEquals("A cached name of no field was resolved again", resolutions, metadata.getResolutionCount());
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JClassMetadata#getAccessor(String)} on a "getter" that cannot be
+   * accessed: the public <code>isEmpty()</code> of a private JDK class.
+   */
+  @Test
+  public void testInaccessibleIsCached()
+  {
+    final JClassMetadata metadata = JClassMetadata.forClass(Collections.emptyList().getClass());
+    int resolutions = -1;
+    for (int i = 0; i < 3; i++)
+    {
+      try
+      {
+        metadata.getAccessor("empty");
+        Assert.fail("getAccessor is not failing");
+      }
+      catch (IllegalAccessException e)
+      {
+        Assert.assertNotNull("IllegalAccessException is not caused by the original failure", e.getCause());
+      }
+      if (resolutions < 0)
+      {
+        resolutions = metadata.getResolutionCount();
+      }
+    }
+    Assert.assertEquals("The inaccessible getter was resolved more than once", resolutions, metadata
+            .getResolutionCount());
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JClassMetadata#getMutator(String, Class)} with an argument type from
+   * another class loader.
+   */
+  @Test
+  public void testForeignLoaderIsNotCached() throws Exception
+  {
+    final URL classes = JClassMetadataTest.class.getProtectionDomain().getCodeSource().getLocation();
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{ classes }, null))
+    {
+      final Class<?> foreign = loader.loadClass(ValueBean.class.getName());
+      Assert.assertNotSame("The class was not loaded again", ValueBean.class, foreign);
+
+      final JClassMetadata metadata = JClassMetadata.forClass(ValueBean.class);
+      for (int i = 0; i < 3; i++)
+      {
+        Assert.assertNotNull("The setter was not found", metadata.getMutator("setValue", String.class));
+        Assert.assertNotNull("The setter was not found", metadata.getMutator("setValue", foreign));
+      }
+      Assert.assertEquals("The foreign argument type was cached, or the local one was not", 1 + 3, metadata
+              .getResolutionCount());
+    }
+  }
+
+  public static class ValueBean
+  {
+    public void setValue(Object value)
+    {
+      // ignored
+    }
+  }
+
+  private static class MissBean
+  {
+    @SuppressWarnings("unused")
+    private String hidden = "hidden";
+  }
+
+  private static class OtherNamesBean
+  {
+  }
+
+  private static class StressBean
+  {
+    private int  first  = 1;
+
+    private long second = 2;
+
+    private Long third  = 3L;
+
+    public int getFirst()
+    {
+      return first;
+    }
+
+    public long getSecond()
+    {
+      return second;
+    }
+
+    public Long getThird()
+    {
+      return third;
+    }
+  }
+}
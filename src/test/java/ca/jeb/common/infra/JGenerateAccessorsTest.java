@@ -0,0 +1,34 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class JGenerateAccessorsTest
+{
+  /**
+   * Annotated classes without a generated provider fall back to reflection. The generated providers themselves are
+   * tested on the output of the processor, in the <code>processor</code> module.
+   */
+  @Test
+  public void testMissingProviderFallsBack() throws Exception
+  {
+    final NotGeneratedBean bean = new NotGeneratedBean();
+    Assert.assertEquals("Reflection was not used", "foo",
+            JReflectionUtils.runGetter(bean, NotGeneratedBean.class.getDeclaredField("name")));
+  }
+
+  @JGenerateAccessors
+  static class NotGeneratedBean
+  {
+    private String name = "foo";
+
+    public String getName()
+    {
+      return name;
+    }
+  }
+}
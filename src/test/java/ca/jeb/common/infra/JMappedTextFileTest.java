@@ -0,0 +1,182 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class JMappedTextFileTest
+{
+  private static final int LINES = 1000;
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JMappedTextFile#lines()}.
+   */
+  @Test
+  public void testLines() throws Exception
+  {
+    final Path path = write("foo\r\nbar\n\nbaz", StandardCharsets.ISO_8859_1);
+    try (JMappedTextFile file = JMappedTextFile.open(path, StandardCharsets.ISO_8859_1))
+    {
+      Assert.assertEquals("lines is not splitting on line feeds", Arrays.asList("foo", "bar", "", "baz"), toStrings(file
+              .lines()));
+    }
+
+    final Path terminated = write("foo\n", StandardCharsets.ISO_8859_1);
+    try (JMappedTextFile file = JMappedTextFile.open(terminated, StandardCharsets.ISO_8859_1))
+    {
+      Assert.assertEquals("lines is returning a line after the final line feed", Arrays.asList("foo"), toStrings(file
+              .lines()));
+    }
+
+    final Path empty = write("", StandardCharsets.ISO_8859_1);
+    try (JMappedTextFile file = JMappedTextFile.open(empty, StandardCharsets.ISO_8859_1))
+    {
+      Assert.assertFalse("lines is not empty for an empty file", file.lines().iterator().hasNext());
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JMappedTextFile#slice(long, long)}.
+   */
+  @Test
+  public void testSlice() throws Exception
+  {
+    final Path path = write("caf\u00E9 au lait\n\u20AC10", StandardCharsets.UTF_8);
+    try (JMappedTextFile file = JMappedTextFile.open(path, StandardCharsets.UTF_8))
+    {
+      Assert.assertEquals("slice is not decoding UTF-8", "caf\u00E9", file.slice(0, 5).toString());
+      Assert.assertEquals("slice is not decoding UTF-8", 4, file.slice(0, 5).length());
+      Assert.assertEquals("lines is not decoding UTF-8", Arrays.asList("caf\u00E9 au lait", "\u20AC10"), toStrings(file
+              .lines()));
+    }
+
+    final Path latin = write("foo bar", StandardCharsets.ISO_8859_1);
+    try (JMappedTextFile file = JMappedTextFile.open(latin, StandardCharsets.ISO_8859_1))
+    {
+      final CharSequence slice = file.slice(4, 7);
+      Assert.assertEquals("slice is not returning 'bar'", "bar", slice.toString());
+      Assert.assertEquals("charAt is not reading the mapped bytes", 'a', slice.charAt(1));
+      Assert.assertEquals("subSequence is not returning 'ar'", "ar", slice.subSequence(1, 3).toString());
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JMappedTextFile#forEachLine(JMappedTextFile.LineHandler, int)}.
+   */
+  @Test
+  public void testForEachLineParallel() throws Exception
+  {
+    final List<String> expected = new ArrayList<>();
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < LINES; i++)
+    {
+      final String line = "line " + i + " \u00E9";
+      expected.add(line);
+      sb.append(line).append('\n');
+    }
+    final Path path = write(sb.toString(), StandardCharsets.UTF_8);
+
+    // Small regions, so lines are found across several of them
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            JMappedTextFile file = new JMappedTextFile(channel, StandardCharsets.UTF_8, 1000))
+    {
+      Assert.assertEquals("lines is not returning every line across regions", expected, toStrings(file.lines()));
+
+      final List<String> lines = Collections.synchronizedList(new ArrayList<String>());
+      final long count = file.forEachLine(new JMappedTextFile.LineHandler()
+      {
+        @Override
+        public void onLine(CharSequence line)
+        {
+          lines.add(line.toString());
+        }
+      }, 4);
+
+      Assert.assertEquals("forEachLine is not counting every line", LINES, count);
+      Collections.sort(lines);
+      final List<String> sorted = new ArrayList<>(expected);
+      Collections.sort(sorted);
+      Assert.assertEquals("forEachLine is not passing every line once", sorted, lines);
+
+      long previous = 0;
+      for (JMappedTextFile.Chunk chunk : file.split(16))
+      {
+        Assert.assertEquals("Chunks are not contiguous", previous, chunk.getStart());
+        Assert.assertEquals("A chunk is not ending after a line feed", "\n", file.slice(chunk.getEnd() - 1, chunk
+                .getEnd()).toString());
+        previous = chunk.getEnd();
+      }
+      Assert.assertEquals("Chunks are not covering the file", file.size(), previous);
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JMappedTextFile#forEachLine(JMappedTextFile.LineHandler, int)}.
+   */
+  @Test
+  public void testForEachLineThrows() throws Exception
+  {
+    final Path path = write("foo\nbar\nbaz\n", StandardCharsets.ISO_8859_1);
+    try (JMappedTextFile file = JMappedTextFile.open(path, StandardCharsets.ISO_8859_1))
+    {
+      file.forEachLine(new JMappedTextFile.LineHandler()
+      {
+        @Override
+        public void onLine(CharSequence line) throws IOException
+        {
+          if ("bar".contentEquals(line))
+          {
+            throw new IOException("bar");
+          }
+        }
+      }, 3);
+      Assert.fail("forEachLine is not rethrowing the handler's exception");
+    }
+    catch (IOException e)
+    {
+      Assert.assertEquals("forEachLine is not rethrowing the handler's exception", "bar", e.getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JMappedTextFile#open(java.nio.file.Path, java.nio.charset.Charset)}.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedCharset() throws Exception
+  {
+    JMappedTextFile.open(write("foo", StandardCharsets.UTF_16), StandardCharsets.UTF_16);
+  }
+
+  private static Path write(String text, Charset charset) throws IOException
+  {
+    final File file = File.createTempFile("jmapped", ".txt");
+    file.deleteOnExit();
+    return Files.write(file.toPath(), text.getBytes(charset));
+  }
+
+  private static List<String> toStrings(Iterable<CharSequence> lines)
+  {
+    final List<String> strings = new ArrayList<>();
+    for (CharSequence line : lines)
+    {
+      strings.add(line.toString());
+    }
+    return strings;
+  }
+}
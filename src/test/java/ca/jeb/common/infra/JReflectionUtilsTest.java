@@ -44,6 +44,45 @@ public class JReflectionUtilsTest
     Assert.assertEquals("The expected value " + TEN + " is not equal to the result " + value, (int)value, TEN);
   }
 
+  /**
+   * Test method for {@link ca.jeb.common.infra.JReflectionUtils#getAccessor(java.lang.Class, java.lang.String)}.
+   */
+  @Test
+  public void testGetAccessor() throws IllegalAccessException, InvocationTargetException
+  {
+    final JAccessor accessor = JReflectionUtils.getAccessor(testClass.getClass(), "foo");
+    Assert.assertEquals("The expected value " + TEN + " is not returned by getInt", TEN, accessor.getInt(testClass));
+    Assert.assertNull("An accessor was returned for a missing field", JReflectionUtils.getAccessor(testClass.getClass(), "bar"));
+  }
+
+  /**
+   * Anonymous classes have no canonical name, make sure their cached getters do not collide.
+   */
+  @Test
+  public void testRunGetterAnonymousClasses() throws NoSuchFieldException, IllegalAccessException, InvocationTargetException
+  {
+    final Object first = new Object()
+    {
+      @SuppressWarnings("unused")
+      public String getValue()
+      {
+        return "first";
+      }
+    };
+    final Object second = new Object()
+    {
+      @SuppressWarnings("unused")
+      public Integer getValue()
+      {
+        return TWENTY;
+      }
+    };
+
+    final Field field = ValueHolder.class.getDeclaredField("value");
+    Assert.assertEquals("The first anonymous class did not return 'first'", "first", JReflectionUtils.runGetter(first, field));
+    Assert.assertEquals("The second anonymous class did not return " + TWENTY, TWENTY, JReflectionUtils.runGetter(second, field));
+  }
+
   /**
    * Test method for
    * {@link ca.jeb.common.infra.JReflectionUtils#runSetter(java.lang.Object, java.lang.String, java.lang.Object, java.lang.Class)}.
@@ -61,6 +100,59 @@ public class JReflectionUtilsTest
     }
   }
 
+  /**
+   * Test method for
+   * {@link ca.jeb.common.infra.JReflectionUtils#runSetter(java.lang.Object, java.lang.String, java.lang.Object, java.lang.Class)}
+   * with an argument type that only matches after unboxing.
+   */
+  @Test
+  public void testRunSetterBoxed() throws JException
+  {
+    JReflectionUtils.runSetter(testClass, "setFoo", TWENTY, null);
+    Assert.assertEquals("setFoo was not called with the unboxed " + TWENTY, TWENTY, testClass.getFoo());
+
+    JReflectionUtils.runSetter(testClass, "setFoo", (short)TEN, Short.class);
+    Assert.assertEquals("setFoo was not called with the widened " + TEN, TEN, testClass.getFoo());
+  }
+
+  /**
+   * Test method for
+   * {@link ca.jeb.common.infra.JReflectionUtils#runSetter(java.lang.Object, java.lang.String, java.lang.Object, java.lang.Class)}
+   * with a varargs "setter".
+   */
+  @Test
+  public void testRunSetterVarargs() throws JException
+  {
+    final String[] values = { "a", "b" };
+    JReflectionUtils.runSetter(testClass, "setValues", values, String[].class);
+    Assert.assertSame("setValues was not called with the array", values, testClass.getValues());
+  }
+
+  /**
+   * Test method for
+   * {@link ca.jeb.common.infra.JReflectionUtils#runSetter(java.lang.Object, java.lang.String, java.lang.Object, java.lang.Class)}
+   * with a missing "setter".
+   */
+  @Test(expected = JException.class)
+  public void testRunSetterMissing() throws JException
+  {
+    JReflectionUtils.runSetter(testClass, "setBar", TEN, int.class);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JReflectionUtils#getMutator(java.lang.Class, java.lang.String, java.lang.Class)}.
+   */
+  @Test
+  public void testGetMutator() throws IllegalAccessException, InvocationTargetException
+  {
+    final JMutator mutator = JReflectionUtils.getMutator(testClass.getClass(), "setFoo", Integer.class);
+    Assert.assertSame("The setter was resolved twice", mutator, JReflectionUtils.getMutator(testClass.getClass(), "setFoo",
+            Integer.class));
+
+    mutator.setInt(testClass, TWENTY);
+    Assert.assertEquals("setInt did not set " + TWENTY, TWENTY, testClass.getFoo());
+  }
+
   /**
    * Test method for {@link ca.jeb.common.infra.JReflectionUtils#runMethod(java.lang.Object, java.lang.String, java.lang.Object[])}.
    */
@@ -78,6 +170,55 @@ public class JReflectionUtilsTest
     }
   }
 
+  /**
+   * Test method for {@link ca.jeb.common.infra.JReflectionUtils#runMethod(java.lang.Object, java.lang.String, java.lang.Object[])}
+   * with arguments and overloads.
+   */
+  @Test
+  public void testRunMethodWithArguments() throws JException
+  {
+    Assert.assertEquals("add(int, int) did not return " + (TEN + TWENTY), TEN + TWENTY,
+            JReflectionUtils.runMethod(testClass, "add", TEN, TWENTY));
+    Assert.assertEquals("The String overload of describe was not chosen", "String:foo",
+            JReflectionUtils.runMethod(testClass, "describe", "foo"));
+    Assert.assertEquals("The Object overload of describe was not chosen", "Object:" + TEN,
+            JReflectionUtils.runMethod(testClass, "describe", TEN));
+    Assert.assertEquals("The String overload of describe was not chosen for null", "String:null",
+            JReflectionUtils.runMethod(testClass, "describe", (Object)null));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JReflectionUtils#runMethod(java.lang.Object, java.lang.String, java.lang.Object[])}
+   * with a varargs method.
+   */
+  @Test
+  public void testRunMethodVarargs() throws JException
+  {
+    Assert.assertEquals("join(String, String...) did not return 'a,b'", "a,b",
+            JReflectionUtils.runMethod(testClass, "join", ",", new String[]{ "a", "b" }));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JReflectionUtils#runMethod(java.lang.Object, java.lang.String, java.lang.Object[])}
+   * with arguments that do not match.
+   */
+  @Test(expected = JException.class)
+  public void testRunMethodNoMatch() throws JException
+  {
+    JReflectionUtils.runMethod(testClass, "add", "foo", TEN);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JReflectionUtils#getInvoker(java.lang.Class, java.lang.String, java.lang.Object[])}.
+   */
+  @Test
+  public void testGetInvoker() throws NoSuchMethodException, IllegalAccessException
+  {
+    final JInvoker invoker = JReflectionUtils.getInvoker(testClass.getClass(), "add", TEN, TWENTY);
+    Assert.assertSame("The invoker was resolved twice", invoker, JReflectionUtils.getInvoker(testClass.getClass(), "add", 1, 2));
+    Assert.assertEquals("The invoker does not call 'add'", "add", invoker.getMethod().getName());
+  }
+
   /**
    * Test method for {@link ca.jeb.common.infra.JReflectionUtils#getAllFields(java.util.List, java.lang.Class)}.
    */
@@ -89,6 +230,26 @@ public class JReflectionUtilsTest
     Assert.assertTrue("Field returned from getAllFields is not 'foo'", field.getName().equals("foo"));
   }
 
+  /**
+   * Test method for {@link ca.jeb.common.infra.JReflectionUtils#getAllFields(java.lang.Class)}.
+   */
+  @Test
+  public void testGetAllFieldsCached()
+  {
+    final List<Field> fields = JReflectionUtils.getAllFields(testClass.getClass());
+    Assert.assertSame("getAllFields was not cached", fields, JReflectionUtils.getAllFields(testClass.getClass()));
+    Assert.assertEquals("Field returned from getAllFields is not 'foo'", "foo", fields.get(0).getName());
+    try
+    {
+      fields.clear();
+      fail("The cached fields can be modified");
+    }
+    catch (UnsupportedOperationException e)
+    {
+      // expected
+    }
+  }
+
   /**
    * Test method for {@link ca.jeb.common.infra.JReflectionUtils#getAllMethods(java.util.List, java.lang.Class)}.
    */
@@ -117,18 +278,65 @@ public class JReflectionUtilsTest
     Assert.assertTrue("Method returned from getMethodByName is not 'getFoo'", method.getName().equals("getFoo"));
   }
 
+  private static class ValueHolder
+  {
+    @SuppressWarnings("unused")
+    private Object value;
+  }
+
   private class TestClass
   {
-    private int foo;
+    private int      foo;
+
+    private String[] values;
 
     public void setFoo(int f)
     {
       this.foo = f;
     }
 
+    public void setValues(String... values)
+    {
+      this.values = values;
+    }
+
+    public String[] getValues()
+    {
+      return this.values;
+    }
+
     public int getFoo()
     {
       return foo;
     }
+
+    public int add(int a, int b)
+    {
+      return a + b;
+    }
+
+    public String describe(Object o)
+    {
+      return "Object:" + o;
+    }
+
+    public String describe(String s)
+    {
+      return "String:" + s;
+    }
+
+    public String join(String separator, String... parts)
+    {
+      final StringBuilder sb = new StringBuilder();
+      for (String part : parts)
+      {
+        if (sb.length() > 0)
+        {
+          sb.append(separator);
+        }
+        sb.append(part);
+      }
+      return sb.toString();
+    }
   }
-}
\ No newline at end of file
+}
\ No newline at end of file
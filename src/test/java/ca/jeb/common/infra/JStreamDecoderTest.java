@@ -0,0 +1,195 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class JStreamDecoderTest
+{
+  private static final String TEXT = buildText();
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStreamDecoder#decode(java.io.InputStream, int)}.
+   */
+  @Test
+  public void testDecode() throws Exception
+  {
+    final JStreamDecoder decoder = new JStreamDecoder(JStringUtils.UTF8_CHARSET, 64);
+    final byte[] bytes = TEXT.getBytes(JStringUtils.UTF8_CHARSET);
+
+    Assert.assertEquals("decode is not keeping the text intact", TEXT, decoder.decode(new ByteArrayInputStream(bytes), -1));
+    Assert.assertEquals("decode is not keeping the text intact with a size hint", TEXT,
+            decoder.decode(new ByteArrayInputStream(bytes), bytes.length));
+    Assert.assertEquals("decode is not keeping the text intact when reading a byte at a time", TEXT,
+            decoder.decode(new TrickleInputStream(bytes), 0));
+    Assert.assertEquals("decode is not returning an empty string", "",
+            decoder.decode(new ByteArrayInputStream(new byte[0]), -1));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStreamDecoder#decode(java.io.InputStream, int)}.
+   */
+  @Test
+  public void testDecodeMalformed() throws Exception
+  {
+    final JStreamDecoder decoder = new JStreamDecoder(JStringUtils.UTF8_CHARSET);
+    final byte[] bytes = new byte[]{ 'a', (byte)0xC3, 'b', (byte)0xE2, (byte)0x82 };
+
+    Assert.assertEquals("decode is not replacing malformed input", "a\uFFFDb\uFFFD",
+            decoder.decode(new ByteArrayInputStream(bytes), -1));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStreamDecoder#decode(java.io.InputStream, int)}.
+   */
+  @Test
+  public void testDecodeReleasesLargeText() throws Exception
+  {
+    final JStreamDecoder decoder = new JStreamDecoder(JStringUtils.UTF8_CHARSET, 64);
+    final Field text = JStreamDecoder.class.getDeclaredField("text");
+    text.setAccessible(true);
+
+    decoder.decode(new ByteArrayInputStream(TEXT.getBytes(JStringUtils.UTF8_CHARSET)), -1);
+    final int kept = ((char[])text.get(decoder)).length;
+    Assert.assertTrue("decode is not keeping a small text array", kept > 0 && kept <= JStreamDecoder.MAX_KEPT_TEXT_SIZE);
+
+    final byte[] large = new byte[JStreamDecoder.MAX_KEPT_TEXT_SIZE * 2];
+    Arrays.fill(large, (byte)'a');
+    Assert.assertEquals("decode is not decoding a large stream", large.length,
+            decoder.decode(new ByteArrayInputStream(large), large.length).length());
+    Assert.assertEquals("decode is keeping a large text array", 0, ((char[])text.get(decoder)).length);
+
+    final CharBuffer buffer = decoder.decodeToBuffer(new ByteArrayInputStream(large), large.length);
+    Assert.assertEquals("decodeToBuffer is not decoding a large stream", large.length, buffer.length());
+    Assert.assertTrue("decodeToBuffer is not keeping its text array",
+            ((char[])text.get(decoder)).length >= large.length);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStreamDecoder#decodeToBuffer(java.io.InputStream, int)}.
+   */
+  @Test
+  public void testDecodeToBuffer() throws Exception
+  {
+    final JStreamDecoder decoder = new JStreamDecoder(JStringUtils.UTF8_CHARSET, 64);
+    final CharBuffer buffer = decoder.decodeToBuffer(new ByteArrayInputStream(TEXT.getBytes(JStringUtils.UTF8_CHARSET)),
+            16);
+
+    Assert.assertEquals("decodeToBuffer is not returning every character", TEXT.length(), buffer.length());
+    Assert.assertEquals("decodeToBuffer is not keeping the text intact", TEXT, buffer.toString());
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStreamDecoder#decode(java.io.InputStream, JStreamDecoder.ChunkHandler)}.
+   */
+  @Test
+  public void testDecodeChunks() throws Exception
+  {
+    final JStreamDecoder decoder = new JStreamDecoder(JStringUtils.UTF8_CHARSET, 64);
+    final StringBuilder sb = new StringBuilder();
+    final int[] chunks = new int[1];
+
+    final long total = decoder.decode(new TrickleInputStream(TEXT.getBytes(JStringUtils.UTF8_CHARSET)),
+            new JStreamDecoder.ChunkHandler()
+            {
+              @Override
+              public void onChunk(CharBuffer chunk)
+              {
+                Assert.assertTrue("A chunk is larger than the buffer", chunk.remaining() <= 64);
+                sb.append(chunk);
+                chunks[0]++;
+              }
+            });
+
+    Assert.assertEquals("decode is not counting every character", TEXT.length(), total);
+    Assert.assertEquals("decode is not keeping the text intact", TEXT, sb.toString());
+    Assert.assertTrue("decode is not calling the handler more than once", chunks[0] > 1);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStreamDecoder#newReader(java.io.InputStream)}.
+   */
+  @Test
+  public void testNewReader() throws Exception
+  {
+    final JStreamDecoder decoder = new JStreamDecoder(JStringUtils.UTF8_CHARSET, 64);
+    final StringBuilder sb = new StringBuilder();
+
+    try (Reader reader = decoder.newReader(new ByteArrayInputStream(TEXT.getBytes(JStringUtils.UTF8_CHARSET))))
+    {
+      final char[] cbuf = new char[7];
+      int count;
+      while ((count = reader.read(cbuf, 0, cbuf.length)) != -1)
+      {
+        sb.append(cbuf, 0, count);
+      }
+    }
+
+    Assert.assertEquals("The reader is not keeping the text intact", TEXT, sb.toString());
+
+    sb.setLength(0);
+    try (Reader reader = decoder.newReader(new TrickleInputStream(TEXT.getBytes(JStringUtils.UTF8_CHARSET))))
+    {
+      int c;
+      while ((c = reader.read()) != -1)
+      {
+        sb.append((char)c);
+      }
+    }
+
+    Assert.assertEquals("The reader is not keeping the text intact a char at a time", TEXT, sb.toString());
+  }
+
+  private static String buildText()
+  {
+    final StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 200; i++)
+    {
+      sb.append("line ").append(i).append(" caf\u00E9 \u20AC \uD83D\uDE00\r\n");
+    }
+    return sb.append("no final line terminator").toString();
+  }
+
+  /**
+   * Returns a single byte per read, to split every multi-byte sequence.
+   */
+  private static final class TrickleInputStream extends InputStream
+  {
+    private final byte[] bytes;
+
+    private int          position;
+
+    TrickleInputStream(byte[] bytes)
+    {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      return this.position < this.bytes.length ? this.bytes[this.position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+      if (this.position == this.bytes.length)
+      {
+        return -1;
+      }
+      b[off] = this.bytes[this.position++];
+      return 1;
+    }
+  }
+}
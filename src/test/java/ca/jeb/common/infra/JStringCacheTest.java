@@ -0,0 +1,121 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class JStringCacheTest
+{
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringCache#intern(String)}.
+   */
+  @Test
+  public void testIntern()
+  {
+    final JStringCache cache = new JStringCache(16);
+    final String first = new String("EUR");
+    Assert.assertSame("intern is not returning the first instance", first, cache.intern(first));
+    Assert.assertSame("intern is not returning the cached instance", first, cache.intern(new String("EUR")));
+    Assert.assertNull("intern is not returning null", cache.intern((String)null));
+    Assert.assertEquals("getHitCount is not counting the hit", 1, cache.getHitCount());
+    Assert.assertEquals("getMissCount is not counting the miss", 1, cache.getMissCount());
+    Assert.assertEquals("getHitRate is not half", 0.5, cache.getHitRate(), 0);
+    Assert.assertEquals("size is not 1", 1, cache.size());
+
+    cache.clear();
+    Assert.assertEquals("clear is not emptying the cache", 0, cache.size());
+    Assert.assertEquals("clear is not resetting the statistics", 0, cache.getHitRate(), 0);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringCache#intern(char[], int, int)} and
+   * {@link ca.jeb.common.infra.JStringCache#intern(CharSequence, int, int)}.
+   */
+  @Test
+  public void testInternChars()
+  {
+    final JStringCache cache = new JStringCache(16);
+    final String usd = cache.intern("xUSDx".toCharArray(), 1, 3);
+    Assert.assertEquals("intern is not creating the value", "USD", usd);
+    Assert.assertSame("intern is not finding the value by char[]", usd, cache.intern("USD,".toCharArray(), 0, 3));
+    Assert.assertSame("intern is not finding the value by CharSequence", usd, cache.intern(new StringBuilder(
+            "GBP,USD"), 4, 7));
+    Assert.assertEquals("intern is not returning an empty value", "", cache.intern("abc", 1, 1));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringCache#intern(byte[], int, int, java.nio.charset.Charset)}.
+   */
+  @Test
+  public void testInternBytes()
+  {
+    final JStringCache cache = new JStringCache(16);
+    final byte[] ascii = "|CAD|".getBytes(StandardCharsets.US_ASCII);
+    final String cad = cache.intern(ascii, 1, 3, StandardCharsets.UTF_8);
+    Assert.assertEquals("intern is not decoding ASCII", "CAD", cad);
+    Assert.assertSame("intern is not finding ASCII by bytes", cad, cache.intern("CAD", 0, 3));
+
+    final String value = "caf\u00e9";
+    final byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    final String cafe = cache.intern(utf8, 0, utf8.length, StandardCharsets.UTF_8);
+    Assert.assertEquals("intern is not decoding UTF-8", value, cafe);
+    Assert.assertSame("intern is not finding UTF-8 by bytes", cafe, cache.intern(utf8, 0, utf8.length,
+            StandardCharsets.UTF_8));
+    final byte[] utf16 = value.getBytes(StandardCharsets.UTF_16BE);
+    Assert.assertSame("intern is not finding UTF-16 by bytes", cafe, cache.intern(utf16, 0, utf16.length,
+            StandardCharsets.UTF_16BE));
+    Assert.assertSame("decode is not going through the cache", cafe, JStringUtils.decode(utf8, 0, utf8.length,
+            StandardCharsets.UTF_8, cache));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringCache.Eviction}.
+   */
+  @Test
+  public void testEviction()
+  {
+    final JStringCache fifo = new JStringCache(1, 1, JStringCache.Eviction.FIFO, 8);
+    final String a = fifo.intern(new String("a"));
+    final String b = fifo.intern(new String("b"));
+    Assert.assertEquals("FIFO is not bounding the cache", 1, fifo.size());
+    Assert.assertSame("FIFO is not keeping the newest value", b, fifo.intern(new String("b")));
+    Assert.assertNotSame("FIFO is not evicting the oldest value", a, fifo.intern(new String("a")));
+
+    final JStringCache none = new JStringCache(1, 1, JStringCache.Eviction.NONE, 8);
+    final String c = none.intern(new String("c"));
+    none.intern(new String("d"));
+    Assert.assertSame("NONE is evicting the first value", c, none.intern(new String("c")));
+
+    final String tooLong = new String("123456789");
+    Assert.assertSame("intern is not returning a long value as is", tooLong, none.intern(tooLong));
+    Assert.assertNotSame("intern is caching a long value", tooLong, none.intern(new String(tooLong)));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.Tokenizer#token(JStringCache)} and
+   * {@link ca.jeb.common.infra.FixedWidthCodec.Record#getString(int, JStringCache)}.
+   */
+  @Test
+  public void testTokens()
+  {
+    final JStringCache cache = new JStringCache(16);
+    final Tokenizer tokenizer = new Tokenizer(',', '"', '\\').reset("JPY,\"J\\PY\",JPY");
+    tokenizer.next();
+    final String jpy = tokenizer.token(cache);
+    tokenizer.next();
+    Assert.assertSame("token is not interning an escaped token", jpy, tokenizer.token(cache));
+    tokenizer.next();
+    Assert.assertSame("token is not interning a plain token", jpy, tokenizer.token(cache));
+
+    final FixedWidthCodec codec = new FixedWidthCodec(StandardCharsets.ISO_8859_1, null, Arrays.asList(
+            new FixedWidthCodec.Field("currency", 0, 5, JStringUtils.Alignment.LEFT, ' ')));
+    Assert.assertSame("getString is not interning the field", jpy, codec.newRecord().set(0, "JPY")
+            .getString(0, cache));
+  }
+}
@@ -0,0 +1,109 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class JStringColumnsTest
+{
+  private static final String[] VALUES = { "abc", null, "", "a1", "9", "  ", "no digits here", "digit at the end 0" };
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringColumns#hasDigit(CharSequence[])}.
+   */
+  @Test
+  public void testHasDigit()
+  {
+    Assert.assertEquals("hasDigit is not matching the values with digits", BitSet.valueOf(new long[]{ 0x98 }), BitSet
+            .valueOf(JStringColumns.hasDigit(VALUES)));
+    Assert.assertEquals("hasDigit is not returning an empty mask", 0, JStringColumns.hasDigit(new String[0]).length);
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringColumns#isNullOrEmpty(CharSequence[])} and
+   * {@link ca.jeb.common.infra.JStringColumns#hasValue(CharSequence[])}.
+   */
+  @Test
+  public void testIsNullOrEmpty()
+  {
+    Assert.assertArrayEquals("isNullOrEmpty is not matching null and empty values", new long[]{ 0x06 }, JStringColumns
+            .isNullOrEmpty(VALUES));
+    Assert.assertArrayEquals("hasValue is not the complement of isNullOrEmpty", new long[]{ 0xF9 }, JStringColumns
+            .hasValue(VALUES));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringColumns#digitBytes(long)}.
+   */
+  @Test
+  public void testDigitBytes()
+  {
+    for (int b = 0; b < 256; b++)
+    {
+      for (int position = 0; position < 8; position++)
+      {
+        // Surround the byte with non-digits that are close to the digit range
+        final long word = (0x2F3A2F3A2F3A2F3AL & ~(0xFFL << (position * 8))) | ((long)b << (position * 8));
+        final boolean digit = b >= '0' && b <= '9';
+        Assert.assertEquals("digitBytes is wrong for " + b + " in byte " + position, digit ? 0x80L << (position * 8)
+                : 0, JStringColumns.digitBytes(word));
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringColumns#hasDigit(byte[], int[])}, large enough to be scanned
+   * in parallel, against the single value predicates.
+   */
+  @Test
+  public void testLargeColumns()
+  {
+    final Random random = new Random(42);
+    final int size = JStringColumns.PARALLEL_THRESHOLD * 2 + 17;
+    final String[] values = new String[size];
+    final ByteArrayOutputStream data = new ByteArrayOutputStream();
+    final int[] offsets = new int[size + 1];
+    for (int i = 0; i < size; i++)
+    {
+      final char[] chars = new char[random.nextInt(20)];
+      for (int j = 0; j < chars.length; j++)
+      {
+        // Mostly letters, so that few values have digits
+        chars[j] = random.nextInt(40) == 0 ? (char)('0' + random.nextInt(10)) : (char)('a' + random.nextInt(26));
+      }
+      values[i] = random.nextInt(50) == 0 ? null : new String(chars);
+      final byte[] bytes = values[i] == null ? new byte[0] : values[i].getBytes(StandardCharsets.US_ASCII);
+      data.write(bytes, 0, bytes.length);
+      offsets[i + 1] = data.size();
+    }
+
+    final BitSet hasDigit = BitSet.valueOf(JStringColumns.hasDigit(values));
+    final BitSet bytesHaveDigit = BitSet.valueOf(JStringColumns.hasDigit(data.toByteArray(), offsets));
+    final BitSet isNullOrEmpty = BitSet.valueOf(JStringColumns.isNullOrEmpty(values));
+    final BitSet bytesAreEmpty = BitSet.valueOf(JStringColumns.isNullOrEmpty(offsets));
+    final BitSet hasValue = BitSet.valueOf(JStringColumns.hasValue(offsets));
+    for (int i = 0; i < size; i++)
+    {
+      final boolean digit = values[i] != null && JStringUtils.hasDigit(values[i]);
+      Assert.assertEquals("hasDigit is wrong for value " + i, digit, hasDigit.get(i));
+      Assert.assertEquals("hasDigit is wrong for bytes " + i, digit, bytesHaveDigit.get(i));
+      Assert.assertEquals("isNullOrEmpty is wrong for value " + i, JStringUtils.isNullOrEmpty(values[i]),
+              isNullOrEmpty.get(i));
+      Assert.assertEquals("isNullOrEmpty is wrong for bytes " + i, JStringUtils.isNullOrEmpty(values[i]),
+              bytesAreEmpty.get(i));
+      Assert.assertEquals("hasValue is wrong for bytes " + i, JStringUtils.hasValue(values[i]), hasValue.get(i));
+    }
+    Assert.assertTrue("hasValue is setting bits past the last value", hasValue.length() <= size);
+    Assert.assertTrue("hasDigit is not reading a whole ByteBuffer word", JStringColumns.hasDigit(ByteBuffer.wrap(
+            "abcdefg5".getBytes(StandardCharsets.US_ASCII)), 0, 8));
+  }
+}
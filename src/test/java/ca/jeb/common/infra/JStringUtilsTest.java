@@ -2,8 +2,20 @@
 
 package ca.jeb.common.infra;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -12,6 +24,30 @@ import org.junit.Test;
  */
 public class JStringUtilsTest
 {
+  private static final int    PROPERTY_ITERATIONS = 50000;
+
+  private static final char[] PROPERTY_ALPHABET   = { ' ', '\t', '\n', '\u000B', '\f', '\r', '\u0085', '\u2028', '\u2029',
+          '\u00A0', '\u0660', 'a', 'Z', '0', '9' };
+
+  private static String randomString(Random random)
+  {
+    final char[] chars = new char[random.nextInt(12)];
+    for (int i = 0; i < chars.length; i++)
+    {
+      chars[i] = PROPERTY_ALPHABET[random.nextInt(PROPERTY_ALPHABET.length)];
+    }
+    return new String(chars);
+  }
+
+  private static String escape(String str)
+  {
+    final StringBuilder sb = new StringBuilder("\"");
+    for (char c : str.toCharArray())
+    {
+      sb.append(String.format("\\u%04x", (int)c));
+    }
+    return sb.append('"').toString();
+  }
 
   /**
    * Test method for {@link ca.jeb.common.infra.JStringUtils#safeTrim(java.lang.String)}.
@@ -50,6 +86,50 @@ public class JStringUtilsTest
     Assert.assertEquals("hasDigit is not returning true for '12foo'", true, JStringUtils.hasDigit("12foo"));
   }
 
+  /**
+   * Compare {@link ca.jeb.common.infra.JStringUtils#ltrim(java.lang.String)},
+   * {@link ca.jeb.common.infra.JStringUtils#rtrim(java.lang.String)} and
+   * {@link ca.jeb.common.infra.JStringUtils#hasDigit(java.lang.String)} with the regular expressions they replaced,
+   * over random strings made of whitespace, line terminators, digits and letters.
+   */
+  @Test
+  public void testTrimAndHasDigitMatchRegex()
+  {
+    final Random random = new Random(42);
+    for (int i = 0; i < PROPERTY_ITERATIONS; i++)
+    {
+      final String str = randomString(random);
+
+      final String ltrim = str.replaceAll("^\\s+", JStringUtils.EMPTY);
+      Assert.assertEquals("ltrim differs for " + escape(str), ltrim, JStringUtils.ltrim(str));
+      Assert.assertEquals("ltrim(CharSequence) differs for " + escape(str), ltrim,
+              JStringUtils.ltrim(new StringBuilder(str)).toString());
+
+      final String rtrim = str.replaceAll("\\s+$", JStringUtils.EMPTY);
+      Assert.assertEquals("rtrim differs for " + escape(str), rtrim, JStringUtils.rtrim(str));
+      Assert.assertEquals("rtrim(CharSequence) differs for " + escape(str), rtrim,
+              JStringUtils.rtrim(new StringBuilder(str)).toString());
+
+      final boolean hasDigit = Pattern.compile("[0-9]").matcher(str).find();
+      Assert.assertEquals("hasDigit differs for " + escape(str), hasDigit, JStringUtils.hasDigit(str));
+    }
+  }
+
+  /**
+   * The trims return the original instance when there is nothing to remove.
+   */
+  @Test
+  public void testTrimReturnsSameInstance()
+  {
+    final String str = "foo";
+    Assert.assertSame("ltrim copied an untrimmed string", str, JStringUtils.ltrim(str));
+    Assert.assertSame("rtrim copied an untrimmed string", str, JStringUtils.rtrim(str));
+
+    final StringBuilder sb = new StringBuilder("foo");
+    Assert.assertSame("ltrim copied an untrimmed sequence", sb, JStringUtils.ltrim(sb));
+    Assert.assertSame("rtrim copied an untrimmed sequence", sb, JStringUtils.rtrim(sb));
+  }
+
   /**
    * Test method for {@link ca.jeb.common.infra.JStringUtils#pad(java.lang.String, int, char)}.
    */
@@ -57,6 +137,47 @@ public class JStringUtilsTest
   public void testPad()
   {
     Assert.assertEquals("pad is not returning 'foo222'", "foo222", JStringUtils.pad("foo", 6, '2'));
+    Assert.assertEquals("pad is not truncating to 'fo'", "fo", JStringUtils.pad("foo", 2, '2'));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringUtils#pad(java.lang.String, int, char, JStringUtils.Alignment)}.
+   */
+  @Test
+  public void testPadAlignment()
+  {
+    Assert.assertEquals("pad is not returning 'foo  '", "foo  ", JStringUtils.pad("foo", 5, ' ', JStringUtils.Alignment.LEFT));
+    Assert.assertEquals("pad is not returning '00042'", "00042", JStringUtils.pad("42", 5, '0', JStringUtils.Alignment.RIGHT));
+    Assert.assertEquals("pad is not returning '*foo**'", "*foo**",
+            JStringUtils.pad("foo", 6, '*', JStringUtils.Alignment.CENTER));
+    Assert.assertEquals("pad is not truncating to 'fo'", "fo", JStringUtils.pad("foo", 2, ' ', JStringUtils.Alignment.RIGHT));
+    Assert.assertEquals("pad is not padding past the cached fillers", 1000,
+            JStringUtils.pad("foo", 1000, '-', JStringUtils.Alignment.CENTER).length());
+  }
+
+  /**
+   * Test method for
+   * {@link ca.jeb.common.infra.JStringUtils#pad(java.lang.StringBuilder, java.lang.CharSequence, int, char, JStringUtils.Alignment)}
+   * and {@link ca.jeb.common.infra.JStringUtils#pad(char[], int, java.lang.CharSequence, int, char, JStringUtils.Alignment)}.
+   */
+  @Test
+  public void testPadInto()
+  {
+    final StringBuilder sb = new StringBuilder("|");
+    JStringUtils.pad(sb, "foo", 5, ' ', JStringUtils.Alignment.LEFT).append('|');
+    JStringUtils.pad(sb, new StringBuilder("42"), 5, '0', JStringUtils.Alignment.RIGHT).append('|');
+    Assert.assertEquals("pad is not appending the padded fields", "|foo  |00042|", sb.toString());
+
+    final char[] record = new char[10];
+    int offset = JStringUtils.pad(record, 0, "ab", 4, '.', JStringUtils.Alignment.CENTER);
+    offset = JStringUtils.pad(record, offset, new StringBuilder("toolong"), 6, ' ', JStringUtils.Alignment.RIGHT);
+    Assert.assertEquals("pad is not returning the next offset", 10, offset);
+    Assert.assertEquals("pad is not writing the padded fields", ".ab.toolon", new String(record));
+
+    final String wide = JStringUtils.pad("x", 600, '-', JStringUtils.Alignment.RIGHT);
+    Assert.assertEquals("pad is not padding past the cached fillers", "x", wide.replace("-", ""));
+    Assert.assertEquals("pad is not appending past the cached fillers", "|" + wide + "|",
+            JStringUtils.pad(new StringBuilder("|"), "x", 600, '-', JStringUtils.Alignment.RIGHT).append('|').toString());
   }
 
   /**
@@ -68,6 +189,113 @@ public class JStringUtilsTest
     // fail("Not yet implemented");
   }
 
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringUtils#decode(java.io.InputStream, java.nio.charset.Charset)}.
+   */
+  @Test
+  public void testDecodeInputStream() throws IOException
+  {
+    final String text = "foo\nbar\r\nbaz\u00E9\n";
+    Assert.assertEquals("decode is not keeping the line terminators", text,
+            JStringUtils.decode(new ByteArrayInputStream(text.getBytes(JStringUtils.UTF8_CHARSET)), JStringUtils.UTF8_CHARSET));
+    Assert.assertEquals("decode is not returning an empty string for null", JStringUtils.EMPTY,
+            JStringUtils.decode((InputStream)null, JStringUtils.UTF8_CHARSET));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringUtils#encode(java.lang.CharSequence, java.nio.charset.Charset, java.nio.ByteBuffer)}.
+   */
+  @Test
+  public void testEncodeIntoBuffer()
+  {
+    for (String str : new String[]{ "foo", "caf\u00E9 \u20AC \uD83D\uDE00", "" })
+    {
+      for (Charset charset : new Charset[]{ StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1, StandardCharsets.UTF_16 })
+      {
+        final byte[] expected = str.getBytes(charset);
+        for (ByteBuffer buffer : new ByteBuffer[]{ ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64) })
+        {
+          buffer.position(3);
+          Assert.assertEquals("encode is not returning the length for " + charset, expected.length,
+                  JStringUtils.encode(str, charset, buffer));
+          final byte[] actual = new byte[expected.length];
+          buffer.flip().position(3);
+          buffer.get(actual);
+          Assert.assertArrayEquals("encode is not matching getBytes for " + charset, expected, actual);
+        }
+      }
+    }
+
+    final ByteBuffer small = ByteBuffer.allocate(4);
+    small.put((byte)1);
+    try
+    {
+      JStringUtils.encode("foobar", StandardCharsets.UTF_8, small);
+      Assert.fail("encode is not throwing on overflow");
+    }
+    catch (BufferOverflowException e)
+    {
+      Assert.assertEquals("encode is moving the position on overflow", 1, small.position());
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringUtils#encode(java.lang.CharSequence, java.nio.charset.CharsetEncoder, java.nio.ByteBuffer)}.
+   */
+  @Test
+  public void testEncodeWithEncoder()
+  {
+    final ByteBuffer buffer = ByteBuffer.allocate(16);
+    try
+    {
+      JStringUtils.encode("ab\u00E9", StandardCharsets.US_ASCII.newEncoder(), buffer);
+      Assert.fail("encode is not reporting an unmappable character");
+    }
+    catch (CharacterCodingException e)
+    {
+      Assert.assertEquals("encode is moving the position on error", 0, buffer.position());
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringUtils#decode(byte[], int, int, java.nio.charset.Charset, char[], int)}.
+   */
+  @Test
+  public void testDecodeSlices() throws CharacterCodingException
+  {
+    final String str = "caf\u00E9 \u20AC \uD83D\uDE00 foo";
+    final byte[] utf8 = ("xx" + str + "yy").getBytes(StandardCharsets.UTF_8);
+    final int length = utf8.length - 4;
+
+    Assert.assertEquals("decode is not decoding the slice", str, JStringUtils.decode(utf8, 2, length, StandardCharsets.UTF_8));
+
+    final char[] chars = new char[40];
+    final int count = JStringUtils.decode(utf8, 2, length, StandardCharsets.UTF_8, chars, 1);
+    Assert.assertEquals("decode is not decoding into the array", str, new String(chars, 1, count));
+
+    final ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+    direct.put(utf8).flip().position(2);
+    direct.limit(2 + length);
+    Assert.assertEquals("decode is not decoding a direct buffer", str, JStringUtils.decode(direct, StandardCharsets.UTF_8));
+    Assert.assertFalse("decode is not consuming the buffer", direct.hasRemaining());
+
+    direct.position(2);
+    final CharBuffer out = CharBuffer.allocate(40);
+    Assert.assertEquals("decode is not returning the number of characters", str.length(),
+            JStringUtils.decode(direct, StandardCharsets.UTF_8.newDecoder(), out));
+    Assert.assertEquals("decode is not decoding into the buffer", str, out.flip().toString());
+
+    try
+    {
+      JStringUtils.decode(utf8, 2, length, StandardCharsets.UTF_8, new char[4], 0);
+      Assert.fail("decode is not throwing on overflow");
+    }
+    catch (BufferOverflowException e)
+    {
+      // expected
+    }
+  }
+
   /**
    * Test method for {@link ca.jeb.common.infra.JStringUtils#upperCaseFirst(java.lang.String)}.
    */
@@ -87,6 +315,81 @@ public class JStringUtilsTest
             JStringUtils.join(Arrays.asList(new String[]{ "foo", "bar" }), ":"));
   }
 
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringUtils#join(Appendable, Iterable, CharSequence)} and
+   * {@link ca.jeb.common.infra.JStringUtils#join(Appendable, java.util.Iterator, CharSequence)}.
+   */
+  @Test
+  public void testJoinInto() throws IOException
+  {
+    final List<Object> elements = Arrays.<Object> asList("foo", null, new StringBuilder("bar"), 42);
+    final StringBuilder sb = new StringBuilder("> ");
+    Assert.assertSame("join is not returning its Appendable", sb, JStringUtils.join(sb, elements, ", "));
+    Assert.assertEquals("join is not appending every element", "> foo, , bar, 42", sb.toString());
+
+    final StringWriter writer = new StringWriter();
+    JStringUtils.join(writer, elements.iterator(), "|");
+    Assert.assertEquals("join is not writing every element", "foo||bar|42", writer.toString());
+    Assert.assertEquals("join is not writing nothing for no elements", "", JStringUtils.join(new StringBuilder(),
+            Arrays.asList(), ",").toString());
+    Assert.assertEquals("estimateJoinedLength is not exact for equal lengths", 13, JStringUtils.estimateJoinedLength(
+            Arrays.asList("abc", "def", "ghi"), ", "));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.JStringUtils#join(Appendable, long[], CharSequence)} and the other
+   * primitive arrays.
+   */
+  @Test
+  public void testJoinNumbers() throws IOException
+  {
+    final long[] longs = { 0, -7, 1234567890123L, Long.MIN_VALUE, Long.MAX_VALUE };
+    final String expected = "0,-7,1234567890123," + Long.MIN_VALUE + "," + Long.MAX_VALUE;
+    Assert.assertEquals("join is not appending longs", expected, JStringUtils.join(new StringBuilder(), longs, ",")
+            .toString());
+    Assert.assertEquals("join is not writing longs", expected, JStringUtils.join(new StringWriter(), longs, ",")
+            .toString());
+    Assert.assertEquals("join is not appending longs to a CharBuffer", expected, ((CharBuffer)JStringUtils.join(
+            CharBuffer.allocate(64), longs, ",").flip()).toString());
+
+    final int[] ints = { 5, Integer.MIN_VALUE, -1 };
+    Assert.assertEquals("join is not appending ints", "5;" + Integer.MIN_VALUE + ";-1", JStringUtils.join(
+            new StringBuilder(), ints, ";").toString());
+    Assert.assertEquals("join is not writing ints", "5;" + Integer.MIN_VALUE + ";-1", JStringUtils.join(
+            new StringWriter(), ints, ";").toString());
+    Assert.assertEquals("join is not appending doubles", "1.5 -0.25", JStringUtils.join(new StringWriter(),
+            new double[]{ 1.5, -0.25 }, " ").toString());
+  }
+
+  /**
+   * Test method for
+   * {@link ca.jeb.common.infra.JStringUtils#join(ByteBuffer, Iterable, CharSequence, java.nio.charset.Charset)} and
+   * {@link ca.jeb.common.infra.JStringUtils#join(ByteBuffer, long[], CharSequence, java.nio.charset.Charset)}.
+   */
+  @Test
+  public void testJoinIntoBuffer()
+  {
+    final ByteBuffer dest = ByteBuffer.allocateDirect(32);
+    Assert.assertEquals("join is not returning the number of bytes", 10, JStringUtils.join(dest, Arrays.asList("caf\u00e9",
+            "EUR"), ", ", StandardCharsets.UTF_8));
+    Assert.assertEquals("join is not returning the number of bytes", 6, JStringUtils.join(dest, new long[]{ -12, 3 },
+            "; ", StandardCharsets.UTF_8));
+    dest.flip();
+    Assert.assertEquals("join is not encoding every element", "caf\u00e9, EUR-12; 3", JStringUtils.decode(dest,
+            StandardCharsets.UTF_8));
+
+    final ByteBuffer small = ByteBuffer.allocate(4);
+    try
+    {
+      JStringUtils.join(small, new long[]{ 123, 456 }, ",", StandardCharsets.US_ASCII);
+      Assert.fail("join is not throwing BufferOverflowException");
+    }
+    catch (BufferOverflowException e)
+    {
+      Assert.assertEquals("join is not restoring the position", 0, small.position());
+    }
+  }
+
   /**
    * Test method for {@link ca.jeb.common.infra.JStringUtils#split(java.lang.String, java.lang.String)}.
    */
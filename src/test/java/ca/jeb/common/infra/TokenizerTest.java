@@ -0,0 +1,96 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.infra;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class TokenizerTest
+{
+  /**
+   * Test method for {@link ca.jeb.common.infra.Tokenizer#next()}.
+   */
+  @Test
+  public void testNext()
+  {
+    final Tokenizer tokenizer = new Tokenizer(',');
+    Assert.assertEquals("next is not returning every token", Arrays.asList("a", "", "bc", ""), tokens(tokenizer,
+            "a,,bc,"));
+    Assert.assertEquals("next is not returning a single token", Arrays.asList("abc"), tokens(tokenizer, "abc"));
+    Assert.assertEquals("next is returning tokens for an empty source", Arrays.<String> asList(), tokens(tokenizer, ""));
+    Assert.assertEquals("next is not returning two empty tokens", Arrays.asList("", ""), tokens(tokenizer, ","));
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.infra.Tokenizer#start()} and {@link ca.jeb.common.infra.Tokenizer#end()}.
+   */
+  @Test
+  public void testOffsets()
+  {
+    final Tokenizer tokenizer = new Tokenizer(',', '"', Tokenizer.NONE).reset("foo,\"bar\",baz");
+    Assert.assertTrue("advanceTo is not finding the second token", tokenizer.advanceTo(1));
+    Assert.assertEquals("start is not after the opening quote", 5, tokenizer.start());
+    Assert.assertEquals("end is not before the closing quote", 8, tokenizer.end());
+    Assert.assertTrue("isQuoted is not true", tokenizer.isQuoted());
+    Assert.assertFalse("hasEscapes is not false", tokenizer.hasEscapes());
+    Assert.assertFalse("advanceTo is finding a fourth token", tokenizer.advanceTo(3));
+
+    final StringBuilder sb = new StringBuilder("xx,yy,zz");
+    tokenizer.reset(sb, 3, 8);
+    Assert.assertTrue("advanceTo is not finding the second token of the range", tokenizer.advanceTo(1));
+    Assert.assertEquals("start is not relative to the source", 6, tokenizer.start());
+    Assert.assertEquals("token is not returning 'zz'", "zz", tokenizer.token());
+  }
+
+  /**
+   * Quoted tokens, doubled quotes and escapes.
+   */
+  @Test
+  public void testQuotesAndEscapes()
+  {
+    final Tokenizer csv = new Tokenizer(',', '"', Tokenizer.NONE);
+    Assert.assertEquals("Quoted tokens are not unquoted", Arrays.asList("a,b", "say \"hi\"", "", "c"), tokens(csv,
+            "\"a,b\",\"say \"\"hi\"\"\",\"\",c"));
+
+    final Tokenizer escaped = new Tokenizer('|', '\'', '\\');
+    Assert.assertEquals("Escapes are not resolved", Arrays.asList("a|b", "it's", "c\\"), tokens(escaped,
+            "a\\|b|'it\\'s'|c\\\\"));
+
+    escaped.reset("a\\|b|c");
+    escaped.next();
+    Assert.assertTrue("hasEscapes is not true", escaped.hasEscapes());
+    Assert.assertTrue("contentEquals is not resolving escapes", escaped.contentEquals("a|b"));
+    Assert.assertFalse("contentEquals is matching a prefix", escaped.contentEquals("a|"));
+    Assert.assertFalse("contentEquals is matching a longer value", escaped.contentEquals("a|bc"));
+    Assert.assertEquals("appendTo is not resolving escapes", "a|b", escaped.appendTo(new StringBuilder()).toString());
+  }
+
+  /**
+   * The tokenizer agrees with {@link JStringUtils#split(String, String)} on sources without empty tokens.
+   */
+  @Test
+  public void testMatchesSplit()
+  {
+    final String line = "EUR,USD,SHORT,Y,N,100.25,IBM,2014-10-01";
+    Assert.assertEquals("The tokenizer is not matching split", JStringUtils.split(line, JStringUtils.COMMA), tokens(
+            new Tokenizer(','), line));
+  }
+
+  private static List<String> tokens(Tokenizer tokenizer, CharSequence source)
+  {
+    final List<String> tokens = new ArrayList<>();
+    tokenizer.reset(source);
+    while (tokenizer.next())
+    {
+      Assert.assertEquals("index is not counting the tokens", tokens.size(), tokenizer.index());
+      tokens.add(tokenizer.token());
+    }
+    return tokens;
+  }
+}
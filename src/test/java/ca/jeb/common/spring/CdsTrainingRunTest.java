@@ -0,0 +1,118 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.Ordered;
+
+/**
+ */
+public class CdsTrainingRunTest
+{
+  private static final List<String> RUN = new ArrayList<>();
+
+  /**
+   * A hook recording its run.
+   */
+  public static class RecordingHook implements WarmupHook, Ordered
+  {
+    private final String name;
+
+    private final int    order;
+
+    public RecordingHook(String name, int order)
+    {
+      this.name = name;
+      this.order = order;
+    }
+
+    @Override
+    public void warmup()
+    {
+      RUN.add(this.name);
+    }
+
+    @Override
+    public int getOrder()
+    {
+      return this.order;
+    }
+  }
+
+  /**
+   * A hook failing.
+   */
+  public static class FailingHook implements WarmupHook
+  {
+    @Override
+    public void warmup()
+    {
+      throw new IllegalStateException("no sample");
+    }
+  }
+
+  private static GenericApplicationContext newContext()
+  {
+    RUN.clear();
+    final GenericApplicationContext context = new GenericApplicationContext();
+    context.registerBeanDefinition("second", BeanDefinitionBuilder.genericBeanDefinition(RecordingHook.class)
+            .addConstructorArgValue("second").addConstructorArgValue(2).getBeanDefinition());
+    context.registerBeanDefinition("first", BeanDefinitionBuilder.genericBeanDefinition(RecordingHook.class)
+            .addConstructorArgValue("first").addConstructorArgValue(1).getBeanDefinition());
+    return context;
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.CdsTrainingRun#warmUp(org.springframework.beans.factory.ListableBeanFactory)}.
+   */
+  @Test
+  public void testWarmUp()
+  {
+    final GenericApplicationContext context = newContext();
+    context.refresh();
+    try
+    {
+      Assert.assertTrue("refresh is running the hooks", RUN.isEmpty());
+      Assert.assertEquals("warmUp is not running every hook", 2, CdsTrainingRun.warmUp(context.getBeanFactory()));
+      Assert.assertEquals("warmUp is not running the hooks in order", "[first, second]", RUN.toString());
+    }
+    finally
+    {
+      context.close();
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.CdsTrainingRun#warmUp(org.springframework.beans.factory.ListableBeanFactory)}
+   * when a hook fails.
+   */
+  @Test
+  public void testWarmUpFailure()
+  {
+    final GenericApplicationContext context = newContext();
+    context.registerBeanDefinition("failing", BeanDefinitionBuilder.genericBeanDefinition(FailingHook.class)
+            .getBeanDefinition());
+    context.refresh();
+    try
+    {
+      CdsTrainingRun.warmUp(context.getBeanFactory());
+      Assert.fail("warmUp is not failing");
+    }
+    catch (BeanCreationException e)
+    {
+      Assert.assertEquals("BeanCreationException is not naming the failed hook", "failing", e.getBeanName());
+      Assert.assertEquals("BeanCreationException is not caused by the failure", "no sample", e.getCause().getMessage());
+    }
+    finally
+    {
+      context.close();
+    }
+  }
+}
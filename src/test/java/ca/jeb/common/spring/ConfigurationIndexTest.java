@@ -0,0 +1,60 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ */
+public class ConfigurationIndexTest
+{
+  private static Path writeIndex(String... lines) throws IOException
+  {
+    final Path dir = Files.createTempDirectory("index");
+    final Path index = dir.resolve(ConfigurationIndex.LOCATION);
+    Files.createDirectories(index.getParent());
+    Files.write(index, Arrays.asList(lines), StandardCharsets.UTF_8);
+    return dir;
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.ConfigurationIndex#load(ClassLoader)}.
+   */
+  @Test
+  public void testLoad() throws IOException
+  {
+    final Path first = writeIndex("# comment", "a.Config", "", "  a.Config$Nested  ");
+    final Path second = writeIndex("b.Config");
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{ first.toUri().toURL(), second.toUri().toURL() }, null))
+    {
+      final ConfigurationIndex index = ConfigurationIndex.load(loader);
+      Assert.assertEquals("load is not reading every class", 3, index.getClassNames().size());
+      Assert.assertTrue("load is not trimming the class names", index.contains("a.Config$Nested"));
+      Assert.assertTrue("load is not merging every resource", index.contains("b.Config"));
+      Assert.assertFalse("load is reading comments", index.contains("# comment"));
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.ConfigurationIndex#load(ClassLoader)} without an index.
+   */
+  @Test
+  public void testLoadMissing() throws IOException
+  {
+    final File dir = Files.createTempDirectory("index").toFile();
+    try (URLClassLoader loader = new URLClassLoader(new URL[]{ dir.toURI().toURL() }, null))
+    {
+      Assert.assertNull("load is not null without an index", ConfigurationIndex.load(loader));
+    }
+  }
+}
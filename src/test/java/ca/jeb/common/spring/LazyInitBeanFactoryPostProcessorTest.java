@@ -0,0 +1,68 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ */
+public class LazyInitBeanFactoryPostProcessorTest
+{
+  /**
+   * A bean with a reference to another.
+   */
+  public static class ReferringBean
+  {
+    private Object reference;
+
+    public void setReference(Object reference)
+    {
+      this.reference = reference;
+    }
+
+    public Object getReference()
+    {
+      return this.reference;
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link ca.jeb.common.spring.LazyInitBeanFactoryPostProcessor#postProcessBeanFactory(org.springframework.beans.factory.config.ConfigurableListableBeanFactory)}.
+   */
+  @Test
+  public void testPostProcessBeanFactory()
+  {
+    final GenericApplicationContext context = new GenericApplicationContext();
+    context.addBeanFactoryPostProcessor(new LazyInitBeanFactoryPostProcessor("eager"));
+    context.registerBeanDefinition("eager", BeanDefinitionBuilder.genericBeanDefinition(ReferringBean.class)
+            .addPropertyReference("reference", "dependency").getBeanDefinition());
+    context.registerBeanDefinition("dependency", BeanDefinitionBuilder.genericBeanDefinition(Object.class)
+            .getBeanDefinition());
+    context.registerBeanDefinition("unused", BeanDefinitionBuilder.genericBeanDefinition(Object.class)
+            .getBeanDefinition());
+    context.registerBeanDefinition("infrastructure", BeanDefinitionBuilder.genericBeanDefinition(Object.class)
+            .setRole(BeanDefinition.ROLE_INFRASTRUCTURE).getBeanDefinition());
+    context.refresh();
+    try
+    {
+      Assert.assertTrue("postProcessBeanFactory is not leaving eager beans eager", context.getBeanFactory()
+              .containsSingleton("eager"));
+      Assert.assertTrue("postProcessBeanFactory is not creating the dependencies of eager beans", context
+              .getBeanFactory().containsSingleton("dependency"));
+      Assert.assertTrue("postProcessBeanFactory is not leaving infrastructure beans eager", context.getBeanFactory()
+              .containsSingleton("infrastructure"));
+      Assert.assertFalse("postProcessBeanFactory is not making unused beans lazy", context.getBeanFactory()
+              .containsSingleton("unused"));
+      Assert.assertNotNull("getBean is not creating a lazy bean", context.getBean("unused"));
+    }
+    finally
+    {
+      context.close();
+    }
+  }
+}
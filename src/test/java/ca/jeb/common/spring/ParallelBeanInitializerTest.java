@@ -0,0 +1,268 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ */
+public class ParallelBeanInitializerTest
+{
+  /**
+   * A bean that waits for the other beans sharing its barrier to be initialized at the same time.
+   */
+  public static class ConcurrentBean implements ParallelInitializingBean
+  {
+    private final CyclicBarrier barrier;
+
+    private volatile boolean    initialized;
+
+    public ConcurrentBean(CyclicBarrier barrier)
+    {
+      this.barrier = barrier;
+    }
+
+    @Override
+    public void initialize() throws Exception
+    {
+      if (this.barrier != null)
+      {
+        this.barrier.await(5, TimeUnit.SECONDS);
+      }
+      this.initialized = true;
+    }
+
+    public boolean isInitialized()
+    {
+      return this.initialized;
+    }
+  }
+
+  /**
+   * A bean that checks that the bean it depends on is initialized first.
+   */
+  public static class DependentBean implements ParallelInitializingBean
+  {
+    private Object           dependency;
+
+    private volatile Boolean dependencyInitialized;
+
+    public void setDependency(Object dependency)
+    {
+      this.dependency = dependency;
+    }
+
+    @Override
+    public void initialize()
+    {
+      final Object target = this.dependency instanceof PlainBean ? ((PlainBean)this.dependency).getTarget()
+              : this.dependency;
+      this.dependencyInitialized = ((ConcurrentBean)target).isInitialized();
+    }
+
+    public Boolean getDependencyInitialized()
+    {
+      return this.dependencyInitialized;
+    }
+  }
+
+  /**
+   * A bean in between, that is not initialized in parallel.
+   */
+  public static class PlainBean
+  {
+    private Object target;
+
+    public void setTarget(Object target)
+    {
+      this.target = target;
+    }
+
+    public Object getTarget()
+    {
+      return this.target;
+    }
+  }
+
+  /**
+   * A bean failing to initialize.
+   */
+  public static class FailingBean implements ParallelInitializingBean
+  {
+    @Override
+    public void initialize()
+    {
+      throw new IllegalStateException("no connection");
+    }
+  }
+
+  /**
+   * A bean counting its initializations.
+   */
+  public static class CountingBean implements ParallelInitializingBean
+  {
+    private static final AtomicInteger INITIALIZED = new AtomicInteger();
+
+    @Override
+    public void initialize()
+    {
+      INITIALIZED.incrementAndGet();
+    }
+  }
+
+  private static GenericApplicationContext newContext(int threads)
+  {
+    final GenericApplicationContext context = new GenericApplicationContext();
+    context.registerBeanDefinition(ParallelBeanInitializer.BEAN_NAME, BeanDefinitionBuilder.rootBeanDefinition(
+            ParallelBeanInitializer.class).addConstructorArgValue(threads).getBeanDefinition());
+    return context;
+  }
+
+  private static void register(GenericApplicationContext context, String beanName, Class<?> beanClass,
+          Object constructorArg, String property, String reference)
+  {
+    final BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(beanClass);
+    if (beanClass == ConcurrentBean.class)
+    {
+      builder.addConstructorArgValue(constructorArg);
+    }
+    if (property != null)
+    {
+      builder.addPropertyReference(property, reference);
+    }
+    context.registerBeanDefinition(beanName, builder.getBeanDefinition());
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.ParallelBeanInitializer#afterSingletonsInstantiated()}.
+   */
+  @Test
+  public void testConcurrentAndOrdered()
+  {
+    final CyclicBarrier barrier = new CyclicBarrier(2);
+    final GenericApplicationContext context = newContext(4);
+    register(context, "first", ConcurrentBean.class, barrier, null, null);
+    register(context, "second", ConcurrentBean.class, barrier, null, null);
+    register(context, "direct", DependentBean.class, null, "dependency", "first");
+    register(context, "plain", PlainBean.class, null, "target", "second");
+    register(context, "indirect", DependentBean.class, null, "dependency", "plain");
+    context.refresh();
+    try
+    {
+      Assert.assertTrue("afterSingletonsInstantiated is not initializing the beans", context.getBean("first",
+              ConcurrentBean.class).isInitialized());
+      Assert.assertEquals("afterSingletonsInstantiated is not initializing a direct dependency first", Boolean.TRUE,
+              context.getBean("direct", DependentBean.class).getDependencyInitialized());
+      Assert.assertEquals("afterSingletonsInstantiated is not initializing an indirect dependency first",
+              Boolean.TRUE, context.getBean("indirect", DependentBean.class).getDependencyInitialized());
+    }
+    finally
+    {
+      context.close();
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.ParallelBeanInitializer#afterSingletonsInstantiated()} on the
+   * refreshing thread.
+   */
+  @Test
+  public void testSingleThread()
+  {
+    final GenericApplicationContext context = newContext(1);
+    register(context, "first", ConcurrentBean.class, null, null, null);
+    register(context, "direct", DependentBean.class, null, "dependency", "first");
+    context.refresh();
+    try
+    {
+      Assert.assertEquals("afterSingletonsInstantiated is not initializing the dependency first", Boolean.TRUE,
+              context.getBean("direct", DependentBean.class).getDependencyInitialized());
+    }
+    finally
+    {
+      context.close();
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.ParallelBeanInitializer#postProcessAfterInitialization(Object, String)}.
+   */
+  @Test
+  public void testLazyBean()
+  {
+    final GenericApplicationContext context = newContext(2);
+    context.registerBeanDefinition("lazy", BeanDefinitionBuilder.genericBeanDefinition(ConcurrentBean.class)
+            .addConstructorArgValue(null).setLazyInit(true).getBeanDefinition());
+    context.registerBeanDefinition("prototype", BeanDefinitionBuilder.genericBeanDefinition(ConcurrentBean.class)
+            .addConstructorArgValue(null).setScope(BeanDefinition.SCOPE_PROTOTYPE).getBeanDefinition());
+    context.refresh();
+    try
+    {
+      Assert.assertFalse("afterSingletonsInstantiated is creating a lazy bean", context.getBeanFactory()
+              .containsSingleton("lazy"));
+      Assert.assertTrue("postProcessAfterInitialization is not initializing a lazy bean", context.getBean("lazy",
+              ConcurrentBean.class).isInitialized());
+      Assert.assertTrue("postProcessAfterInitialization is not initializing a prototype", context.getBean(
+              "prototype", ConcurrentBean.class).isInitialized());
+    }
+    finally
+    {
+      context.close();
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.ParallelBeanInitializer#afterSingletonsInstantiated()} when a bean
+   * fails.
+   */
+  @Test
+  public void testFailure()
+  {
+    final GenericApplicationContext context = newContext(2);
+    register(context, "failing", FailingBean.class, null, null, null);
+    try
+    {
+      context.refresh();
+      Assert.fail("refresh is not failing");
+    }
+    catch (BeanCreationException e)
+    {
+      Assert.assertEquals("BeanCreationException is not naming the failed bean", "failing", e.getBeanName());
+      Assert.assertEquals("BeanCreationException is not caused by the failure", "no connection", e.getCause()
+              .getMessage());
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.ParallelBeanInitializer#afterSingletonsInstantiated()} when a bean
+   * fails on the refreshing thread.
+   */
+  @Test
+  public void testSingleThreadFailure()
+  {
+    CountingBean.INITIALIZED.set(0);
+    final GenericApplicationContext context = newContext(1);
+    register(context, "failing", FailingBean.class, null, null, null);
+    register(context, "counting", CountingBean.class, null, null, null);
+    try
+    {
+      context.refresh();
+      Assert.fail("refresh is not failing");
+    }
+    catch (BeanCreationException e)
+    {
+      Assert.assertEquals("BeanCreationException is not naming the failed bean", "failing", e.getBeanName());
+      Assert.assertEquals("afterSingletonsInstantiated is starting a bean after the failure", 0,
+              CountingBean.INITIALIZED.get());
+    }
+  }
+}
@@ -0,0 +1,256 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.context.annotation.Bean;
+
+/**
+ */
+public class SpringMainTest
+{
+  private static final String XML_BEANS = "<beans xmlns=\"http://www.springframework.org/schema/beans\" "
+                                      + "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" "
+                                      + "xsi:schemaLocation=\"http://www.springframework.org/schema/beans "
+                                      + "http://www.springframework.org/schema/beans/spring-beans.xsd\">"
+                                      + "<bean id=\"%s\" class=\"java.lang.Object\"/></beans>";
+
+  /**
+   * A configuration class declaring two beans.
+   */
+  public static class TwoBeanConfiguration
+  {
+    @Bean
+    public Object eagerBean()
+    {
+      return new Object();
+    }
+
+    @Bean
+    public Object lazyBean()
+    {
+      return new Object();
+    }
+  }
+
+  /**
+   * A configuration class listed by the test index.
+   */
+  public static class IndexedConfiguration
+  {
+    @Bean
+    public Object indexedBean()
+    {
+      return new Object();
+    }
+  }
+
+  /**
+   * A configuration class declaring a failing warm-up hook.
+   */
+  public static class FailingWarmupConfiguration
+  {
+    @Bean
+    public WarmupHook failingHook()
+    {
+      return new WarmupHook()
+      {
+        @Override
+        public void warmup()
+        {
+          throw new IllegalStateException("cold");
+        }
+      };
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringMain#main(java.lang.String[])} with <code>--lazy</code> and
+   * <code>--eager</code>.
+   */
+  @Test
+  public void testLazyOptions()
+  {
+    final String configuration = TwoBeanConfiguration.class.getName();
+    final SpringMain sm = SpringMain.fromArguments("--lazy", "--eager=eagerBean", configuration);
+    Assert.assertTrue("--lazy is not making the beans lazy", sm.isLazyInit());
+    Assert.assertArrayEquals("--eager is not listing the eager beans", new String[]{ "eagerBean" }, sm.getEagerBeans());
+    Assert.assertArrayEquals("fromArguments is not keeping the config location", new String[]{ configuration },
+            sm.getConfigLocations());
+
+    sm.runInternal();
+    try
+    {
+      Assert.assertTrue("--eager is not leaving the listed bean eager", sm.getContext().getBeanFactory()
+              .containsSingleton("eagerBean"));
+      Assert.assertFalse("--lazy is not making the other beans lazy", sm.getContext().getBeanFactory()
+              .containsSingleton("lazyBean"));
+      Assert.assertNotNull("getBean is not creating a lazy bean", sm.getContext().getBean("lazyBean"));
+    }
+    finally
+    {
+      sm.getContext().close();
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringMain#main(java.lang.String[])} without options.
+   */
+  @Test
+  public void testEagerByDefault()
+  {
+    final SpringMain sm = SpringMain.fromArguments(TwoBeanConfiguration.class.getName());
+    Assert.assertFalse("fromArguments is making the beans lazy without --lazy", sm.isLazyInit());
+
+    sm.runInternal();
+    try
+    {
+      Assert.assertTrue("runInternal is not creating the beans", sm.getContext().getBeanFactory().containsSingleton(
+              "lazyBean"));
+    }
+    finally
+    {
+      sm.getContext().close();
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringMain#main(java.lang.String[])} with options it does not know or
+   * that miss their value.
+   */
+  @Test
+  public void testBadOptions()
+  {
+    try
+    {
+      SpringMain.fromArguments("--lasy", TwoBeanConfiguration.class.getName());
+      Assert.fail("fromArguments is accepting an unknown option");
+    }
+    catch (IllegalArgumentException e)
+    {
+      Assert.assertTrue("IllegalArgumentException is not naming the option", e.getMessage().contains("--lasy"));
+    }
+    try
+    {
+      SpringMain.fromArguments("--eager", TwoBeanConfiguration.class.getName());
+      Assert.fail("fromArguments is accepting --eager without beans");
+    }
+    catch (IllegalArgumentException e)
+    {
+      Assert.assertTrue("IllegalArgumentException is not naming the option", e.getMessage().contains("--eager"));
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringMain#main(java.lang.String[])} with a training run that cannot
+   * dump the archive it names, as the test JVM does not record what a dynamic dump needs.
+   */
+  @Test
+  public void testTrainingRunWithoutArchive() throws IOException
+  {
+    final Path archive = Files.createTempFile("springmain", ".jsa");
+    Files.delete(archive);
+    final SpringMain sm = SpringMain.fromArguments("--training-run", "--cds-archive=" + archive,
+            TwoBeanConfiguration.class.getName());
+    try
+    {
+      sm.runInternal();
+      Assert.fail("runInternal is not failing without the archive");
+    }
+    catch (IllegalStateException e)
+    {
+      Assert.assertTrue("IllegalStateException is not naming the archive", e.getMessage().contains(archive
+              .toString()));
+      Assert.assertFalse("runInternal is not closing the context", sm.getContext().isActive());
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringMain#main(java.lang.String[])} with a
+   * {@link ConfigurationIndex} on the class path.
+   */
+  @Test
+  public void testConfigurationIndex() throws IOException
+  {
+    final Path root = Files.createTempDirectory("springmain");
+    final Path index = root.resolve(ConfigurationIndex.LOCATION);
+    Files.createDirectories(index.getParent());
+    final Path[] files = { index, root.resolve("beans"), root.resolve("suffixed-beans.xml") };
+    Files.write(index, Arrays.asList(IndexedConfiguration.class.getName()), StandardCharsets.UTF_8);
+    Files.write(files[1], String.format(XML_BEANS, "xmlBean").getBytes(StandardCharsets.UTF_8));
+    Files.write(files[2], String.format(XML_BEANS, "suffixedBean").getBytes(StandardCharsets.UTF_8));
+
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[]{ root.toUri().toURL() }, getClass()
+            .getClassLoader()))
+    {
+      final SpringMain sm = new SpringMain(classLoader);
+      sm.setConfigLocations(IndexedConfiguration.class.getName(), "beans", "suffixed-beans.xml");
+      sm.runInternal();
+      try
+      {
+        Assert.assertTrue("runInternal is not loading an indexed class", sm.getContext().containsBean("indexedBean"));
+        Assert.assertTrue("runInternal is not reading an unlisted name as a file", sm.getContext().containsBean(
+                "xmlBean"));
+        Assert.assertTrue("runInternal is not reading a .xml name as a file", sm.getContext().containsBean(
+                "suffixedBean"));
+      }
+      finally
+      {
+        sm.getContext().close();
+      }
+
+      // A class of a module built without the index
+      final SpringMain unlisted = new SpringMain(classLoader);
+      unlisted.setConfigLocations(TwoBeanConfiguration.class.getName(), IndexedConfiguration.class.getName());
+      unlisted.runInternal();
+      try
+      {
+        Assert.assertTrue("runInternal is not loading a class the index does not list", unlisted.getContext()
+                .containsBean("eagerBean"));
+      }
+      finally
+      {
+        unlisted.getContext().close();
+      }
+    }
+    finally
+    {
+      for (final Path file : files)
+      {
+        Files.delete(file);
+      }
+      Files.delete(index.getParent());
+      Files.delete(root);
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringMain#main(java.lang.String[])} with a training run that fails.
+   */
+  @Test
+  public void testFailedTrainingRun()
+  {
+    final SpringMain sm = SpringMain.fromArguments("--training-run", FailingWarmupConfiguration.class.getName());
+    try
+    {
+      sm.runInternal();
+      Assert.fail("runInternal is not failing with the warm-up hook");
+    }
+    catch (BeanCreationException e)
+    {
+      Assert.assertEquals("BeanCreationException is not naming the failed hook", "failingHook", e.getBeanName());
+      Assert.assertFalse("runInternal is not closing the context of a failed training run", sm.getContext()
+              .isActive());
+    }
+  }
+}
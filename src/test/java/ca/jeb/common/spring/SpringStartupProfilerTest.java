@@ -0,0 +1,159 @@
+// Copyright (c) 2014 Erick Bourgeois, All Rights Reserved
+
+package ca.jeb.common.spring;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+
+/**
+ */
+public class SpringStartupProfilerTest
+{
+  /**
+   * A bean slow to initialize.
+   */
+  public static class SlowBean implements InitializingBean
+  {
+    @Override
+    public void afterPropertiesSet() throws InterruptedException
+    {
+      Thread.sleep(50);
+    }
+  }
+
+  /**
+   * A bean depending on a {@link SlowBean}.
+   */
+  public static class DependentBean
+  {
+    private SlowBean slow;
+
+    public void setSlow(SlowBean slow)
+    {
+      this.slow = slow;
+    }
+
+    public SlowBean getSlow()
+    {
+      return this.slow;
+    }
+  }
+
+  private static Map<String, SpringStartupProfiler.BeanTiming> profile(SpringStartupProfiler profiler)
+  {
+    final GenericApplicationContext context = new GenericApplicationContext();
+    context.getBeanFactory().addBeanPostProcessor(profiler);
+    context.registerBeanDefinition("dependent", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+            .addPropertyReference("slow", "slow").getBeanDefinition());
+    context.registerBeanDefinition("slow", BeanDefinitionBuilder.genericBeanDefinition(SlowBean.class)
+            .getBeanDefinition());
+    context.refresh();
+    context.close();
+
+    final Map<String, SpringStartupProfiler.BeanTiming> timings = new HashMap<>();
+    for (final SpringStartupProfiler.BeanTiming timing : profiler.getBeanTimings())
+    {
+      timings.put(timing.getBeanName(), timing);
+    }
+    return timings;
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringStartupProfiler#getBeanTimings()}.
+   */
+  @Test
+  public void testBeanTimings()
+  {
+    final SpringStartupProfiler profiler = new SpringStartupProfiler();
+    final Map<String, SpringStartupProfiler.BeanTiming> timings = profile(profiler);
+
+    final SpringStartupProfiler.BeanTiming slow = timings.get("slow");
+    final SpringStartupProfiler.BeanTiming dependent = timings.get("dependent");
+    Assert.assertNotNull("getBeanTimings is missing a bean", slow);
+    Assert.assertNotNull("getBeanTimings is missing a bean", dependent);
+    Assert.assertEquals("getBeanClass is not the declared class", SlowBean.class, slow.getBeanClass());
+    Assert.assertTrue("getInitNanos is not counting afterPropertiesSet", slow.getInitNanos() >= 40000000L);
+    Assert.assertTrue("getInjectionNanos is not counting the dependency",
+            dependent.getInjectionNanos() >= slow.getTotalNanos());
+    Assert.assertEquals("getSelfNanos is counting the dependency", dependent.getTotalNanos() - slow.getTotalNanos(),
+            dependent.getSelfNanos());
+    Assert.assertEquals("getSelfNanos is not the total without dependencies", slow.getTotalNanos(), slow
+            .getSelfNanos());
+
+    final List<SpringStartupProfiler.BeanTiming> sorted = profiler.getBeanTimings();
+    Assert.assertTrue("getBeanTimings is not sorted by self time", sorted.get(0).getSelfNanos() >= sorted.get(1)
+            .getSelfNanos());
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringStartupProfiler#stop()}.
+   */
+  @Test
+  public void testStop()
+  {
+    final SpringStartupProfiler profiler = new SpringStartupProfiler();
+    final GenericApplicationContext context = new GenericApplicationContext();
+    context.getBeanFactory().addBeanPostProcessor(profiler);
+    context.registerBeanDefinition("prototype", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+            .setScope(BeanDefinition.SCOPE_PROTOTYPE).getBeanDefinition());
+    context.refresh();
+    try
+    {
+      context.getBean("prototype");
+      Assert.assertEquals("getBeanTimings is missing a bean created before stop", 1, profiler.getBeanTimings().size());
+
+      profiler.stop();
+      context.getBean("prototype");
+      Assert.assertTrue("isStopped is not true after stop", profiler.isStopped());
+      Assert.assertEquals("getBeanTimings is keeping a bean created after stop", 1, profiler.getBeanTimings().size());
+    }
+    finally
+    {
+      context.close();
+    }
+  }
+
+  /**
+   * Test method for {@link ca.jeb.common.spring.SpringStartupProfiler#report()} and
+   * {@link ca.jeb.common.spring.SpringStartupProfiler#write(Path)}.
+   */
+  @Test
+  public void testReport() throws IOException
+  {
+    final SpringStartupProfiler profiler = new SpringStartupProfiler();
+    profiler.phase("test phase", System.nanoTime());
+    profile(profiler);
+
+    final String report = profiler.report();
+    Assert.assertTrue("report is missing the phase", report.contains("test phase"));
+    Assert.assertTrue("report is missing a bean", report.contains(SlowBean.class.getName()));
+
+    final Path file = Files.createTempFile("startup", ".tsv");
+    try
+    {
+      profiler.write(file);
+      final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+      Assert.assertTrue("write is not starting with the header", lines.get(0).startsWith("kind\tname\t"));
+      Assert.assertTrue("write is not writing the phase", lines.get(1).startsWith("phase\ttest phase\t"));
+      Assert.assertEquals("write is not writing every bean", 4, lines.size());
+      Assert.assertTrue("write is not writing the beans after the phases", lines.get(2).startsWith("bean\t"));
+      Assert.assertEquals("write is not writing 8 columns", 8, lines.get(2).split("\t", -1).length);
+    }
+    finally
+    {
+      Files.delete(file);
+    }
+  }
+}